@@ -19,9 +19,16 @@ public class GlobalExceptionHandler {
             code = "NOT_FOUND_ERROR";
         } else if (ex.getStatusCode() == HttpStatus.UNAUTHORIZED) {
             code = "AUTHENTICATION_ERROR";
+        } else if (ex.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+            code = "RATE_LIMIT_ERROR";
+        } else if (ex.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
+            code = "SERVICE_UNAVAILABLE_ERROR";
         }
 
-        return buildErrorResponse(ex.getStatusCode().value(), code, ex.getReason());
+        ResponseEntity<Map<String, Object>> response = buildErrorResponse(ex.getStatusCode().value(), code,
+                ex.getReason());
+        // e.g. Retry-After on load shedding
+        return ResponseEntity.status(response.getStatusCode()).headers(ex.getHeaders()).body(response.getBody());
     }
 
     @ExceptionHandler(Exception.class)
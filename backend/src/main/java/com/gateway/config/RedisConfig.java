@@ -1,11 +1,19 @@
 package com.gateway.config;
 
+import com.gateway.services.MerchantCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
 @Configuration
 public class RedisConfig {
 
@@ -17,4 +25,27 @@ public class RedisConfig {
         template.setValueSerializer(new StringRedisSerializer());
         return template;
     }
+
+    // Job payloads are binary envelopes (JobCodec), stored as is
+    @Bean
+    public RedisTemplate<String, byte[]> jobRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        return template;
+    }
+
+    // Merchant changes made on other nodes (see MerchantCache)
+    @Bean
+    @ConditionalOnProperty(name = "gateway.merchant-cache.invalidation.enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer merchantInvalidationListener(RedisConnectionFactory connectionFactory,
+            MerchantCache merchantCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> merchantCache.evictLocal(
+                UUID.fromString(new String(message.getBody(), StandardCharsets.UTF_8))),
+                new ChannelTopic(MerchantCache.INVALIDATION_CHANNEL));
+        return container;
+    }
 }
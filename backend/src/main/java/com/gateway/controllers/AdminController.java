@@ -0,0 +1,100 @@
+package com.gateway.controllers;
+
+import com.gateway.queue.DeadLetter;
+import com.gateway.services.DeadLetterService;
+import com.gateway.services.JobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Operator endpoints, authenticated with X-Admin-Key instead of merchant credentials.
+// Disabled while gateway.admin.api-key is empty.
+@RestController
+@RequestMapping("/api/v1/admin")
+public class AdminController {
+
+    private static final Map<String, String> QUEUES = Map.of(
+            "payments", JobService.QUEUE_PAYMENTS,
+            "webhooks", JobService.QUEUE_WEBHOOKS,
+            "refunds", JobService.QUEUE_REFUNDS);
+
+    @Autowired
+    private DeadLetterService deadLetterService;
+
+    @Value("${gateway.admin.api-key:}")
+    private String adminApiKey;
+
+    // Replay runs on the request thread, so one call does at most this many; at the
+    // default rate that is a few seconds. Call again while "remaining" is above zero.
+    @Value("${gateway.deadletter.replay-max-per-call:10000}")
+    private long replayMaxPerCall;
+
+    @GetMapping("/dead-letters/{queue}")
+    public ResponseEntity<Map<String, Object>> getDeadLetters(
+            @PathVariable String queue,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey) {
+        authorize(adminKey);
+        String queueName = queueName(queue);
+        if (limit < 1 || limit > 1000 || offset < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid limit or offset");
+        }
+
+        List<DeadLetter> letters = deadLetterService.list(queueName, offset, limit);
+        Map<String, Object> response = new HashMap<>();
+        response.put("data", letters);
+        response.put("total", deadLetterService.size(queueName));
+        response.put("limit", limit);
+        response.put("offset", offset);
+        return ResponseEntity.ok(response);
+    }
+
+    // Replays the oldest dead letters first, rate limited; blocks until done.
+    // 409 while another replay of the queue is running.
+    @PostMapping("/dead-letters/{queue}/replay")
+    public ResponseEntity<Map<String, Object>> replayDeadLetters(
+            @PathVariable String queue,
+            @RequestParam(defaultValue = "10000") long limit,
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey) {
+        authorize(adminKey);
+        String queueName = queueName(queue);
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid limit");
+        }
+
+        long replayed = deadLetterService.replay(queueName, Math.min(limit, replayMaxPerCall));
+        Map<String, Object> response = new HashMap<>();
+        response.put("queue", queue);
+        response.put("replayed", replayed);
+        response.put("remaining", deadLetterService.size(queueName));
+        return ResponseEntity.ok(response);
+    }
+
+    private void authorize(String adminKey) {
+        if (adminApiKey == null || adminApiKey.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Not found");
+        }
+        if (adminKey == null || !MessageDigest.isEqual(adminKey.getBytes(StandardCharsets.UTF_8),
+                adminApiKey.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid admin credentials");
+        }
+    }
+
+    private String queueName(String queue) {
+        String queueName = QUEUES.get(queue);
+        if (queueName == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Queue not found");
+        }
+        return queueName;
+    }
+}
@@ -2,10 +2,15 @@ package com.gateway.controllers;
 
 import com.gateway.models.Merchant;
 import com.gateway.repositories.MerchantRepository;
+import com.gateway.services.MerchantCache;
+import com.gateway.services.WebhookRetryPolicies;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import java.security.SecureRandom;
 import java.util.Map;
 
@@ -16,42 +21,104 @@ public class MerchantController {
     @Autowired
     private MerchantRepository merchantRepository;
 
+    @Autowired
+    private WebhookRetryPolicies webhookRetryPolicies;
+
+    @Autowired
+    private MerchantCache merchantCache;
+
+    @Value("${gateway.webhook.batch.max-size:100}")
+    private int maxBatchSize;
+
+    @Value("${gateway.webhook.batch.max-window-ms:10000}")
+    private int maxBatchWindowMs;
+
+    @Value("${gateway.webhook.rate.max-per-second:1000}")
+    private int maxRatePerSecond;
+
+    @Value("${gateway.webhook.rate.max-burst:1000}")
+    private int maxRateBurst;
+
     private static final String ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
     private static final SecureRandom SECURE_RANDOM = new SecureRandom();
 
     @GetMapping("/me")
     public ResponseEntity<Merchant> getCurrentMerchant(Authentication authentication) {
-        Merchant merchant = (Merchant) authentication.getPrincipal();
-        // Refresh from DB to get latest
-        return ResponseEntity.ok(merchantRepository.findById(merchant.getId()).orElse(merchant));
+        // The auth filter's merchant is current: changes invalidate it on every node
+        return ResponseEntity.ok((Merchant) authentication.getPrincipal());
     }
 
     @PostMapping("/me/webhook/secret")
     public ResponseEntity<Map<String, String>> regenerateWebhookSecret(Authentication authentication) {
         Merchant merchant = (Merchant) authentication.getPrincipal();
-        // Refresh
-        merchant = merchantRepository.findById(merchant.getId()).orElse(merchant);
+        // Edit a fresh copy, never the cached principal other requests share
+        merchant = merchantRepository.findById(merchant.getId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Merchant not found"));
 
         String newSecret = "whsec_" + generateRandomString(32);
         merchant.setWebhookSecret(newSecret);
         merchantRepository.save(merchant);
+        merchantCache.invalidate(merchant.getId());
 
         return ResponseEntity.ok(java.util.Collections.singletonMap("webhook_secret", newSecret));
     }
 
     @PutMapping("/me/webhook")
     public ResponseEntity<Merchant> updateWebhookUrl(
-            @RequestBody Map<String, String> payload,
+            @RequestBody Map<String, Object> payload,
             Authentication authentication) {
         Merchant merchant = (Merchant) authentication.getPrincipal();
-        merchant = merchantRepository.findById(merchant.getId()).orElse(merchant);
+        merchant = merchantRepository.findById(merchant.getId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Merchant not found"));
 
-        String url = payload.get("webhook_url");
+        Object url = payload.get("webhook_url");
         if (url != null) {
-            merchant.setWebhookUrl(url);
+            merchant.setWebhookUrl(url.toString());
+        }
+        // Batching is opt-in; 0 or 1 turns it back off
+        if (payload.containsKey("batch_size")) {
+            Integer size = intField(payload, "batch_size", 0, maxBatchSize);
+            merchant.setWebhookBatchSize(size != null && size > 1 ? size : null);
+        }
+        if (payload.containsKey("batch_window_ms")) {
+            merchant.setWebhookBatchWindowMs(intField(payload, "batch_window_ms", 1, maxBatchWindowMs));
+        }
+        // null goes back to the gateway default
+        if (payload.containsKey("rate_limit")) {
+            merchant.setWebhookRateLimit(intField(payload, "rate_limit", 1, maxRatePerSecond));
+        }
+        if (payload.containsKey("rate_limit_burst")) {
+            merchant.setWebhookRateBurst(intField(payload, "rate_limit_burst", 1, maxRateBurst));
+        }
+        if (payload.containsKey("retry_policy")) {
+            Object policy = payload.get("retry_policy");
+            if (policy != null && !webhookRetryPolicies.exists(policy.toString())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "retry_policy must be one of " + webhookRetryPolicies.names());
+            }
+            merchant.setWebhookRetryPolicy(policy != null ? policy.toString() : null);
         }
 
-        return ResponseEntity.ok(merchantRepository.save(merchant));
+        Merchant saved = merchantRepository.save(merchant);
+        merchantCache.invalidate(saved.getId());
+        return ResponseEntity.ok(saved);
+    }
+
+    private Integer intField(Map<String, Object> payload, String name, int min, int max) {
+        Object value = payload.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            int parsed = Integer.parseInt(value.toString());
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Falls through to the error below
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                name + " must be an integer between " + min + " and " + max);
     }
 
     private String generateRandomString(int length) {
@@ -2,6 +2,7 @@ package com.gateway.controllers;
 
 import com.gateway.models.Merchant;
 import com.gateway.models.Payment;
+import com.gateway.services.AdmissionControlService;
 import com.gateway.services.PaymentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/payments")
@@ -19,12 +21,22 @@ public class PaymentController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
     @PostMapping
     public ResponseEntity<Object> createPayment(
             @RequestBody Map<String, Object> payload,
             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
         Merchant merchant = (Merchant) authentication.getPrincipal();
+        // Replays are served even when new payments are shed: the payment already exists
+        Optional<Payment> replay = paymentService.findIdempotentReplay(merchant, idempotencyKey);
+        if (replay.isPresent()) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(replay.get());
+        }
+
+        admissionControlService.admitPayment(AdmissionControlService.Budget.MERCHANT);
         Object response = paymentService.createPayment(merchant, payload, idempotencyKey);
 
         // If it's a cached response (idempotency), it might be a Payment object or the
@@ -72,6 +84,7 @@ public class PaymentController {
         // We pass null for idempotency key for public endpoint for now, or handle if
         // needed.
         // Requirement doesn't strictly say public endpoint needs idempotency.
+        admissionControlService.admitPayment(AdmissionControlService.Budget.PUBLIC);
         Object payment = paymentService.createPayment(null, payload, null);
         return ResponseEntity.status(HttpStatus.CREATED).body(payment);
     }
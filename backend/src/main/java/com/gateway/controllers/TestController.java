@@ -1,8 +1,8 @@
 package com.gateway.controllers;
 
+import com.gateway.queue.JobQueue;
 import com.gateway.services.JobService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -16,7 +16,7 @@ import java.util.Map;
 public class TestController {
 
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private JobQueue jobQueue;
 
     @org.springframework.beans.factory.annotation.Value("${gateway.test.merchant.name:Test Merchant}")
     private String testMerchantName;
@@ -40,13 +40,9 @@ public class TestController {
     public ResponseEntity<Map<String, Object>> getJobStatus() {
         Map<String, Object> status = new HashMap<>();
 
-        Long pendingPayments = redisTemplate.opsForList().size(JobService.QUEUE_PAYMENTS);
-        Long pendingWebhooks = redisTemplate.opsForList().size(JobService.QUEUE_WEBHOOKS);
-        Long pendingRefunds = redisTemplate.opsForList().size(JobService.QUEUE_REFUNDS);
-
-        long totalPending = (pendingPayments != null ? pendingPayments : 0) +
-                (pendingWebhooks != null ? pendingWebhooks : 0) +
-                (pendingRefunds != null ? pendingRefunds : 0);
+        long totalPending = jobQueue.size(JobService.QUEUE_PAYMENTS) +
+                jobQueue.size(JobService.QUEUE_WEBHOOKS) +
+                jobQueue.size(JobService.QUEUE_REFUNDS);
 
         status.put("pending", totalPending);
         status.put("processing", 0); // Hard to track without state in DB or Redis set
@@ -5,6 +5,7 @@ import com.gateway.models.Merchant;
 import com.gateway.models.WebhookLog;
 import com.gateway.repositories.WebhookLogRepository;
 import com.gateway.services.JobService;
+import com.gateway.services.WebhookCircuitBreaker;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -14,7 +15,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -28,6 +31,9 @@ public class WebhookController {
     @Autowired
     private JobService jobService;
 
+    @Autowired
+    private WebhookCircuitBreaker webhookCircuitBreaker;
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> getWebhooks(
             @RequestParam(defaultValue = "10") int limit,
@@ -54,6 +60,8 @@ public class WebhookController {
         response.put("total", logs.getTotalElements());
         response.put("limit", limit);
         response.put("offset", offset);
+        // Circuit state and recent failure rate of the merchant's endpoint
+        response.put("endpoint", webhookCircuitBreaker.health(merchant.getWebhookUrl()));
 
         return ResponseEntity.ok(response);
     }
@@ -78,13 +86,15 @@ public class WebhookController {
         // Req: "Reset attempts to 0, set status to 'pending', enqueue
         // DeliverWebhookJob."
 
-        webhookLogRepository.save(log);
+        webhookLogRepository.updateAttempts(List.of(log));
 
         DeliverWebhookJob job = new DeliverWebhookJob(
                 merchant.getId(),
                 log.getEvent(),
-                log.getPayload(),
-                log.getId());
+                log.getPayload().getBytes(StandardCharsets.UTF_8),
+                log.getId(),
+                log.getEndpointId(),
+                null);
         jobService.scheduleWebhookDelivery(job);
 
         Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,144 @@
+package com.gateway.controllers;
+
+import com.gateway.models.Merchant;
+import com.gateway.models.WebhookEndpoint;
+import com.gateway.repositories.WebhookEndpointRepository;
+import com.gateway.services.MerchantCache;
+import com.gateway.services.WebhookSubscriptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+// Webhook endpoints: each receives the events it subscribes to, in addition to the
+// merchant's own webhook_url (which gets every event)
+@RestController
+@RequestMapping("/api/v1/webhooks/endpoints")
+public class WebhookEndpointController {
+
+    // "*", "payment.*" or a full event type like "payment.success"
+    private static final Pattern EVENT_PATTERN = Pattern.compile("\\*|[a-z_]+\\.(\\*|[a-z_]+)");
+    private static final String ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    @Autowired
+    private WebhookEndpointRepository webhookEndpointRepository;
+
+    @Autowired
+    private MerchantCache merchantCache;
+
+    // Bounds the fan-out of a single event
+    @Value("${gateway.webhook.endpoints.max-per-merchant:10}")
+    private int maxEndpoints;
+
+    @GetMapping
+    public ResponseEntity<List<WebhookEndpoint>> listEndpoints(Authentication authentication) {
+        Merchant merchant = (Merchant) authentication.getPrincipal();
+        return ResponseEntity.ok(webhookEndpointRepository.findByMerchantId(merchant.getId()));
+    }
+
+    // Body: url, events (list or comma-separated), and own_secret to sign this endpoint's
+    // events with a secret of its own instead of the merchant's webhook secret
+    @PostMapping
+    public ResponseEntity<WebhookEndpoint> createEndpoint(
+            @RequestBody Map<String, Object> payload,
+            Authentication authentication) {
+        Merchant merchant = (Merchant) authentication.getPrincipal();
+        if (webhookEndpointRepository.countByMerchantId(merchant.getId()) >= maxEndpoints) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A merchant can have at most " + maxEndpoints + " webhook endpoints");
+        }
+
+        WebhookEndpoint endpoint = new WebhookEndpoint();
+        endpoint.setMerchantId(merchant.getId());
+        endpoint.setUrl(url(payload.get("url")));
+        endpoint.setEvents(events(payload.getOrDefault("events", "*")));
+        if (Boolean.TRUE.equals(payload.get("own_secret"))) {
+            endpoint.setSecret("whsec_" + generateRandomString(32));
+        }
+
+        WebhookEndpoint saved = webhookEndpointRepository.save(endpoint);
+        merchantCache.invalidate(merchant.getId());
+        return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+    }
+
+    @PutMapping("/{endpointId}")
+    public ResponseEntity<WebhookEndpoint> updateEndpoint(
+            @PathVariable UUID endpointId,
+            @RequestBody Map<String, Object> payload,
+            Authentication authentication) {
+        Merchant merchant = (Merchant) authentication.getPrincipal();
+        WebhookEndpoint endpoint = findOwned(endpointId, merchant);
+
+        if (payload.containsKey("url")) {
+            endpoint.setUrl(url(payload.get("url")));
+        }
+        if (payload.containsKey("events")) {
+            endpoint.setEvents(events(payload.get("events")));
+        }
+        if (payload.containsKey("active")) {
+            endpoint.setActive(Boolean.TRUE.equals(payload.get("active")));
+        }
+
+        WebhookEndpoint saved = webhookEndpointRepository.save(endpoint);
+        merchantCache.invalidate(merchant.getId());
+        return ResponseEntity.ok(saved);
+    }
+
+    // Pending retries to a deleted endpoint are marked failed when they come due
+    @DeleteMapping("/{endpointId}")
+    public ResponseEntity<Void> deleteEndpoint(@PathVariable UUID endpointId, Authentication authentication) {
+        Merchant merchant = (Merchant) authentication.getPrincipal();
+        webhookEndpointRepository.delete(findOwned(endpointId, merchant));
+        merchantCache.invalidate(merchant.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    private WebhookEndpoint findOwned(UUID endpointId, Merchant merchant) {
+        return webhookEndpointRepository.findById(endpointId)
+                .filter(endpoint -> endpoint.getMerchantId().equals(merchant.getId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Webhook endpoint not found"));
+    }
+
+    private String url(Object value) {
+        try {
+            URI uri = URI.create(String.valueOf(value));
+            if (("http".equals(uri.getScheme()) || "https".equals(uri.getScheme())) && uri.getHost() != null) {
+                return uri.toString();
+            }
+        } catch (IllegalArgumentException e) {
+            // Falls through to the error below
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "url must be an http or https URL");
+    }
+
+    private String events(Object value) {
+        List<String> events = value instanceof Collection<?> list
+                ? list.stream().map(String::valueOf).map(String::trim).toList()
+                : WebhookSubscriptions.parseEvents(String.valueOf(value));
+        if (events.isEmpty() || !events.stream().allMatch(event -> EVENT_PATTERN.matcher(event).matches())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "events must be \"*\", an event type like \"payment.success\", or a prefix like \"payment.*\"");
+        }
+        return String.join(",", events);
+    }
+
+    private String generateRandomString(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(SECURE_RANDOM.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
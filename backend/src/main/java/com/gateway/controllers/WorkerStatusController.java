@@ -0,0 +1,26 @@
+package com.gateway.controllers;
+
+import com.gateway.workers.WorkerRunner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// Served by worker nodes only: the adaptive concurrency state of this node's consumers
+@RestController
+@Profile("worker")
+@RequestMapping("/api/v1/test/worker")
+public class WorkerStatusController {
+
+    @Autowired
+    private WorkerRunner workerRunner;
+
+    @GetMapping("/concurrency")
+    public ResponseEntity<Map<String, Map<String, Object>>> getConcurrency() {
+        return ResponseEntity.ok(workerRunner.concurrencySnapshot());
+    }
+}
@@ -1,5 +1,7 @@
 package com.gateway.jobs;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +14,17 @@ import java.util.UUID;
 public class DeliverWebhookJob {
     private UUID merchantId;
     private String event;
-    private String payload;
+    // UTF-8 JSON, carried as-is from serialization to the HTTP body
+    @JsonSerialize(using = Utf8StringBytes.Serializer.class)
+    @JsonDeserialize(using = Utf8StringBytes.Deserializer.class)
+    private byte[] payload;
     private UUID webhookLogId; // Optional, if retrying existing log
+    // Null for the merchant's own webhook_url
+    private UUID endpointId;
+    // Computed once per event and key at fan-out; null on retries, which sign again
+    private String signature;
+
+    public DeliverWebhookJob(UUID merchantId, String event, byte[] payload, UUID webhookLogId) {
+        this(merchantId, event, payload, webhookLogId, null, null);
+    }
 }
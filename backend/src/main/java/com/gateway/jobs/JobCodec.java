@@ -0,0 +1,286 @@
+package com.gateway.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Binary job envelope, version 1 (big endian):
+//
+//   version   1 byte
+//   type      1 byte   JobType tag
+//   flags     1 byte   bit 0: body is raw deflate, preceded by its inflated length (4 bytes)
+//                      bit 1: webhook body carries endpoint id and signature
+//   job id    16 bytes
+//   enqueued  8 bytes  epoch millis
+//   attempt   2 bytes  unsigned, saturates at 65535
+//   body      rest     per type, see writeBody
+//
+// Strings in the body are a 2-byte length plus UTF-8, optional UUIDs a presence byte plus
+// 16 bytes. The webhook payload bytes are written as-is at the end, not as an escaped string.
+// Payloads starting with '{' are pre-envelope JSON jobs and are still accepted.
+@Component
+public class JobCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int FLAG_DEFLATED = 1;
+    private static final int FLAG_ENDPOINT = 2;
+    private static final int HEADER_SIZE = 29;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Bodies at least this large are deflated when that makes them smaller; 0 disables
+    @Value("${gateway.queue.envelope.compress-threshold-bytes:1024}")
+    private int compressThreshold;
+
+    private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(
+            () -> new Deflater(Deflater.BEST_SPEED, true));
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    public byte[] encode(Object job) {
+        return encode(job, 0);
+    }
+
+    public byte[] encode(Object job, int attempt) {
+        JobType type = JobType.of(job.getClass());
+        byte[] body = writeBody(type, job);
+        int flags = 0;
+        if (job instanceof DeliverWebhookJob webhook && (webhook.getEndpointId() != null || webhook.getSignature() != null)) {
+            flags |= FLAG_ENDPOINT;
+        }
+        if (compressThreshold > 0 && body.length >= compressThreshold) {
+            byte[] deflated = deflate(body);
+            if (deflated.length + 4 < body.length) {
+                body = ByteBuffer.allocate(deflated.length + 4).putInt(body.length).put(deflated).array();
+                flags |= FLAG_DEFLATED;
+            }
+        }
+
+        UUID jobId = newJobId();
+        return ByteBuffer.allocate(HEADER_SIZE + body.length)
+                .put((byte) VERSION)
+                .put((byte) type.getTag())
+                .put((byte) flags)
+                .putLong(jobId.getMostSignificantBits())
+                .putLong(jobId.getLeastSignificantBits())
+                .putLong(System.currentTimeMillis())
+                .putShort((short) Math.min(Math.max(attempt, 0), 0xFFFF))
+                .put(body)
+                .array();
+    }
+
+    // Throws IllegalArgumentException when the bytes are not a job of the expected type
+    public <T> JobEnvelope<T> decode(byte[] bytes, Class<T> expected) {
+        if (bytes.length > 0 && bytes[0] == '{') {
+            return decodeLegacy(bytes, expected);
+        }
+        if (bytes.length < HEADER_SIZE || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported job envelope");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.get();
+        JobType type = JobType.fromTag(buffer.get());
+        if (type.getJobClass() != expected) {
+            throw new IllegalArgumentException("Expected " + expected.getSimpleName() + " but got " + type);
+        }
+        int flags = buffer.get();
+        UUID jobId = new UUID(buffer.getLong(), buffer.getLong());
+        long enqueuedAt = buffer.getLong();
+        int attempt = Short.toUnsignedInt(buffer.getShort());
+
+        ByteBuffer body = buffer.slice();
+        if ((flags & FLAG_DEFLATED) != 0) {
+            int length = body.getInt();
+            body = ByteBuffer.wrap(inflate(bytes, HEADER_SIZE + 4, length));
+        }
+        return new JobEnvelope<>(type, jobId, enqueuedAt, attempt, expected.cast(readBody(type, flags, body)));
+    }
+
+    // Reads only the header; -1 for legacy JSON jobs, which carry no enqueue time
+    public long enqueuedAt(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_SIZE || bytes[0] != VERSION) {
+            return -1;
+        }
+        return ByteBuffer.wrap(bytes, 19, 8).getLong();
+    }
+
+    // Merchant of an encoded job of any type, for re-queueing raw payloads fairly;
+    // null for legacy JSON jobs and jobs without a merchant
+    public UUID merchantId(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_SIZE || bytes[0] != VERSION) {
+            return null;
+        }
+        Object job = decode(bytes, JobType.fromTag(bytes[1]).getJobClass()).getJob();
+        if (job instanceof ProcessPaymentJob payment) {
+            return payment.getMerchantId();
+        } else if (job instanceof ProcessRefundJob refund) {
+            return refund.getMerchantId();
+        } else if (job instanceof DeliverWebhookJob webhook) {
+            return webhook.getMerchantId();
+        }
+        return null;
+    }
+
+    // Random v4 UUID without SecureRandom: job ids trace jobs, they are not secrets
+    private UUID newJobId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long most = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long least = (random.nextLong() & ~(0xC000L << 48)) | (0x8000L << 48);
+        return new UUID(most, least);
+    }
+
+    private byte[] writeBody(JobType type, Object job) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        switch (type) {
+            case PAYMENT -> {
+                ProcessPaymentJob payment = (ProcessPaymentJob) job;
+                writeString(out, payment.getPaymentId());
+                writeUuid(out, payment.getMerchantId());
+            }
+            case REFUND -> {
+                ProcessRefundJob refund = (ProcessRefundJob) job;
+                writeString(out, refund.getRefundId());
+                writeUuid(out, refund.getMerchantId());
+            }
+            case WEBHOOK -> {
+                DeliverWebhookJob webhook = (DeliverWebhookJob) job;
+                writeUuid(out, webhook.getMerchantId());
+                writeUuid(out, webhook.getWebhookLogId());
+                writeString(out, webhook.getEvent());
+                if (webhook.getEndpointId() != null || webhook.getSignature() != null) {
+                    writeUuid(out, webhook.getEndpointId());
+                    writeString(out, webhook.getSignature());
+                }
+                if (webhook.getPayload() != null) {
+                    out.writeBytes(webhook.getPayload());
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private Object readBody(JobType type, int flags, ByteBuffer body) {
+        return switch (type) {
+            case PAYMENT -> new ProcessPaymentJob(readString(body), readUuid(body));
+            case REFUND -> new ProcessRefundJob(readString(body), readUuid(body));
+            case WEBHOOK -> {
+                UUID merchantId = readUuid(body);
+                UUID webhookLogId = readUuid(body);
+                String event = readString(body);
+                UUID endpointId = null;
+                String signature = null;
+                if ((flags & FLAG_ENDPOINT) != 0) {
+                    endpointId = readUuid(body);
+                    signature = readString(body);
+                }
+                int from = body.arrayOffset() + body.position();
+                byte[] payload = Arrays.copyOfRange(body.array(), from, from + body.remaining());
+                yield new DeliverWebhookJob(merchantId, event, payload, webhookLogId, endpointId, signature);
+            }
+        };
+    }
+
+    private <T> JobEnvelope<T> decodeLegacy(byte[] bytes, Class<T> expected) {
+        try {
+            T job = objectMapper.readValue(bytes, expected);
+            return new JobEnvelope<>(JobType.of(expected), null, 0, 0, job);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON job", e);
+        }
+    }
+
+    private void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            out.write(0xFF);
+            out.write(0xFF);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= 0xFFFF) {
+            throw new IllegalArgumentException("String field too long for job envelope");
+        }
+        out.write(utf8.length >>> 8);
+        out.write(utf8.length);
+        out.writeBytes(utf8);
+    }
+
+    private String readString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length == 0xFFFF) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private void writeUuid(ByteArrayOutputStream out, UUID value) {
+        if (value == null) {
+            out.write(0);
+            return;
+        }
+        out.write(1);
+        out.writeBytes(ByteBuffer.allocate(16)
+                .putLong(value.getMostSignificantBits())
+                .putLong(value.getLeastSignificantBits())
+                .array());
+    }
+
+    private UUID readUuid(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private byte[] deflate(byte[] input) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        byte[] out = new byte[input.length];
+        int length = 0;
+        while (!deflater.finished() && length < out.length) {
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        // Did not fit in the input size: not worth compressing
+        return deflater.finished() ? Arrays.copyOf(out, length) : input;
+    }
+
+    private byte[] inflate(byte[] input, int offset, int inflatedLength) {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(input, offset, input.length - offset);
+        byte[] out = new byte[inflatedLength];
+        try {
+            int length = 0;
+            while (length < inflatedLength && !inflater.finished()) {
+                int n = inflater.inflate(out, length, inflatedLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != inflatedLength) {
+                throw new IllegalArgumentException("Truncated job envelope body");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt job envelope body", e);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,17 @@
+package com.gateway.jobs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+// Metadata that travels with every queued job, see JobCodec for the wire format
+@Data
+@AllArgsConstructor
+public class JobEnvelope<T> {
+    private JobType type;
+    private UUID jobId;
+    private long enqueuedAt; // Epoch millis
+    private int attempt; // Deliveries before this one
+    private T job;
+}
@@ -0,0 +1,42 @@
+package com.gateway.jobs;
+
+// Type tag written into the job envelope; tags are part of the wire format, never reuse one
+public enum JobType {
+    PAYMENT(1, ProcessPaymentJob.class),
+    WEBHOOK(2, DeliverWebhookJob.class),
+    REFUND(3, ProcessRefundJob.class);
+
+    private final int tag;
+    private final Class<?> jobClass;
+
+    JobType(int tag, Class<?> jobClass) {
+        this.tag = tag;
+        this.jobClass = jobClass;
+    }
+
+    public int getTag() {
+        return tag;
+    }
+
+    public Class<?> getJobClass() {
+        return jobClass;
+    }
+
+    public static JobType of(Class<?> jobClass) {
+        for (JobType type : values()) {
+            if (type.jobClass == jobClass) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Not a queued job type: " + jobClass.getName());
+    }
+
+    public static JobType fromTag(int tag) {
+        for (JobType type : values()) {
+            if (type.tag == tag) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown job type tag: " + tag);
+    }
+}
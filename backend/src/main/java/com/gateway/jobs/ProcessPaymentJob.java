@@ -4,11 +4,14 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.UUID;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProcessPaymentJob {
     private String paymentId;
+    private UUID merchantId; // Fair-queueing key
 
     // We can use a simple identifier for the job type in the JSON payload
     // but typically we'll serialize the whole object.
@@ -0,0 +1,43 @@
+package com.gateway.jobs;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// JSON mapping for byte[] fields holding UTF-8 text: a plain JSON string rather than
+// base64, so JSON jobs queued before the payload became bytes still decode
+public final class Utf8StringBytes {
+
+    private Utf8StringBytes() {
+    }
+
+    public static class Serializer extends StdSerializer<byte[]> {
+
+        public Serializer() {
+            super(byte[].class);
+        }
+
+        @Override
+        public void serialize(byte[] value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeUTF8String(value, 0, value.length);
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<byte[]> {
+
+        public Deserializer() {
+            super(byte[].class);
+        }
+
+        @Override
+        public byte[] deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return parser.getValueAsString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -35,6 +35,27 @@ public class Merchant {
     @Column(name = "webhook_secret", length = 64)
     private String webhookSecret;
 
+    // Batched delivery: up to this many events per POST, as one JSON array.
+    // Null or 1 delivers each event on its own.
+    @Column(name = "webhook_batch_size")
+    private Integer webhookBatchSize;
+
+    // Longest an event waits for its batch to fill
+    @Column(name = "webhook_batch_window_ms")
+    private Integer webhookBatchWindowMs;
+
+    // Outbound webhook requests per second, with bursts of up to webhookRateBurst.
+    // Null uses the gateway default.
+    @Column(name = "webhook_rate_limit")
+    private Integer webhookRateLimit;
+
+    @Column(name = "webhook_rate_burst")
+    private Integer webhookRateBurst;
+
+    // Name of a WebhookRetryPolicy; null uses the event's or the gateway default
+    @Column(name = "webhook_retry_policy", length = 32)
+    private String webhookRetryPolicy;
+
     @Column(name = "is_active")
     private boolean isActive = true;
 
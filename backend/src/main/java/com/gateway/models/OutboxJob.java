@@ -0,0 +1,42 @@
+package com.gateway.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+// Job written in the same transaction as the row it refers to; OutboxRelay moves it to Redis
+@Entity
+@Table(name = "outbox_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "queue_name", length = 64, nullable = false)
+    private String queueName;
+
+    @Column(name = "partition_key", length = 64)
+    private String partitionKey;
+
+    @Column(columnDefinition = "BYTEA", nullable = false)
+    private byte[] payload; // Job envelope, see JobCodec
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
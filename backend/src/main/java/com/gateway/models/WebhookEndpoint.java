@@ -0,0 +1,48 @@
+package com.gateway.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// One of a merchant's webhook destinations, receiving the events it subscribes to.
+// The merchant's own webhook_url keeps working alongside as an endpoint for all events.
+@Entity
+@Table(name = "webhook_endpoints", indexes = {
+        @Index(name = "idx_webhook_endpoints_merchant", columnList = "merchant_id")
+})
+@Data
+public class WebhookEndpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(name = "merchant_id", nullable = false)
+    private UUID merchantId;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String url;
+
+    // Comma-separated event types; "*" for all, "payment.*" for every payment event
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String events;
+
+    // Null signs with the merchant's webhook secret
+    @Column(length = 64)
+    private String secret;
+
+    @Column(name = "is_active")
+    private boolean isActive = true;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
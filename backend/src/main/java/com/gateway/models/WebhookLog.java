@@ -10,15 +10,12 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "webhook_logs", indexes = {
-        @Index(name = "idx_webhook_merchant", columnList = "merchant_id"),
-        @Index(name = "idx_webhook_status", columnList = "status"),
-        @Index(name = "idx_webhook_retry", columnList = "next_retry_at")
-})
+// Table, partitions and indexes are managed by WebhookLogPartitions
+@Table(name = "webhook_logs")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class WebhookLog {
 
     @Id
@@ -31,6 +28,10 @@ public class WebhookLog {
     @Column(length = 50, nullable = false)
     private String event;
 
+    // Null for deliveries to the merchant's own webhook_url
+    @Column(name = "endpoint_id")
+    private UUID endpointId;
+
     @Column(columnDefinition = "TEXT", nullable = false)
     private String payload;
 
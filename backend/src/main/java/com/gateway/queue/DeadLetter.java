@@ -0,0 +1,15 @@
+package com.gateway.queue;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetter {
+    private byte[] payload; // Job envelope exactly as it was polled
+    private String reason;
+    private int attempts;
+    private long failedAt; // epoch millis
+}
@@ -0,0 +1,161 @@
+package com.gateway.queue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Jobs that kept failing after the worker's in-process retries. One plain Redis list
+// per queue whatever the queue mode, oldest failure at the head; entries are JSON with
+// the original envelope base64 encoded.
+//
+// A replay holds a lock, and each batch it takes waits in a staging list until it has
+// been pushed onto the live queue, so a replay that dies halfway loses nothing: the next
+// replay pushes the staged batch first (those jobs may then run twice).
+//
+// Keys per queue:
+//   <queue>:dead               dead letters
+//   <queue>:dead:replaying     batch taken by the running replay, not yet pushed
+//   <queue>:dead:replay-lock   token of the running replay
+@Component
+public class DeadLetterQueue {
+
+    // Refreshed on every batch, so it only runs out when the replay stopped
+    private static final long REPLAY_LOCK_TTL_MS = 30_000;
+
+    // KEYS: dead, staging  ARGV: max
+    // Leftovers of an interrupted replay come first, otherwise LMOVEs up to max
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TAKE_SCRIPT = new DefaultRedisScript<>(
+            "local max = tonumber(ARGV[1]) "
+                    + "local staged = redis.call('LRANGE', KEYS[2], 0, max - 1) "
+                    + "if #staged > 0 then return staged end "
+                    + "local out = {} "
+                    + "for i = 1, max do "
+                    + "  local entry = redis.call('LMOVE', KEYS[1], KEYS[2], 'LEFT', 'RIGHT') "
+                    + "  if not entry then break end "
+                    + "  table.insert(out, entry) "
+                    + "end "
+                    + "return out", List.class);
+
+    // KEYS: staging, dead
+    // Everything staged goes back to the head, in its original order
+    private static final RedisScript<Long> PUT_BACK_SCRIPT = new DefaultRedisScript<>(
+            "local moved = 0 "
+                    + "while redis.call('LMOVE', KEYS[1], KEYS[2], 'RIGHT', 'LEFT') do "
+                    + "  moved = moved + 1 "
+                    + "end "
+                    + "return moved", Long.class);
+
+    // KEYS: lock  ARGV: token, ttl ms
+    // Takes the lock, or extends it when this token already holds it
+    private static final RedisScript<Long> LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1 end "
+                    + "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "  redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+                    + "  return 1 "
+                    + "end "
+                    + "return 0", Long.class);
+
+    // KEYS: lock  ARGV: token
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end "
+                    + "return 0", Long.class);
+
+    @Autowired
+    private RedisTemplate<String, byte[]> jobRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void add(String queue, List<byte[]> payloads, String reason, int attempts) {
+        long now = System.currentTimeMillis();
+        List<byte[]> entries = new ArrayList<>(payloads.size());
+        for (byte[] payload : payloads) {
+            entries.add(write(new DeadLetter(payload, reason, attempts, now)));
+        }
+        jobRedisTemplate.opsForList().rightPushAll(deadKey(queue), entries);
+    }
+
+    public List<DeadLetter> list(String queue, long offset, long count) {
+        List<byte[]> entries = jobRedisTemplate.opsForList().range(deadKey(queue), offset, offset + count - 1);
+        return read(entries);
+    }
+
+    // Takes the replay lock for token, or keeps it if token holds it already.
+    // False while another replay of the queue is running.
+    public boolean lockReplay(String queue, String token) {
+        Long locked = jobRedisTemplate.execute(LOCK_SCRIPT, List.of(lockKey(queue)),
+                ScriptArgs.of(token, REPLAY_LOCK_TTL_MS));
+        return locked != null && locked == 1;
+    }
+
+    public void unlockReplay(String queue, String token) {
+        jobRedisTemplate.execute(UNLOCK_SCRIPT, List.of(lockKey(queue)), ScriptArgs.of(token));
+    }
+
+    // Stages and returns up to max of the oldest dead letters. Call with the replay lock
+    // held, then replayed() once they are on the live queue or putBack() if they are not.
+    @SuppressWarnings("unchecked")
+    public List<DeadLetter> takeForReplay(String queue, int max) {
+        return read(jobRedisTemplate.execute(TAKE_SCRIPT, List.of(deadKey(queue), stagingKey(queue)),
+                ScriptArgs.of(max)));
+    }
+
+    // Drops the first count staged dead letters, now that they are on the live queue
+    public void replayed(String queue, int count) {
+        jobRedisTemplate.opsForList().trim(stagingKey(queue), count, -1);
+    }
+
+    // Returns every staged dead letter to the head, in its original order
+    public void putBack(String queue) {
+        jobRedisTemplate.execute(PUT_BACK_SCRIPT, List.of(stagingKey(queue), deadKey(queue)));
+    }
+
+    public long size(String queue) {
+        Long size = jobRedisTemplate.opsForList().size(deadKey(queue));
+        return size != null ? size : 0;
+    }
+
+    private String deadKey(String queue) {
+        return queue + ":dead";
+    }
+
+    private String stagingKey(String queue) {
+        return deadKey(queue) + ":replaying";
+    }
+
+    private String lockKey(String queue) {
+        return deadKey(queue) + ":replay-lock";
+    }
+
+    private byte[] write(DeadLetter letter) {
+        try {
+            return objectMapper.writeValueAsBytes(letter);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<DeadLetter> read(List<byte[]> entries) {
+        if (entries == null) {
+            return List.of();
+        }
+        List<DeadLetter> letters = new ArrayList<>(entries.size());
+        for (byte[] entry : entries) {
+            try {
+                letters.add(objectMapper.readValue(entry, DeadLetter.class));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return letters;
+    }
+}
@@ -0,0 +1,66 @@
+package com.gateway.queue;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+// Delayed jobs live in {<queue>}:delayed, a ZSET scored by due time (epoch ms) with the
+// payload as member, so scheduling the same job twice keeps one entry. Promotion is a
+// single script per backend: concurrent schedulers never move the same job twice.
+// The hash tag puts the set in the cluster slot of the untagged <queue> list, which Redis
+// hashes on its whole name, so the promote scripts touch a single slot.
+final class DelayedJobs {
+
+    // KEYS: delayed, queue  ARGV: now ms, limit
+    static final RedisScript<Long> PROMOTE_TO_LIST_SCRIPT = new DefaultRedisScript<>(
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2])) "
+                    + "if #due > 0 then "
+                    + "  redis.call('ZREM', KEYS[1], unpack(due)) "
+                    + "  redis.call('RPUSH', KEYS[2], unpack(due)) "
+                    + "end "
+                    + "return #due", Long.class);
+
+    // KEYS: delayed, stream  ARGV: now ms, limit, max length, field
+    // Moves only as many as the stream has room for; the rest stay delayed
+    static final RedisScript<Long> PROMOTE_TO_STREAM_SCRIPT = new DefaultRedisScript<>(
+            "local room = tonumber(ARGV[3]) - redis.call('XLEN', KEYS[2]) "
+                    + "local limit = math.min(tonumber(ARGV[2]), room) "
+                    + "if limit <= 0 then return 0 end "
+                    + "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, limit) "
+                    + "if #due > 0 then "
+                    + "  redis.call('ZREM', KEYS[1], unpack(due)) "
+                    + "  for _, job in ipairs(due) do "
+                    + "    redis.call('XADD', KEYS[2], '*', ARGV[4], job) "
+                    + "  end "
+                    + "end "
+                    + "return #due", Long.class);
+
+    // KEYS: legacy delayed, delayed
+    // Merges the set older workers scheduled into, keeping the earlier due time
+    static final RedisScript<Long> ADOPT_LEGACY_SCRIPT = new DefaultRedisScript<>(
+            "local n = redis.call('ZCARD', KEYS[1]) "
+                    + "if n > 0 then "
+                    + "  redis.call('ZUNIONSTORE', KEYS[2], 2, KEYS[2], KEYS[1], 'AGGREGATE', 'MIN') "
+                    + "  redis.call('DEL', KEYS[1]) "
+                    + "end "
+                    + "return n", Long.class);
+
+    private DelayedJobs() {
+    }
+
+    static String delayedKey(String queue) {
+        return "{" + queue + "}:delayed";
+    }
+
+    // Retries scheduled before the hash tag, or by workers of that version still running
+    // during a rollout. The EXISTS is one key; the merge only runs where the old layout
+    // could, on a single node.
+    static void adoptLegacy(RedisTemplate<String, byte[]> redis, String queue) {
+        String legacy = queue + ":delayed";
+        if (Boolean.TRUE.equals(redis.hasKey(legacy))) {
+            redis.execute(ADOPT_LEGACY_SCRIPT, List.of(legacy, delayedKey(queue)));
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.gateway.queue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Per-merchant sub-queues served deficit round robin, so one merchant's burst only
+// delays that merchant. Merchants with queued jobs sit in a ring; each turn a merchant
+// may take up to `quantum` jobs, then moves to the back. A turn cut short because a
+// poll is full continues on the next poll from any worker (the remaining deficit is
+// kept in Redis). Delivery is at-most-once, as in list mode.
+//
+// Keys per queue, all under the {<queue>} hash tag so each script touches one cluster
+// slot; the scripts get the fixed keys in KEYS and build only sub-queue names:
+//   {<queue>}:m:<merchant>  jobs of one merchant (jobs without a merchant use "_")
+//   {<queue>}:ring          merchants with jobs, head is the one being served
+//   {<queue>}:active        same merchants as a set, so each is in the ring once
+//   {<queue>}:deficit       jobs a merchant may still take in its current turn
+//   {<queue>}:size          total jobs across sub-queues
+//   {<queue>}:delayed       retries, as in the other modes but each prefixed with its merchant
+@Component
+@ConditionalOnProperty(name = "gateway.queue.mode", havingValue = "fair")
+public class FairListJobQueue implements JobQueue {
+
+    private static final String DEFAULT_KEY = "_";
+
+    // Fixed keys every script gets first, in this order:
+    // KEYS[1] ring, KEYS[2] active, KEYS[3] deficit, KEYS[4] size
+
+    // Adds a merchant's jobs and puts the merchant in the ring if it was idle.
+    // Runs inside the push and promote scripts.
+    private static final String ENQUEUE_FN = "local function enqueue(sub, m, jobs) "
+            + "  redis.call('RPUSH', sub, unpack(jobs)) "
+            + "  redis.call('INCRBY', KEYS[4], #jobs) "
+            + "  if redis.call('SADD', KEYS[2], m) == 1 then "
+            + "    redis.call('RPUSH', KEYS[1], m) "
+            + "  end "
+            + "end ";
+
+    // KEYS: fixed keys, sub-queue1, sub-queue2...
+    // ARGV: merchant1, count1, jobs1..., merchant2, count2, jobs2...
+    private static final RedisScript<Long> PUSH_SCRIPT = new DefaultRedisScript<>(ENQUEUE_FN
+            + "local i = 1 "
+            + "local sub = 5 "
+            + "local total = 0 "
+            + "while i <= #ARGV do "
+            + "  local n = tonumber(ARGV[i + 1]) "
+            + "  enqueue(KEYS[sub], ARGV[i], { unpack(ARGV, i + 2, i + 1 + n) }) "
+            + "  total = total + n "
+            + "  sub = sub + 1 "
+            + "  i = i + 2 + n "
+            + "end "
+            + "return total", Long.class);
+
+    // KEYS: fixed keys  ARGV: max, quantum, sub-queue prefix
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> POLL_SCRIPT = new DefaultRedisScript<>(
+            "local ring = KEYS[1] "
+                    + "local max = tonumber(ARGV[1]) "
+                    + "local quantum = tonumber(ARGV[2]) "
+                    + "local out = {} "
+                    + "local guard = max + redis.call('LLEN', ring) "
+                    + "while #out < max and guard > 0 do "
+                    + "  guard = guard - 1 "
+                    + "  local m = redis.call('LINDEX', ring, 0) "
+                    + "  if not m then break end "
+                    + "  local sub = ARGV[3] .. m "
+                    + "  local deficit = tonumber(redis.call('HGET', KEYS[3], m) or '0') "
+                    + "  if deficit <= 0 then deficit = quantum end "
+                    + "  local jobs = redis.call('LPOP', sub, math.min(deficit, max - #out)) "
+                    + "  if jobs then "
+                    + "    for _, job in ipairs(jobs) do table.insert(out, job) end "
+                    + "    deficit = deficit - #jobs "
+                    + "  end "
+                    + "  if redis.call('LLEN', sub) == 0 then "
+                    // Drained: leave the ring; an idle merchant does not bank credit
+                    + "    redis.call('LPOP', ring) "
+                    + "    redis.call('SREM', KEYS[2], m) "
+                    + "    redis.call('HDEL', KEYS[3], m) "
+                    + "  elseif deficit <= 0 then "
+                    + "    redis.call('LMOVE', ring, ring, 'LEFT', 'RIGHT') "
+                    + "    redis.call('HDEL', KEYS[3], m) "
+                    + "  else "
+                    + "    redis.call('HSET', KEYS[3], m, deficit) "
+                    + "  end "
+                    + "end "
+                    + "if #out > 0 then redis.call('DECRBY', KEYS[4], #out) end "
+                    + "return out", List.class);
+
+    // KEYS: fixed keys, delayed  ARGV: now ms, limit, sub-queue prefix
+    // Members are "<merchant>|<payload>"
+    private static final RedisScript<Long> PROMOTE_SCRIPT = new DefaultRedisScript<>(ENQUEUE_FN
+            + "local due = redis.call('ZRANGEBYSCORE', KEYS[5], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2])) "
+            + "if #due > 0 then "
+            + "  redis.call('ZREM', KEYS[5], unpack(due)) "
+            + "  for _, member in ipairs(due) do "
+            + "    local sep = string.find(member, '|', 1, true) "
+            + "    local m = string.sub(member, 1, sep - 1) "
+            + "    enqueue(ARGV[3] .. m, m, { string.sub(member, sep + 1) }) "
+            + "  end "
+            + "end "
+            + "return #due", Long.class);
+
+    // KEYS: ring  ARGV: sub-queue prefix
+    // Head of the merchant being served; other merchants may hold older jobs
+    private static final RedisScript<byte[]> PEEK_SCRIPT = new DefaultRedisScript<>(
+            "local m = redis.call('LINDEX', KEYS[1], 0) "
+                    + "if not m then return false end "
+                    + "return redis.call('LINDEX', ARGV[1] .. m, 0)", byte[].class);
+
+    @Autowired
+    private RedisTemplate<String, byte[]> jobRedisTemplate;
+
+    // Jobs a merchant may take per turn before the next merchant is served
+    @Value("${gateway.queue.fair.quantum:10}")
+    private int quantum;
+
+    // There is no blocking pop across sub-queues, so an empty poll re-checks at this pace
+    @Value("${gateway.queue.fair.idle-poll-ms:50}")
+    private long idlePollMs;
+
+    @Override
+    public void push(String queue, String key, byte[] payload) {
+        String merchant = keyOrDefault(key);
+        List<String> keys = fixedKeys(queue);
+        keys.add(subQueuePrefix(queue) + merchant);
+        jobRedisTemplate.execute(PUSH_SCRIPT, keys, ScriptArgs.of(merchant, 1, payload));
+    }
+
+    @Override
+    public void pushAll(String queue, List<OutgoingJob> jobs) {
+        // Consecutive jobs of the same merchant share one RPUSH
+        List<String> keys = fixedKeys(queue);
+        List<Object> args = new ArrayList<>(jobs.size() + 8);
+        int i = 0;
+        while (i < jobs.size()) {
+            String key = keyOrDefault(jobs.get(i).getKey());
+            keys.add(subQueuePrefix(queue) + key);
+            int countAt = args.size() + 1;
+            args.add(key);
+            args.add(null);
+            int n = 0;
+            while (i < jobs.size() && keyOrDefault(jobs.get(i).getKey()).equals(key)) {
+                args.add(jobs.get(i).getPayload());
+                i++;
+                n++;
+            }
+            args.set(countAt, n);
+        }
+        jobRedisTemplate.execute(PUSH_SCRIPT, keys, ScriptArgs.of(args.toArray()));
+    }
+
+    @Override
+    public void schedule(String queue, String key, byte[] payload, long dueAtMillis) {
+        byte[] prefix = ScriptArgs.bytes(keyOrDefault(key) + "|");
+        byte[] member = Arrays.copyOf(prefix, prefix.length + payload.length);
+        System.arraycopy(payload, 0, member, prefix.length, payload.length);
+        jobRedisTemplate.opsForZSet().add(delayedKey(queue), member, dueAtMillis);
+    }
+
+    @Override
+    public long delayedSize(String queue) {
+        Long size = jobRedisTemplate.opsForZSet().zCard(delayedKey(queue));
+        return size != null ? size : 0;
+    }
+
+    @Override
+    public long promoteDue(String queue, long nowMillis, int limit) {
+        List<String> keys = fixedKeys(queue);
+        keys.add(delayedKey(queue));
+        Long moved = jobRedisTemplate.execute(PROMOTE_SCRIPT, keys,
+                ScriptArgs.of(nowMillis, limit, subQueuePrefix(queue)));
+        return moved != null ? moved : 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<QueuedJob> poll(String queue, int max, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<String> keys = fixedKeys(queue);
+        while (true) {
+            List<byte[]> payloads = jobRedisTemplate.execute(POLL_SCRIPT, keys,
+                    ScriptArgs.of(max, quantum, subQueuePrefix(queue)));
+            if (payloads != null && !payloads.isEmpty()) {
+                List<QueuedJob> jobs = new ArrayList<>(payloads.size());
+                for (byte[] payload : payloads) {
+                    jobs.add(new QueuedJob(null, payload));
+                }
+                return jobs;
+            }
+            if (System.nanoTime() >= deadline) {
+                return List.of();
+            }
+            try {
+                Thread.sleep(idlePollMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return List.of();
+            }
+        }
+    }
+
+    @Override
+    public void ack(String queue, List<QueuedJob> jobs) {
+        // Nothing to confirm, the job left Redis when it was popped
+    }
+
+    @Override
+    public void extendLeases(String queue, List<QueuedJob> jobs) {
+        // No leases, popped jobs are never redelivered
+    }
+
+    @Override
+    public long size(String queue) {
+        String size = ScriptArgs.string(jobRedisTemplate.opsForValue().get(tag(queue) + ":size"));
+        return size != null ? Long.parseLong(size) : 0;
+    }
+
+    @Override
+    public byte[] peekOldest(String queue) {
+        return jobRedisTemplate.execute(PEEK_SCRIPT, List.of(tag(queue) + ":ring"),
+                ScriptArgs.of(subQueuePrefix(queue)));
+    }
+
+    private static String tag(String queue) {
+        return "{" + queue + "}";
+    }
+
+    // Mutable: scripts with more keys append theirs
+    private static List<String> fixedKeys(String queue) {
+        String tag = tag(queue);
+        return new ArrayList<>(List.of(tag + ":ring", tag + ":active", tag + ":deficit", tag + ":size"));
+    }
+
+    private static String subQueuePrefix(String queue) {
+        return tag(queue) + ":m:";
+    }
+
+    private static String delayedKey(String queue) {
+        return tag(queue) + ":delayed";
+    }
+
+    private String keyOrDefault(String key) {
+        return key != null && !key.isEmpty() ? key : DEFAULT_KEY;
+    }
+}
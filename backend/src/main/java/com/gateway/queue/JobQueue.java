@@ -0,0 +1,39 @@
+package com.gateway.queue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Transport behind JobService and WorkerRunner, selected with gateway.queue.mode
+public interface JobQueue {
+
+    // key is the merchant id the job belongs to; only the fair backend uses it
+    void push(String queue, String key, byte[] payload);
+
+    // Appends all jobs in order with a single round trip
+    void pushAll(String queue, List<OutgoingJob> jobs);
+
+    // Holds the job in {<queue>}:delayed until promoteDue moves it onto the queue
+    void schedule(String queue, String key, byte[] payload, long dueAtMillis);
+
+    // Jobs waiting in {<queue>}:delayed for their due time
+    long delayedSize(String queue);
+
+    // Moves up to limit jobs due by nowMillis onto the queue; returns how many moved
+    long promoteDue(String queue, long nowMillis, int limit);
+
+    // Blocks up to the timeout for at least one job and returns up to max jobs
+    List<QueuedJob> poll(String queue, int max, long timeout, TimeUnit unit);
+
+    // Confirms jobs finished; backends without delivery tracking ignore it
+    void ack(String queue, List<QueuedJob> jobs);
+
+    // Pushes back the visibility deadline of jobs that are still running, so a slow job
+    // is not handed to another worker; backends without delivery tracking ignore it
+    void extendLeases(String queue, List<QueuedJob> jobs);
+
+    // Jobs waiting to be picked up (not counting ones in flight)
+    long size(String queue);
+
+    // Payload of the job that has waited longest, or null when the queue is empty
+    byte[] peekOldest(String queue);
+}
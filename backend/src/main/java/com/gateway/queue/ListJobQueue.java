@@ -0,0 +1,86 @@
+package com.gateway.queue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Plain Redis lists: RPUSH / BLPOP. A job popped by a worker that dies is lost.
+@Component
+@ConditionalOnProperty(name = "gateway.queue.mode", havingValue = "list", matchIfMissing = true)
+public class ListJobQueue implements JobQueue {
+
+    @Autowired
+    private RedisTemplate<String, byte[]> jobRedisTemplate;
+
+    @Override
+    public void push(String queue, String key, byte[] payload) {
+        jobRedisTemplate.opsForList().rightPush(queue, payload);
+    }
+
+    @Override
+    public void pushAll(String queue, List<OutgoingJob> jobs) {
+        // RPUSH key v1 v2 ...
+        jobRedisTemplate.opsForList().rightPushAll(queue, OutgoingJob.payloads(jobs));
+    }
+
+    @Override
+    public void schedule(String queue, String key, byte[] payload, long dueAtMillis) {
+        jobRedisTemplate.opsForZSet().add(DelayedJobs.delayedKey(queue), payload, dueAtMillis);
+    }
+
+    @Override
+    public long delayedSize(String queue) {
+        Long size = jobRedisTemplate.opsForZSet().zCard(DelayedJobs.delayedKey(queue));
+        return size != null ? size : 0;
+    }
+
+    @Override
+    public long promoteDue(String queue, long nowMillis, int limit) {
+        DelayedJobs.adoptLegacy(jobRedisTemplate, queue);
+        Long moved = jobRedisTemplate.execute(DelayedJobs.PROMOTE_TO_LIST_SCRIPT,
+                List.of(DelayedJobs.delayedKey(queue), queue), ScriptArgs.of(nowMillis, limit));
+        return moved != null ? moved : 0;
+    }
+
+    @Override
+    public List<QueuedJob> poll(String queue, int max, long timeout, TimeUnit unit) {
+        // LPOP key count drains a backlog in one round trip; BLPOP only when the list is empty
+        List<byte[]> payloads = max > 1 ? jobRedisTemplate.opsForList().leftPop(queue, max) : null;
+        if (payloads == null || payloads.isEmpty()) {
+            byte[] payload = jobRedisTemplate.opsForList().leftPop(queue, timeout, unit);
+            payloads = payload != null ? List.of(payload) : List.of();
+        }
+
+        List<QueuedJob> jobs = new ArrayList<>(payloads.size());
+        for (byte[] payload : payloads) {
+            jobs.add(new QueuedJob(null, payload));
+        }
+        return jobs;
+    }
+
+    @Override
+    public void ack(String queue, List<QueuedJob> jobs) {
+        // Nothing to confirm, the job left Redis when it was popped
+    }
+
+    @Override
+    public void extendLeases(String queue, List<QueuedJob> jobs) {
+        // No leases, popped jobs are never redelivered
+    }
+
+    @Override
+    public long size(String queue) {
+        Long size = jobRedisTemplate.opsForList().size(queue);
+        return size != null ? size : 0;
+    }
+
+    @Override
+    public byte[] peekOldest(String queue) {
+        return jobRedisTemplate.opsForList().index(queue, 0);
+    }
+}
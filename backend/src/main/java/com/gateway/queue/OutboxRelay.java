@@ -0,0 +1,72 @@
+package com.gateway.queue;
+
+import com.gateway.models.OutboxJob;
+import com.gateway.repositories.OutboxJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Moves outbox rows to Redis. Each batch is claimed, pushed with one pushAll per queue
+// and only then committed, so a Redis failure rolls the rows back for the next run.
+// A crash between push and commit re-sends the batch (at-least-once).
+@Component
+@EnableScheduling
+@Profile("worker")
+@ConditionalOnProperty(name = "gateway.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    @Autowired
+    private OutboxJobRepository outboxJobRepository;
+
+    @Autowired
+    private JobQueue jobQueue;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${gateway.outbox.batch-size:500}")
+    private int batchSize;
+
+    // Every worker runs this; SKIP LOCKED keeps relays from waiting on each other
+    @Scheduled(fixedDelayString = "${gateway.outbox.relay-interval-ms:100}")
+    public void relay() {
+        try {
+            Integer relayed;
+            do {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            } while (relayed != null && relayed >= batchSize);
+        } catch (Exception e) {
+            logger.error("Error relaying outbox jobs", e);
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxJob> jobs = outboxJobRepository.claimBatch(batchSize);
+        if (jobs.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, List<OutgoingJob>> byQueue = new LinkedHashMap<>();
+        for (OutboxJob job : jobs) {
+            byQueue.computeIfAbsent(job.getQueueName(), q -> new ArrayList<>())
+                    .add(new OutgoingJob(job.getPartitionKey(), job.getPayload()));
+        }
+        byQueue.forEach(jobQueue::pushAll);
+        logger.debug("Relayed {} outbox jobs", jobs.size());
+        return jobs.size();
+    }
+}
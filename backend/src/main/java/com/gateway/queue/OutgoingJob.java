@@ -0,0 +1,22 @@
+package com.gateway.queue;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class OutgoingJob {
+    private String key; // Merchant id for fair queueing, null for the shared lane
+    private byte[] payload;
+
+    public static List<byte[]> payloads(List<OutgoingJob> jobs) {
+        List<byte[]> payloads = new ArrayList<>(jobs.size());
+        for (OutgoingJob job : jobs) {
+            payloads.add(job.getPayload());
+        }
+        return payloads;
+    }
+}
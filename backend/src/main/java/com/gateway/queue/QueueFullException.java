@@ -0,0 +1,14 @@
+package com.gateway.queue;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// A push the queue refused because it is at its size cap; nothing was enqueued
+public class QueueFullException extends ResponseStatusException {
+
+    private static final long serialVersionUID = 1L;
+
+    public QueueFullException(String queue, long maxLength) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Queue " + queue + " is full (" + maxLength + " jobs)");
+    }
+}
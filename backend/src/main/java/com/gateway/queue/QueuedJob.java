@@ -0,0 +1,11 @@
+package com.gateway.queue;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class QueuedJob {
+    private String id; // Backend receipt used for ack, null when not tracked
+    private byte[] payload;
+}
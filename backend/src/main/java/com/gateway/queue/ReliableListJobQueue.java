@@ -0,0 +1,262 @@
+package com.gateway.queue;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisListCommands;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// At-least-once lists. BLMOVE hands each job to a per-worker processing list and a
+// lease (ZSET scored by deadline) tracks it until ack. ReliableQueueReaper pushes
+// jobs with expired leases back onto the queue, so a killed worker loses nothing.
+// WorkerRunner extends the leases of the jobs it is still running, so the visibility
+// timeout bounds how long a dead worker holds jobs, not how long a job may take.
+//
+// Keys per queue, in one cluster slot: the queue list stays <queue>, which Redis hashes
+// on its whole name, and the keys derived from it carry the {<queue>} hash tag:
+//   {<queue>}:processing:<workerId>         jobs this worker is running
+//   {<queue>}:processing:<workerId>:leases  same jobs, scored by visibility deadline
+//   {<queue>}:consumers                     worker ids that may hold jobs
+//   {<queue>}:delayed                       retries, see DelayedJobs
+@Component
+@ConditionalOnProperty(name = "gateway.queue.mode", havingValue = "reliable")
+public class ReliableListJobQueue implements JobQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReliableListJobQueue.class);
+
+    // Deadlines use the Redis clock so worker clock skew cannot expire leases early
+    private static final String REDIS_NOW = "local t = redis.call('TIME') "
+            + "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) ";
+
+    // KEYS: leases, consumers  ARGV: visibility ms, job, worker id
+    private static final RedisScript<Long> LEASE_SCRIPT = new DefaultRedisScript<>(REDIS_NOW
+            + "redis.call('ZADD', KEYS[1], now + tonumber(ARGV[1]), ARGV[2]) "
+            + "redis.call('SADD', KEYS[2], ARGV[3]) "
+            + "return 1", Long.class);
+
+    // KEYS: queue, processing, leases, consumers  ARGV: max, visibility ms, worker id
+    // Non-blocking bulk version of BLMOVE + lease for draining a backlog
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> MOVE_BATCH_SCRIPT = new DefaultRedisScript<>(REDIS_NOW
+            + "local jobs = {} "
+            + "for i = 1, tonumber(ARGV[1]) do "
+            + "  local job = redis.call('LMOVE', KEYS[1], KEYS[2], 'LEFT', 'RIGHT') "
+            + "  if not job then break end "
+            + "  redis.call('ZADD', KEYS[3], now + tonumber(ARGV[2]), job) "
+            + "  table.insert(jobs, job) "
+            + "end "
+            + "if #jobs > 0 then redis.call('SADD', KEYS[4], ARGV[3]) end "
+            + "return jobs", List.class);
+
+    // KEYS: processing, leases  ARGV: jobs
+    private static final RedisScript<Long> ACK_SCRIPT = new DefaultRedisScript<>(
+            "local removed = 0 "
+                    + "for _, job in ipairs(ARGV) do "
+                    + "  redis.call('ZREM', KEYS[2], job) "
+                    + "  removed = removed + redis.call('LREM', KEYS[1], 1, job) "
+                    + "end "
+                    + "return removed", Long.class);
+
+    // KEYS: leases  ARGV: visibility ms, jobs...
+    // XX: jobs acked or reaped in the meantime are not leased again
+    private static final RedisScript<Long> EXTEND_SCRIPT = new DefaultRedisScript<>(REDIS_NOW
+            + "local deadline = now + tonumber(ARGV[1]) "
+            + "local extended = 0 "
+            + "for i = 2, #ARGV do "
+            + "  redis.call('ZADD', KEYS[1], 'XX', deadline, ARGV[i]) "
+            + "  if redis.call('ZSCORE', KEYS[1], ARGV[i]) then extended = extended + 1 end "
+            + "end "
+            + "return extended", Long.class);
+
+    // KEYS: processing, leases, queue, consumers  ARGV: visibility ms, limit, worker id
+    // Expired jobs go back to the head of the queue. Jobs moved by a worker that died
+    // before leasing them get a lease here, so they expire like any other.
+    private static final RedisScript<Long> REAP_SCRIPT = new DefaultRedisScript<>(REDIS_NOW
+            + "local limit = tonumber(ARGV[2]) "
+            + "local moved = 0 "
+            + "for _, job in ipairs(redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now, 'LIMIT', 0, limit)) do "
+            + "  redis.call('ZREM', KEYS[2], job) "
+            + "  if redis.call('LREM', KEYS[1], 1, job) > 0 then "
+            + "    redis.call('LPUSH', KEYS[3], job) "
+            + "    moved = moved + 1 "
+            + "  end "
+            + "end "
+            + "for _, job in ipairs(redis.call('LRANGE', KEYS[1], 0, limit - 1)) do "
+            + "  if not redis.call('ZSCORE', KEYS[2], job) then "
+            + "    redis.call('ZADD', KEYS[2], now + tonumber(ARGV[1]), job) "
+            + "  end "
+            + "end "
+            + "if redis.call('LLEN', KEYS[1]) == 0 and redis.call('ZCARD', KEYS[2]) == 0 then "
+            + "  redis.call('SREM', KEYS[4], ARGV[3]) "
+            + "end "
+            + "return moved", Long.class);
+
+    @Autowired
+    private RedisTemplate<String, byte[]> jobRedisTemplate;
+
+    @Autowired
+    private WorkerIdentity workerIdentity;
+
+    @Value("${gateway.queue.visibility-timeout-ms:60000}")
+    private long visibilityTimeoutMs;
+
+    @Value("${gateway.queue.reap-batch-size:100}")
+    private int reapBatchSize;
+
+    @PostConstruct
+    public void init() {
+        logger.info("Reliable queue mode, worker id {}", workerIdentity.getId());
+    }
+
+    @Override
+    public void push(String queue, String key, byte[] payload) {
+        jobRedisTemplate.opsForList().rightPush(queue, payload);
+    }
+
+    @Override
+    public void pushAll(String queue, List<OutgoingJob> jobs) {
+        // RPUSH key v1 v2 ...
+        jobRedisTemplate.opsForList().rightPushAll(queue, OutgoingJob.payloads(jobs));
+    }
+
+    @Override
+    public void schedule(String queue, String key, byte[] payload, long dueAtMillis) {
+        jobRedisTemplate.opsForZSet().add(DelayedJobs.delayedKey(queue), payload, dueAtMillis);
+    }
+
+    @Override
+    public long delayedSize(String queue) {
+        Long size = jobRedisTemplate.opsForZSet().zCard(DelayedJobs.delayedKey(queue));
+        return size != null ? size : 0;
+    }
+
+    @Override
+    public long promoteDue(String queue, long nowMillis, int limit) {
+        DelayedJobs.adoptLegacy(jobRedisTemplate, queue);
+        Long moved = jobRedisTemplate.execute(DelayedJobs.PROMOTE_TO_LIST_SCRIPT,
+                List.of(DelayedJobs.delayedKey(queue), queue), ScriptArgs.of(nowMillis, limit));
+        return moved != null ? moved : 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<QueuedJob> poll(String queue, int max, long timeout, TimeUnit unit) {
+        String workerId = workerIdentity.getId();
+        String processing = processingKey(queue, workerId);
+
+        if (max > 1) {
+            List<byte[]> payloads = jobRedisTemplate.execute(MOVE_BATCH_SCRIPT,
+                    List.of(queue, processing, leasesKey(queue, workerId), consumersKey(queue)),
+                    ScriptArgs.of(max, visibilityTimeoutMs, workerId));
+            if (payloads != null && !payloads.isEmpty()) {
+                List<QueuedJob> jobs = new ArrayList<>(payloads.size());
+                for (byte[] payload : payloads) {
+                    jobs.add(new QueuedJob(workerId, payload));
+                }
+                return jobs;
+            }
+        }
+
+        // Queue is empty: block on BLMOVE for the next job
+        byte[] payload = jobRedisTemplate.opsForList().move(queue, RedisListCommands.Direction.LEFT,
+                processing, RedisListCommands.Direction.RIGHT, timeout, unit);
+        if (payload == null) {
+            return List.of();
+        }
+
+        jobRedisTemplate.execute(LEASE_SCRIPT, List.of(leasesKey(queue, workerId), consumersKey(queue)),
+                ScriptArgs.of(visibilityTimeoutMs, payload, workerId));
+        return List.of(new QueuedJob(workerId, payload));
+    }
+
+    @Override
+    public void ack(String queue, List<QueuedJob> jobs) {
+        Map<String, List<byte[]>> byWorker = new HashMap<>();
+        for (QueuedJob job : jobs) {
+            byWorker.computeIfAbsent(job.getId(), id -> new ArrayList<>()).add(job.getPayload());
+        }
+        byWorker.forEach((worker, payloads) -> jobRedisTemplate.execute(ACK_SCRIPT,
+                List.of(processingKey(queue, worker), leasesKey(queue, worker)), payloads.toArray()));
+    }
+
+    @Override
+    public void extendLeases(String queue, List<QueuedJob> jobs) {
+        Map<String, List<Object>> byWorker = new HashMap<>();
+        for (QueuedJob job : jobs) {
+            byWorker.computeIfAbsent(job.getId(), id -> new ArrayList<>(List.of(visibilityTimeoutMs)))
+                    .add(job.getPayload());
+        }
+        byWorker.forEach((worker, args) -> jobRedisTemplate.execute(EXTEND_SCRIPT,
+                List.of(leasesKey(queue, worker)), ScriptArgs.of(args.toArray())));
+    }
+
+    @Override
+    public long size(String queue) {
+        Long size = jobRedisTemplate.opsForList().size(queue);
+        return size != null ? size : 0;
+    }
+
+    @Override
+    public byte[] peekOldest(String queue) {
+        return jobRedisTemplate.opsForList().index(queue, 0);
+    }
+
+    // Returns how many jobs went back onto the queue
+    public long reapExpired(String queue) {
+        return reap(queue, tag(queue)) + reap(queue, queue);
+    }
+
+    // Keys under `prefix`; the untagged prefix holds jobs leased by workers from before the
+    // hash tag, which only ran on a single node. Their consumer set empties as they are
+    // acked or reaped.
+    private long reap(String queue, String prefix) {
+        String consumersKey = prefix + ":consumers";
+        Set<byte[]> consumers = jobRedisTemplate.opsForSet().members(consumersKey);
+        if (consumers == null) {
+            return 0;
+        }
+
+        long requeued = 0;
+        for (byte[] member : consumers) {
+            String consumer = ScriptArgs.string(member);
+            String processing = prefix + ":processing:" + consumer;
+            Long moved = jobRedisTemplate.execute(REAP_SCRIPT,
+                    List.of(processing, processing + ":leases", queue, consumersKey),
+                    ScriptArgs.of(visibilityTimeoutMs, reapBatchSize, consumer));
+            if (moved != null && moved > 0) {
+                logger.warn("Requeued {} expired jobs from {} on {}", moved, consumer, queue);
+                requeued += moved;
+            }
+        }
+        return requeued;
+    }
+
+    private static String tag(String queue) {
+        return "{" + queue + "}";
+    }
+
+    private String processingKey(String queue, String worker) {
+        return tag(queue) + ":processing:" + worker;
+    }
+
+    private String leasesKey(String queue, String worker) {
+        return processingKey(queue, worker) + ":leases";
+    }
+
+    private String consumersKey(String queue) {
+        return tag(queue) + ":consumers";
+    }
+}
@@ -0,0 +1,36 @@
+package com.gateway.queue;
+
+import com.gateway.services.JobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@EnableScheduling
+@Profile("worker")
+@ConditionalOnProperty(name = "gateway.queue.mode", havingValue = "reliable")
+public class ReliableQueueReaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReliableQueueReaper.class);
+
+    @Autowired
+    private ReliableListJobQueue jobQueue;
+
+    // Every worker runs this; the Lua script makes concurrent reaps safe
+    @Scheduled(fixedDelayString = "${gateway.queue.reaper-interval-ms:5000}")
+    public void reap() {
+        for (String queue : new String[] { JobService.QUEUE_PAYMENTS, JobService.QUEUE_WEBHOOKS,
+                JobService.QUEUE_REFUNDS }) {
+            try {
+                jobQueue.reapExpired(queue);
+            } catch (Exception e) {
+                logger.error("Error reaping queue " + queue, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.gateway.queue;
+
+import java.nio.charset.StandardCharsets;
+
+// Script arguments for the byte[] job template: payloads pass through, everything else
+// (counts, timestamps, worker ids) is sent as its UTF-8 string form
+final class ScriptArgs {
+
+    private ScriptArgs() {
+    }
+
+    static Object[] of(Object... values) {
+        Object[] args = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            args[i] = bytes(values[i]);
+        }
+        return args;
+    }
+
+    static byte[] bytes(Object value) {
+        if (value instanceof byte[] raw) {
+            return raw;
+        }
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String string(byte[] value) {
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+}
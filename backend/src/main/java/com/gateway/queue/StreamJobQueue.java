@@ -0,0 +1,315 @@
+package com.gateway.queue;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.Range;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Redis Streams with one consumer group shared by all workers. Each worker reads as
+// its own consumer (XREADGROUP ... COUNT n), acks with XACK + XDEL, and periodically
+// XAUTOCLAIMs entries another consumer left pending past the visibility timeout.
+// WorkerRunner re-claims the entries it is still running, so only a consumer that
+// stopped (not a slow job) loses its entries.
+// Streams are never trimmed, since trimming drops entries whether or not they were
+// processed. Acked entries are deleted, so the length is the backlog plus jobs in flight,
+// and pushes that would take it past max-length are refused with QueueFullException.
+// Due retries stay in the delayed set until there is room.
+//
+// Keys per queue:
+//   <queue>:stream   the stream itself (separate from the list key used by other modes)
+@Component
+@ConditionalOnProperty(name = "gateway.queue.mode", havingValue = "stream")
+public class StreamJobQueue implements JobQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamJobQueue.class);
+
+    private static final String FIELD_JOB = "job";
+    private static final byte[] JOB_FIELD_BYTES = FIELD_JOB.getBytes(StandardCharsets.UTF_8);
+
+    // KEYS: stream  ARGV: group, consumer, min idle ms, start id, count
+    // Flattens the XAUTOCLAIM reply to {cursor, id1, job1, id2, job2, ...} and skips
+    // entries that were deleted while pending.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local r = redis.call('XAUTOCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[3], ARGV[4], 'COUNT', ARGV[5]) "
+                    + "local out = { r[1] } "
+                    + "for _, e in ipairs(r[2]) do "
+                    + "  if type(e) == 'table' and type(e[2]) == 'table' then "
+                    + "    for i = 1, #e[2], 2 do "
+                    + "      if e[2][i] == '" + FIELD_JOB + "' then "
+                    + "        table.insert(out, e[1]) "
+                    + "        table.insert(out, e[2][i + 1]) "
+                    + "      end "
+                    + "    end "
+                    + "  end "
+                    + "end "
+                    + "return out", List.class);
+
+    // KEYS: stream  ARGV: group, ids...
+    // One round trip on the shared connection; entries are deleted once acked
+    private static final RedisScript<Long> ACK_SCRIPT = new DefaultRedisScript<>(
+            "local ids = { unpack(ARGV, 2) } "
+                    + "redis.call('XACK', KEYS[1], ARGV[1], unpack(ids)) "
+                    + "return redis.call('XDEL', KEYS[1], unpack(ids))", Long.class);
+
+    // KEYS: stream  ARGV: group, consumer, ids...
+    // Re-claiming resets an entry's idle time, so XAUTOCLAIM leaves it alone. Only entries
+    // still pending for this consumer: acked ones are gone, and one another consumer took
+    // over stays with it.
+    private static final RedisScript<Long> EXTEND_SCRIPT = new DefaultRedisScript<>(
+            "local extended = 0 "
+                    + "for i = 3, #ARGV do "
+                    + "  local p = redis.call('XPENDING', KEYS[1], ARGV[1], ARGV[i], ARGV[i], 1, ARGV[2]) "
+                    + "  if #p > 0 then "
+                    + "    redis.call('XCLAIM', KEYS[1], ARGV[1], ARGV[2], 0, ARGV[i], 'JUSTID') "
+                    + "    extended = extended + 1 "
+                    + "  end "
+                    + "end "
+                    + "return extended", Long.class);
+
+    // KEYS: stream  ARGV: max length, jobs...
+    // All or nothing: returns -1 without adding anything when the jobs do not fit
+    private static final RedisScript<Long> PUSH_ALL_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('XLEN', KEYS[1]) + #ARGV - 1 > tonumber(ARGV[1]) then return -1 end "
+                    + "for i = 2, #ARGV do "
+                    + "  redis.call('XADD', KEYS[1], '*', '" + FIELD_JOB + "', ARGV[i]) "
+                    + "end "
+                    + "return #ARGV - 1", Long.class);
+
+    @Autowired
+    private RedisTemplate<String, byte[]> jobRedisTemplate;
+
+    @Autowired
+    private WorkerIdentity workerIdentity;
+
+    @Value("${gateway.queue.stream.group:workers}")
+    private String group;
+
+    @Value("${gateway.queue.stream.max-length:1000000}")
+    private long maxLength;
+
+    @Value("${gateway.queue.visibility-timeout-ms:60000}")
+    private long visibilityTimeoutMs;
+
+    @Value("${gateway.queue.reaper-interval-ms:5000}")
+    private long claimIntervalMs;
+
+    private final Set<String> streamsWithGroup = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> claimCursors = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastClaimAt = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        logger.info("Stream queue mode, group {} consumer {}", group, workerIdentity.getId());
+    }
+
+    @Override
+    public void push(String queue, String key, byte[] payload) {
+        pushAll(queue, List.of(new OutgoingJob(key, payload)));
+    }
+
+    @Override
+    public void pushAll(String queue, List<OutgoingJob> jobs) {
+        Object[] args = new Object[jobs.size() + 1];
+        args[0] = maxLength;
+        for (int i = 0; i < jobs.size(); i++) {
+            args[i + 1] = jobs.get(i).getPayload();
+        }
+        Long added = jobRedisTemplate.execute(PUSH_ALL_SCRIPT, List.of(streamKey(queue)), ScriptArgs.of(args));
+        if (added != null && added < 0) {
+            logger.error("Stream {} is at its max length {}; refused {} jobs", streamKey(queue), maxLength, jobs.size());
+            throw new QueueFullException(queue, maxLength);
+        }
+    }
+
+    @Override
+    public void schedule(String queue, String key, byte[] payload, long dueAtMillis) {
+        jobRedisTemplate.opsForZSet().add(DelayedJobs.delayedKey(queue), payload, dueAtMillis);
+    }
+
+    @Override
+    public long delayedSize(String queue) {
+        Long size = jobRedisTemplate.opsForZSet().zCard(DelayedJobs.delayedKey(queue));
+        return size != null ? size : 0;
+    }
+
+    @Override
+    public long promoteDue(String queue, long nowMillis, int limit) {
+        DelayedJobs.adoptLegacy(jobRedisTemplate, queue);
+        Long moved = jobRedisTemplate.execute(DelayedJobs.PROMOTE_TO_STREAM_SCRIPT,
+                List.of(DelayedJobs.delayedKey(queue), streamKey(queue)),
+                ScriptArgs.of(nowMillis, limit, maxLength, FIELD_JOB));
+        return moved != null ? moved : 0;
+    }
+
+    @Override
+    public List<QueuedJob> poll(String queue, int max, long timeout, TimeUnit unit) {
+        String stream = streamKey(queue);
+        ensureGroup(stream);
+
+        try {
+            List<QueuedJob> claimed = claimStale(stream, max);
+            if (!claimed.isEmpty()) {
+                return claimed;
+            }
+
+            StreamReadOptions options = StreamReadOptions.empty().count(max)
+                    .block(Duration.ofMillis(unit.toMillis(timeout)));
+            // xReadGroup takes generic varargs; Java cannot create that array without an unchecked cast
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            StreamOffset<byte[]>[] offsets = new StreamOffset[] {
+                    StreamOffset.create(bytes(stream), ReadOffset.lastConsumed()) };
+            List<ByteRecord> records = jobRedisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                    connection.streamCommands().xReadGroup(Consumer.from(group, workerIdentity.getId()), options,
+                            offsets));
+
+            List<QueuedJob> jobs = new ArrayList<>();
+            if (records != null) {
+                for (ByteRecord record : records) {
+                    jobs.add(new QueuedJob(record.getId().getValue(), jobField(record.getValue())));
+                }
+            }
+            return jobs;
+        } catch (DataAccessException e) {
+            // Stream or group deleted underneath us (e.g. FLUSHALL); recreate on next poll
+            if (isError(e, "NOGROUP")) {
+                streamsWithGroup.remove(stream);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void ack(String queue, List<QueuedJob> jobs) {
+        Object[] args = new Object[jobs.size() + 1];
+        args[0] = group;
+        for (int i = 0; i < jobs.size(); i++) {
+            args[i + 1] = jobs.get(i).getId();
+        }
+        jobRedisTemplate.execute(ACK_SCRIPT, List.of(streamKey(queue)), ScriptArgs.of(args));
+    }
+
+    @Override
+    public void extendLeases(String queue, List<QueuedJob> jobs) {
+        Object[] args = new Object[jobs.size() + 2];
+        args[0] = group;
+        args[1] = workerIdentity.getId();
+        for (int i = 0; i < jobs.size(); i++) {
+            args[i + 2] = jobs.get(i).getId();
+        }
+        jobRedisTemplate.execute(EXTEND_SCRIPT, List.of(streamKey(queue)), ScriptArgs.of(args));
+    }
+
+    @Override
+    public long size(String queue) {
+        // Includes entries delivered but not yet acked
+        Long size = jobRedisTemplate.execute((RedisCallback<Long>) connection -> connection.streamCommands()
+                .xLen(bytes(streamKey(queue))));
+        return size != null ? size : 0;
+    }
+
+    @Override
+    public byte[] peekOldest(String queue) {
+        // Acked entries are deleted, so the first entry is the oldest unfinished job
+        List<ByteRecord> first = jobRedisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                connection.streamCommands().xRange(bytes(streamKey(queue)), Range.unbounded(), Limit.limit().count(1)));
+        return first != null && !first.isEmpty() ? jobField(first.get(0).getValue()) : null;
+    }
+
+    // Takes over entries whose consumer stopped acking, at most once per claim interval
+    @SuppressWarnings("unchecked")
+    private List<QueuedJob> claimStale(String stream, int max) {
+        long now = System.currentTimeMillis();
+        Long last = lastClaimAt.get(stream);
+        if (last != null && now - last < claimIntervalMs) {
+            return List.of();
+        }
+        lastClaimAt.put(stream, now);
+
+        List<byte[]> reply = jobRedisTemplate.execute(CLAIM_SCRIPT, List.of(stream), ScriptArgs.of(group,
+                workerIdentity.getId(), visibilityTimeoutMs, claimCursors.getOrDefault(stream, "0-0"), max));
+        if (reply == null || reply.isEmpty()) {
+            return List.of();
+        }
+
+        claimCursors.put(stream, ScriptArgs.string(reply.get(0)));
+        List<QueuedJob> jobs = new ArrayList<>();
+        for (int i = 1; i + 1 < reply.size(); i += 2) {
+            jobs.add(new QueuedJob(ScriptArgs.string(reply.get(i)), reply.get(i + 1)));
+        }
+        if (!jobs.isEmpty()) {
+            logger.warn("Claimed {} stale entries on {}", jobs.size(), stream);
+            // More stale entries may follow right behind this page
+            lastClaimAt.remove(stream);
+        }
+        return jobs;
+    }
+
+    private void ensureGroup(String stream) {
+        if (streamsWithGroup.contains(stream)) {
+            return;
+        }
+        try {
+            // Offset 0 so entries added before the first worker started are not skipped
+            jobRedisTemplate.execute((RedisCallback<String>) connection -> createGroup(connection, stream));
+        } catch (DataAccessException e) {
+            if (!isError(e, "BUSYGROUP")) {
+                throw e;
+            }
+        }
+        streamsWithGroup.add(stream);
+    }
+
+    private String createGroup(RedisConnection connection, String stream) {
+        return connection.streamCommands().xGroupCreate(bytes(stream), group, ReadOffset.from("0"), true);
+    }
+
+    private boolean isError(DataAccessException e, String code) {
+        String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        return message != null && message.contains(code);
+    }
+
+    private String streamKey(String queue) {
+        return queue + ":stream";
+    }
+
+    private byte[] jobField(Map<byte[], byte[]> fields) {
+        for (Map.Entry<byte[], byte[]> field : fields.entrySet()) {
+            if (Arrays.equals(field.getKey(), JOB_FIELD_BYTES)) {
+                return field.getValue();
+            }
+        }
+        return null;
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,28 @@
+package com.gateway.queue;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+// Stable name of this process for per-worker queue state (processing lists, stream consumers)
+@Component
+public class WorkerIdentity {
+
+    @Value("${gateway.worker.id:}")
+    private String configuredWorkerId;
+
+    private String id;
+
+    @PostConstruct
+    public void init() {
+        id = configuredWorkerId == null || configuredWorkerId.isBlank()
+                ? UUID.randomUUID().toString()
+                : configuredWorkerId;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,27 @@
+package com.gateway.repositories;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BatchUpdates {
+
+    private BatchUpdates() {
+    }
+
+    // The items whose row a JdbcTemplate batch update changed, given its per-batch counts.
+    // A driver that reports SUCCESS_NO_INFO is taken at its word that the row changed.
+    static <T> List<T> applied(List<T> items, int[][] counts) {
+        List<T> applied = new ArrayList<>(items.size());
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    applied.add(items.get(i));
+                }
+                i++;
+            }
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,23 @@
+package com.gateway.repositories;
+
+import com.gateway.models.OutboxJob;
+import com.gateway.queue.OutgoingJob;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxJobRepositoryCustom {
+
+    // Jobs for one queue not yet relayed, and when the oldest was written (null when none)
+    record Backlog(long jobs, LocalDateTime oldestCreatedAt) {
+    }
+
+    // Inserts the jobs for one queue as a single JDBC batch
+    void insertAll(String queueName, List<OutgoingJob> jobs);
+
+    // Deletes and returns up to limit of the oldest jobs, skipping rows another relay holds.
+    // Must run in a transaction; rolling it back puts the jobs back.
+    List<OutboxJob> claimBatch(int limit);
+
+    Backlog backlog(String queueName);
+}
@@ -0,0 +1,60 @@
+package com.gateway.repositories;
+
+import com.gateway.models.OutboxJob;
+import com.gateway.queue.OutgoingJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+public class OutboxJobRepositoryImpl implements OutboxJobRepositoryCustom {
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_jobs (queue_name, partition_key, payload, "
+            + "created_at) VALUES (?, ?, ?, ?)";
+
+    // Postgres: claim and delete in one statement; concurrent relays get disjoint rows
+    private static final String CLAIM_SQL = "DELETE FROM outbox_jobs WHERE id IN ("
+            + "SELECT id FROM outbox_jobs ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) "
+            + "RETURNING id, queue_name, partition_key, payload, created_at";
+
+    private static final String BACKLOG_SQL = "SELECT COUNT(*), MIN(created_at) FROM outbox_jobs WHERE queue_name = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(String queueName, List<OutgoingJob> jobs) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, jobs, jobs.size(), (ps, job) -> {
+            ps.setString(1, queueName);
+            ps.setString(2, job.getKey());
+            ps.setBytes(3, job.getPayload());
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    @Override
+    public List<OutboxJob> claimBatch(int limit) {
+        List<OutboxJob> jobs = jdbcTemplate.query(CLAIM_SQL, (rs, row) -> OutboxJob.builder()
+                .id(rs.getLong("id"))
+                .queueName(rs.getString("queue_name"))
+                .partitionKey(rs.getString("partition_key"))
+                .payload(rs.getBytes("payload"))
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .build(), limit);
+        // RETURNING order is unspecified; keep enqueue order
+        jobs.sort(Comparator.comparing(OutboxJob::getId));
+        return jobs;
+    }
+
+    @Override
+    public Backlog backlog(String queueName) {
+        return jdbcTemplate.queryForObject(BACKLOG_SQL, (rs, row) -> {
+            Timestamp oldest = rs.getTimestamp(2);
+            return new Backlog(rs.getLong(1), oldest != null ? oldest.toLocalDateTime() : null);
+        }, queueName);
+    }
+}
@@ -8,7 +8,7 @@ import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, String> {
+public interface PaymentRepository extends JpaRepository<Payment, String>, PaymentRepositoryCustom {
     List<Payment> findByOrderId(String orderId);
 
     List<Payment> findByMerchantId(UUID merchantId);
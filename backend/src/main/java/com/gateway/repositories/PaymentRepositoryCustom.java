@@ -0,0 +1,11 @@
+package com.gateway.repositories;
+
+import com.gateway.models.Payment;
+
+import java.util.List;
+
+public interface PaymentRepositoryCustom {
+    // Settles many pending payments as one JDBC batch: writes their status/error fields
+    // and returns those that were still pending, so a duplicate job settles nothing
+    List<Payment> batchUpdateStatus(List<Payment> payments);
+}
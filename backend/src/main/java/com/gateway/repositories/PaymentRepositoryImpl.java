@@ -0,0 +1,29 @@
+package com.gateway.repositories;
+
+import com.gateway.models.Payment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public class PaymentRepositoryImpl implements PaymentRepositoryCustom {
+
+    private static final String UPDATE_STATUS_SQL = "UPDATE payments SET status = ?, error_code = ?, "
+            + "error_description = ?, updated_at = ? WHERE id = ? AND status = 'pending'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Payment> batchUpdateStatus(List<Payment> payments) {
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, payments, payments.size(), (ps, payment) -> {
+            ps.setString(1, payment.getStatus());
+            ps.setString(2, payment.getErrorCode());
+            ps.setString(3, payment.getErrorDescription());
+            ps.setTimestamp(4, Timestamp.valueOf(payment.getUpdatedAt()));
+            ps.setString(5, payment.getId());
+        });
+        return BatchUpdates.applied(payments, counts);
+    }
+}
@@ -8,7 +8,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface RefundRepository extends JpaRepository<Refund, String> {
+public interface RefundRepository extends JpaRepository<Refund, String>, RefundRepositoryCustom {
     List<Refund> findByPaymentId(String paymentId);
 
     @Query("SELECT SUM(r.amount) FROM Refund r WHERE r.paymentId = ?1 AND r.status IN ('processed', 'pending')")
@@ -0,0 +1,11 @@
+package com.gateway.repositories;
+
+import com.gateway.models.Refund;
+
+import java.util.List;
+
+public interface RefundRepositoryCustom {
+    // Processes many pending refunds as one JDBC batch: writes status/processed_at and
+    // returns those that were still pending, so a duplicate job processes nothing
+    List<Refund> batchUpdateStatus(List<Refund> refunds);
+}
@@ -0,0 +1,26 @@
+package com.gateway.repositories;
+
+import com.gateway.models.Refund;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public class RefundRepositoryImpl implements RefundRepositoryCustom {
+
+    private static final String UPDATE_STATUS_SQL = "UPDATE refunds SET status = ?, processed_at = ? WHERE id = ? AND status = 'pending'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Refund> batchUpdateStatus(List<Refund> refunds) {
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, refunds, refunds.size(), (ps, refund) -> {
+            ps.setString(1, refund.getStatus());
+            ps.setTimestamp(2, refund.getProcessedAt() != null ? Timestamp.valueOf(refund.getProcessedAt()) : null);
+            ps.setString(3, refund.getId());
+        });
+        return BatchUpdates.applied(refunds, counts);
+    }
+}
@@ -0,0 +1,15 @@
+package com.gateway.repositories;
+
+import com.gateway.models.WebhookEndpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface WebhookEndpointRepository extends JpaRepository<WebhookEndpoint, UUID> {
+    List<WebhookEndpoint> findByMerchantId(UUID merchantId);
+
+    long countByMerchantId(UUID merchantId);
+}
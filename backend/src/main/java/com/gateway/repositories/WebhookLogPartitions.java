@@ -0,0 +1,213 @@
+package com.gateway.repositories;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Owns the webhook_logs table on PostgreSQL: one range partition per month of created_at,
+// made premake-months ahead, and whole partitions dropped once past retention-months.
+// The retry scan and the merchant log view only touch recent partitions, and their
+// indexes stay the size of the live months instead of growing forever.
+//
+// payload uses lz4 where the server supports it. TOAST compresses values past ~2 kB,
+// so large payloads are stored compressed and small ones stay inline.
+//
+// Runs at startup on every node, after schema.sql and before Hibernate, which then finds
+// the table in place; the worker (which has scheduling enabled) repeats it daily. A
+// pre-partitioning webhook_logs table is converted on first start: it is renamed to
+// webhook_logs_unpartitioned and its rows within retention are copied over. H2 (tests)
+// keeps the plain table Hibernate creates.
+@Component
+@DependsOnDatabaseInitialization
+public class WebhookLogPartitions {
+
+    @Component
+    static class BeforeHibernate extends EntityManagerFactoryDependsOnPostProcessor {
+        BeforeHibernate() {
+            super(WebhookLogPartitions.class);
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookLogPartitions.class);
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String PARTITION_PREFIX = "webhook_logs_p";
+
+    // Serializes maintenance across nodes starting together
+    private static final long LOCK_KEY = 0x5745424C4F47L;
+
+    private static final String CREATE_PARENT_SQL = "CREATE TABLE IF NOT EXISTS webhook_logs ("
+            + "id UUID NOT NULL, "
+            + "merchant_id UUID NOT NULL REFERENCES merchants(id), "
+            + "endpoint_id UUID, "
+            + "event VARCHAR(50) NOT NULL, "
+            + "payload TEXT NOT NULL, "
+            + "status VARCHAR(20) NOT NULL DEFAULT 'pending', "
+            + "attempts INTEGER NOT NULL DEFAULT 0, "
+            + "last_attempt_at TIMESTAMP, "
+            + "next_retry_at TIMESTAMP, "
+            + "response_code INTEGER, "
+            + "response_body TEXT, "
+            + "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+            + "PRIMARY KEY (id, created_at)"
+            + ") PARTITION BY RANGE (created_at)";
+
+    // Only pending rows are ever scanned for retries
+    private static final String CREATE_RETRY_INDEX_SQL = "CREATE INDEX IF NOT EXISTS idx_webhook_logs_retry "
+            + "ON webhook_logs (next_retry_at) WHERE status = 'pending'";
+
+    private static final String CREATE_MERCHANT_INDEX_SQL = "CREATE INDEX IF NOT EXISTS idx_webhook_logs_merchant "
+            + "ON webhook_logs (merchant_id, created_at DESC)";
+
+    private static final String COPY_LEGACY_SQL = "INSERT INTO webhook_logs (id, merchant_id, event, payload, "
+            + "status, attempts, last_attempt_at, next_retry_at, response_code, response_body, created_at) "
+            + "SELECT id, merchant_id, event, payload::text, COALESCE(status, 'pending'), COALESCE(attempts, 0), "
+            + "last_attempt_at, next_retry_at, response_code, LEFT(response_body, ?), "
+            + "COALESCE(created_at, CURRENT_TIMESTAMP) "
+            + "FROM webhook_logs_unpartitioned WHERE COALESCE(created_at, CURRENT_TIMESTAMP) >= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${gateway.webhook.log.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gateway.webhook.log.retention-months:3}")
+    private int retentionMonths;
+
+    @Value("${gateway.webhook.log.premake-months:2}")
+    private int premakeMonths;
+
+    @Value("${gateway.webhook.log.max-response-body-chars:1024}")
+    private int maxResponseBodyChars;
+
+    private boolean postgres;
+    // Plain JDBC transactions: the JPA transaction manager does not exist yet
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        postgres = "PostgreSQL".equals(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+        maintain();
+    }
+
+    @Scheduled(cron = "${gateway.webhook.log.maintenance-cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!enabled || !postgres) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + LOCK_KEY + ")");
+                YearMonth now = YearMonth.now();
+                YearMonth oldestKept = now.minusMonths(retentionMonths);
+                String relkind = jdbcTemplate.query(
+                        "SELECT relkind::text FROM pg_class WHERE oid = to_regclass('webhook_logs')",
+                        rs -> rs.next() ? rs.getString(1) : null);
+                if ("r".equals(relkind)) {
+                    convertLegacy(oldestKept);
+                } else {
+                    createParent();
+                }
+                YearMonth last = now.plusMonths(premakeMonths);
+                for (YearMonth month = now; !month.isAfter(last); month = month.plusMonths(1)) {
+                    createPartition(month);
+                }
+                dropBefore(oldestKept);
+            });
+        } catch (Exception e) {
+            logger.error("Webhook log partition maintenance failed", e);
+        }
+    }
+
+    private void createParent() {
+        jdbcTemplate.execute(CREATE_PARENT_SQL);
+        // Added after partitioning shipped; reaches every partition
+        jdbcTemplate.execute("ALTER TABLE webhook_logs ADD COLUMN IF NOT EXISTS endpoint_id UUID");
+        jdbcTemplate.execute(CREATE_RETRY_INDEX_SQL);
+        jdbcTemplate.execute(CREATE_MERCHANT_INDEX_SQL);
+        if (lz4Available()) {
+            jdbcTemplate.execute("ALTER TABLE webhook_logs ALTER COLUMN payload SET COMPRESSION lz4");
+        }
+    }
+
+    private void convertLegacy(YearMonth oldestKept) {
+        jdbcTemplate.execute("ALTER TABLE webhook_logs RENAME TO webhook_logs_unpartitioned");
+        // Index-backed constraint names are schema-wide; free the ones the new table needs
+        List<String> constraints = jdbcTemplate.queryForList("SELECT conname FROM pg_constraint "
+                + "WHERE conrelid = 'webhook_logs_unpartitioned'::regclass AND contype IN ('p', 'u')", String.class);
+        for (String name : constraints) {
+            if (name.startsWith("webhook_logs_")) {
+                jdbcTemplate.execute("ALTER TABLE webhook_logs_unpartitioned RENAME CONSTRAINT " + name
+                        + " TO " + name.replaceFirst("^webhook_logs_", "webhook_logs_unpartitioned_"));
+            }
+        }
+        createParent();
+
+        LocalDate earliest = jdbcTemplate.queryForObject(
+                "SELECT CAST(MIN(created_at) AS DATE) FROM webhook_logs_unpartitioned", LocalDate.class);
+        YearMonth first = earliest != null && YearMonth.from(earliest).isAfter(oldestKept)
+                ? YearMonth.from(earliest) : oldestKept;
+        for (YearMonth month = first; month.isBefore(YearMonth.now()); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+        createPartition(YearMonth.now());
+
+        int copied = jdbcTemplate.update(COPY_LEGACY_SQL, maxResponseBodyChars, oldestKept.atDay(1).atStartOfDay());
+        if (earliest == null) {
+            jdbcTemplate.execute("DROP TABLE webhook_logs_unpartitioned");
+            logger.info("Converted empty webhook_logs to a partitioned table");
+        } else {
+            logger.warn("Converted webhook_logs to a partitioned table and copied {} rows; the old rows remain "
+                    + "in webhook_logs_unpartitioned, which can be dropped", copied);
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        String name = PARTITION_PREFIX + month.format(SUFFIX);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF webhook_logs FOR VALUES FROM ('"
+                + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        if (lz4Available()) {
+            jdbcTemplate.execute("ALTER TABLE " + name + " ALTER COLUMN payload SET COMPRESSION lz4");
+        }
+    }
+
+    private void dropBefore(YearMonth oldestKept) {
+        List<String> partitions = jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'webhook_logs'::regclass", String.class);
+        String cutoff = PARTITION_PREFIX + oldestKept.format(SUFFIX);
+        for (String name : partitions) {
+            // yyyyMM suffixes sort by month
+            if (name.matches(PARTITION_PREFIX + "\\d{6}") && name.compareTo(cutoff) < 0) {
+                jdbcTemplate.execute("DROP TABLE " + name);
+                logger.info("Dropped webhook log partition {} (retention {} months)", name, retentionMonths);
+            }
+        }
+    }
+
+    private boolean lz4Available() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM pg_settings "
+                + "WHERE name = 'default_toast_compression' AND 'lz4' = ANY(enumvals))", Boolean.class));
+    }
+}
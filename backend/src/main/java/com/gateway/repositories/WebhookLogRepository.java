@@ -4,15 +4,17 @@ import com.gateway.models.WebhookLog;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface WebhookLogRepository extends JpaRepository<WebhookLog, UUID> {
+public interface WebhookLogRepository extends JpaRepository<WebhookLog, UUID>, WebhookLogRepositoryCustom {
     Page<WebhookLog> findByMerchantId(UUID merchantId, Pageable pageable);
 
-    List<WebhookLog> findByStatusAndNextRetryAtBefore(String status, LocalDateTime timestamp);
+    // Creation time of the oldest event still waiting for a retry; reads only pending rows
+    @Query("SELECT MIN(w.createdAt) FROM WebhookLog w WHERE w.status = 'pending' AND w.nextRetryAt IS NOT NULL")
+    LocalDateTime findOldestPendingCreatedAt();
 }
@@ -0,0 +1,20 @@
+package com.gateway.repositories;
+
+import com.gateway.models.WebhookLog;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface WebhookLogRepositoryCustom {
+    // Inserts new logs (ids already assigned) as a single JDBC batch
+    void insertAll(List<WebhookLog> logs);
+
+    // Writes the delivery-attempt fields of existing logs as a single JDBC batch. The logs
+    // must carry their created_at, which locates the partition.
+    void updateAttempts(List<WebhookLog> logs);
+
+    // Claims up to limit pending logs whose retry was due before `before`: moves their
+    // next_retry_at to now and returns them. Rows another node is claiming are skipped,
+    // so concurrent sweeps get disjoint rows.
+    List<WebhookLog> claimStrandedRetries(LocalDateTime before, int limit);
+}
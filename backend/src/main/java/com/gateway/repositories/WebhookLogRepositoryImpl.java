@@ -0,0 +1,85 @@
+package com.gateway.repositories;
+
+import com.gateway.models.WebhookLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public class WebhookLogRepositoryImpl implements WebhookLogRepositoryCustom {
+
+    private static final String INSERT_SQL = "INSERT INTO webhook_logs (id, merchant_id, event, payload, status, "
+            + "attempts, last_attempt_at, next_retry_at, response_code, response_body, created_at, endpoint_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // created_at is the partition key: with it the update goes to one partition's primary
+    // key instead of probing every live partition for the id
+    private static final String UPDATE_SQL = "UPDATE webhook_logs SET status = ?, attempts = ?, "
+            + "last_attempt_at = ?, next_retry_at = ?, response_code = ?, response_body = ? "
+            + "WHERE id = ? AND created_at = ?";
+
+    // Postgres: select, lock and bump in one statement. The outer conditions are checked
+    // again on the locked rows, so a row whose retry moved meanwhile is left alone. The
+    // literal status lets the subquery use the partial pending-retry index.
+    private static final String CLAIM_STRANDED_SQL = "UPDATE webhook_logs SET next_retry_at = ? "
+            + "WHERE (id, created_at) IN (SELECT id, created_at FROM webhook_logs WHERE status = 'pending' "
+            + "AND next_retry_at < ? ORDER BY next_retry_at LIMIT ? FOR UPDATE SKIP LOCKED) "
+            + "AND status = 'pending' AND next_retry_at < ? "
+            + "RETURNING id, merchant_id, event, payload, endpoint_id, created_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<WebhookLog> logs) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, logs, logs.size(), (ps, log) -> {
+            ps.setObject(1, log.getId());
+            ps.setObject(2, log.getMerchantId());
+            ps.setString(3, log.getEvent());
+            ps.setString(4, log.getPayload());
+            ps.setString(5, log.getStatus());
+            ps.setInt(6, log.getAttempts());
+            ps.setTimestamp(7, timestamp(log.getLastAttemptAt()));
+            ps.setTimestamp(8, timestamp(log.getNextRetryAt()));
+            ps.setObject(9, log.getResponseCode(), Types.INTEGER);
+            ps.setString(10, log.getResponseBody());
+            ps.setTimestamp(11, timestamp(log.getCreatedAt()));
+            ps.setObject(12, log.getEndpointId());
+        });
+    }
+
+    @Override
+    public void updateAttempts(List<WebhookLog> logs) {
+        jdbcTemplate.batchUpdate(UPDATE_SQL, logs, logs.size(), (ps, log) -> {
+            ps.setString(1, log.getStatus());
+            ps.setInt(2, log.getAttempts());
+            ps.setTimestamp(3, timestamp(log.getLastAttemptAt()));
+            ps.setTimestamp(4, timestamp(log.getNextRetryAt()));
+            ps.setObject(5, log.getResponseCode(), Types.INTEGER);
+            ps.setString(6, log.getResponseBody());
+            ps.setObject(7, log.getId());
+            ps.setTimestamp(8, timestamp(log.getCreatedAt()));
+        });
+    }
+
+    @Override
+    public List<WebhookLog> claimStrandedRetries(LocalDateTime before, int limit) {
+        Timestamp cutoff = Timestamp.valueOf(before);
+        return jdbcTemplate.query(CLAIM_STRANDED_SQL, (rs, row) -> WebhookLog.builder()
+                .id(rs.getObject("id", UUID.class))
+                .merchantId(rs.getObject("merchant_id", UUID.class))
+                .event(rs.getString("event"))
+                .payload(rs.getString("payload"))
+                .endpointId(rs.getObject("endpoint_id", UUID.class))
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .build(), Timestamp.valueOf(LocalDateTime.now()), cutoff, limit, cutoff);
+    }
+
+    private Timestamp timestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+}
@@ -0,0 +1,125 @@
+package com.gateway.services;
+
+import com.gateway.jobs.JobCodec;
+import com.gateway.queue.JobQueue;
+import com.gateway.repositories.OutboxJobRepository;
+import com.gateway.repositories.OutboxJobRepositoryCustom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Sheds new payments while queue:payments is deeper or older than the workers can
+// drain in time, instead of accepting them and missing the SLA later. Depth and age
+// of the oldest job are sampled at most once per interval by whichever request finds
+// the sample stale; every other request reads the cached sample.
+//
+// With the outbox on, payment jobs wait in outbox_jobs until the relay moves them, so
+// a relay that falls behind leaves queue:payments short. The sample counts both: depth
+// is queued plus unrelayed jobs, age is that of the oldest of either.
+//
+// Public checkout and the merchant API have separate limits so checkout can be shed
+// first. Merchant calls get 429 (API clients back off on it), checkout gets 503.
+@Service
+public class AdmissionControlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlService.class);
+
+    public enum Budget {
+        MERCHANT, PUBLIC
+    }
+
+    private record Sample(long depth, long ageMillis, long takenAt) {
+    }
+
+    @Autowired
+    private JobQueue jobQueue;
+
+    @Autowired
+    private JobCodec jobCodec;
+
+    @Autowired
+    private OutboxJobRepository outboxJobRepository;
+
+    @Value("${gateway.outbox.enabled:true}")
+    private boolean outboxEnabled;
+
+    @Value("${gateway.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gateway.admission.sample-interval-ms:500}")
+    private long sampleIntervalMs;
+
+    @Value("${gateway.admission.merchant.max-queue-depth:50000}")
+    private long merchantMaxDepth;
+
+    @Value("${gateway.admission.merchant.max-queue-age-ms:60000}")
+    private long merchantMaxAgeMs;
+
+    @Value("${gateway.admission.merchant.retry-after-seconds:5}")
+    private long merchantRetryAfterSeconds;
+
+    @Value("${gateway.admission.public.max-queue-depth:20000}")
+    private long publicMaxDepth;
+
+    @Value("${gateway.admission.public.max-queue-age-ms:30000}")
+    private long publicMaxAgeMs;
+
+    @Value("${gateway.admission.public.retry-after-seconds:10}")
+    private long publicRetryAfterSeconds;
+
+    private volatile Sample sample = new Sample(0, 0, 0);
+    private final AtomicBoolean sampling = new AtomicBoolean();
+
+    // Throws OverloadedException when the payments queue is over this budget's limits
+    public void admitPayment(Budget budget) {
+        if (!enabled) {
+            return;
+        }
+        Sample current = currentSample();
+        boolean merchant = budget == Budget.MERCHANT;
+        long maxDepth = merchant ? merchantMaxDepth : publicMaxDepth;
+        long maxAgeMs = merchant ? merchantMaxAgeMs : publicMaxAgeMs;
+        if (current.depth() <= maxDepth && current.ageMillis() <= maxAgeMs) {
+            return;
+        }
+        throw new OverloadedException(merchant ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE,
+                "Payment processing is busy, retry later",
+                merchant ? merchantRetryAfterSeconds : publicRetryAfterSeconds);
+    }
+
+    private Sample currentSample() {
+        Sample current = sample;
+        long now = System.currentTimeMillis();
+        if (now - current.takenAt() < sampleIntervalMs || !sampling.compareAndSet(false, true)) {
+            return current;
+        }
+        try {
+            long depth = jobQueue.size(JobService.QUEUE_PAYMENTS);
+            long enqueuedAt = depth > 0 ? jobCodec.enqueuedAt(jobQueue.peekOldest(JobService.QUEUE_PAYMENTS)) : -1;
+            long ageMillis = enqueuedAt > 0 ? Math.max(0, now - enqueuedAt) : 0;
+            if (outboxEnabled) {
+                OutboxJobRepositoryCustom.Backlog backlog = outboxJobRepository.backlog(JobService.QUEUE_PAYMENTS);
+                depth += backlog.jobs();
+                if (backlog.oldestCreatedAt() != null) {
+                    ageMillis = Math.max(ageMillis, now - Timestamp.valueOf(backlog.oldestCreatedAt()).getTime());
+                }
+            }
+            current = new Sample(depth, ageMillis, now);
+        } catch (Exception e) {
+            // Fail open: keep admitting on the last sample rather than reject on a Redis or
+            // database blip
+            logger.warn("Queue depth sample failed: {}", e.getMessage());
+            current = new Sample(current.depth(), current.ageMillis(), now);
+        } finally {
+            sampling.set(false);
+        }
+        sample = current;
+        return current;
+    }
+}
@@ -0,0 +1,119 @@
+package com.gateway.services;
+
+import com.gateway.jobs.JobCodec;
+import com.gateway.queue.DeadLetter;
+import com.gateway.queue.DeadLetterQueue;
+import com.gateway.queue.JobQueue;
+import com.gateway.queue.OutgoingJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class DeadLetterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterService.class);
+
+    @Autowired
+    private DeadLetterQueue deadLetterQueue;
+
+    @Autowired
+    private JobQueue jobQueue;
+
+    @Autowired
+    private JobCodec jobCodec;
+
+    @Value("${gateway.deadletter.replay-batch-size:500}")
+    private int replayBatchSize;
+
+    // Caps how fast a replay refills the live queue, so recovering from an outage
+    // does not hit the workers and the DB with the whole backlog at once
+    @Value("${gateway.deadletter.replay-rate-per-second:2000}")
+    private int replayRatePerSecond;
+
+    public List<DeadLetter> list(String queue, long offset, long count) {
+        return deadLetterQueue.list(queue, offset, count);
+    }
+
+    public long size(String queue) {
+        return deadLetterQueue.size(queue);
+    }
+
+    // Moves up to limit dead letters, oldest first, back onto the live queue in batches.
+    // Returns how many were replayed. One replay per queue at a time, across all nodes.
+    public long replay(String queue, long limit) {
+        String token = UUID.randomUUID().toString();
+        if (!deadLetterQueue.lockReplay(queue, token)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A replay of this queue is already running");
+        }
+        try {
+            return replayLocked(queue, limit, token);
+        } finally {
+            deadLetterQueue.unlockReplay(queue, token);
+        }
+    }
+
+    private long replayLocked(String queue, long limit, String token) {
+        int batchSize = Math.max(1, replayBatchSize);
+        long minBatchNanos = replayRatePerSecond > 0 ? batchSize * 1_000_000_000L / replayRatePerSecond : 0;
+        long replayed = 0;
+
+        while (replayed < limit) {
+            long started = System.nanoTime();
+            if (!deadLetterQueue.lockReplay(queue, token)) {
+                // Expired while we were stalled; another replay owns the staged batch now
+                logger.warn("Lost the replay lock of {} after {} dead letters", queue, replayed);
+                break;
+            }
+            List<DeadLetter> letters = deadLetterQueue.takeForReplay(queue,
+                    (int) Math.min(batchSize, limit - replayed));
+            if (letters.isEmpty()) {
+                break;
+            }
+
+            List<OutgoingJob> jobs = new ArrayList<>(letters.size());
+            for (DeadLetter letter : letters) {
+                jobs.add(new OutgoingJob(merchantKey(letter.getPayload()), letter.getPayload()));
+            }
+            try {
+                jobQueue.pushAll(queue, jobs);
+            } catch (RuntimeException e) {
+                deadLetterQueue.putBack(queue);
+                throw e;
+            }
+            deadLetterQueue.replayed(queue, letters.size());
+            replayed += letters.size();
+
+            long pause = minBatchNanos - (System.nanoTime() - started);
+            if (pause > 0 && replayed < limit) {
+                try {
+                    Thread.sleep(pause / 1_000_000, (int) (pause % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        logger.info("Replayed {} dead letters onto {}", replayed, queue);
+        return replayed;
+    }
+
+    private String merchantKey(byte[] payload) {
+        try {
+            UUID merchantId = jobCodec.merchantId(payload);
+            return merchantId != null ? merchantId.toString() : null;
+        } catch (RuntimeException e) {
+            // Undecodable jobs still go back; the worker will dead-letter them again
+            return null;
+        }
+    }
+}
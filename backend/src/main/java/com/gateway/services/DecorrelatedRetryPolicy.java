@@ -0,0 +1,49 @@
+package com.gateway.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Decorrelated jitter: each delay is drawn from [base, 3 x the previous wait], at most
+// max-delay. Growth follows what each delivery actually waited, so retries stay spread
+// even after circuit or rate limit deferrals bunched them up.
+@Component
+public class DecorrelatedRetryPolicy implements WebhookRetryPolicy {
+
+    @Value("${gateway.webhook.retry.decorrelated.base-ms:60000}")
+    private long baseMs;
+
+    @Value("${gateway.webhook.retry.decorrelated.max-delay-ms:7200000}")
+    private long maxDelayMs;
+
+    @Value("${gateway.webhook.retry.decorrelated.max-attempts:${gateway.webhook.retry.max-attempts:5}}")
+    private int maxAttempts;
+
+    @Value("${gateway.webhook.retry.decorrelated.max-age-hours:${gateway.webhook.retry.max-age-hours:24}}")
+    private long maxAgeHours;
+
+    @Override
+    public String name() {
+        return "decorrelated";
+    }
+
+    @Override
+    public Duration nextDelay(int attempts, Duration sinceLastAttempt) {
+        long previousMs = sinceLastAttempt != null ? Math.max(baseMs, sinceLastAttempt.toMillis()) : baseMs;
+        long upperMs = Math.min(maxDelayMs, previousMs * 3);
+        long delayMs = upperMs > baseMs ? ThreadLocalRandom.current().nextLong(baseMs, upperMs + 1) : upperMs;
+        return Duration.ofMillis(delayMs);
+    }
+
+    @Override
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public Duration maxAge() {
+        return Duration.ofHours(maxAgeHours);
+    }
+}
@@ -0,0 +1,61 @@
+package com.gateway.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Exponential backoff: the ceiling for retry n is base x multiplier^(n-1), at most
+// max-delay. With full jitter the delay is drawn from [0, ceiling], with equal jitter
+// from [ceiling/2, ceiling], so deliveries that failed together spread out instead of
+// all coming back in the same second.
+@Component
+public class ExponentialRetryPolicy implements WebhookRetryPolicy {
+
+    @Value("${gateway.webhook.retry.exponential.base-ms:60000}")
+    private long baseMs;
+
+    @Value("${gateway.webhook.retry.exponential.multiplier:5}")
+    private double multiplier;
+
+    @Value("${gateway.webhook.retry.exponential.max-delay-ms:7200000}")
+    private long maxDelayMs;
+
+    // full, equal or none
+    @Value("${gateway.webhook.retry.exponential.jitter:full}")
+    private String jitter;
+
+    @Value("${gateway.webhook.retry.exponential.max-attempts:${gateway.webhook.retry.max-attempts:5}}")
+    private int maxAttempts;
+
+    @Value("${gateway.webhook.retry.exponential.max-age-hours:${gateway.webhook.retry.max-age-hours:24}}")
+    private long maxAgeHours;
+
+    @Override
+    public String name() {
+        return "exponential";
+    }
+
+    @Override
+    public Duration nextDelay(int attempts, Duration sinceLastAttempt) {
+        double ceiling = Math.min(maxDelayMs, baseMs * Math.pow(multiplier, Math.max(0, attempts - 1)));
+        long ceilingMs = (long) ceiling;
+        long delayMs = switch (jitter) {
+            case "none" -> ceilingMs;
+            case "equal" -> ceilingMs / 2 + ThreadLocalRandom.current().nextLong(ceilingMs / 2 + 1);
+            default -> ThreadLocalRandom.current().nextLong(ceilingMs + 1);
+        };
+        return Duration.ofMillis(delayMs);
+    }
+
+    @Override
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public Duration maxAge() {
+        return Duration.ofHours(maxAgeHours);
+    }
+}
@@ -1,51 +1,159 @@
 package com.gateway.services;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gateway.jobs.DeliverWebhookJob;
+import com.gateway.jobs.JobCodec;
 import com.gateway.jobs.ProcessPaymentJob;
 import com.gateway.jobs.ProcessRefundJob;
+import com.gateway.queue.JobQueue;
+import com.gateway.queue.OutgoingJob;
+import com.gateway.repositories.OutboxJobRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class JobService {
 
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private JobQueue jobQueue;
+
+    @Autowired
+    private JobCodec jobCodec;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private OutboxJobRepository outboxJobRepository;
+
+    // Jobs scheduled inside a DB transaction are written to the outbox table with it
+    // and relayed to Redis by OutboxRelay; outside a transaction they go straight to Redis.
+    // Disabled, jobs scheduled inside a transaction are pushed once it commits.
+    @Value("${gateway.outbox.enabled:true}")
+    private boolean outboxEnabled;
 
     public static final String QUEUE_PAYMENTS = "queue:payments";
     public static final String QUEUE_WEBHOOKS = "queue:webhooks";
     public static final String QUEUE_REFUNDS = "queue:refunds";
 
+    // Jobs scheduled inside runBuffered/callBuffered wait here (per thread, per queue)
+    // and go out as one multi-value push per queue when the outermost unit of work returns
+    private final ThreadLocal<Map<String, List<OutgoingJob>>> buffer = new ThreadLocal<>();
+
     public void schedulePaymentProcessing(ProcessPaymentJob job) {
-        try {
-            String json = objectMapper.writeValueAsString(job);
-            redisTemplate.opsForList().rightPush(QUEUE_PAYMENTS, json);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Error serializing payment job", e);
-        }
+        schedulePaymentProcessing(List.of(job));
+    }
+
+    public void schedulePaymentProcessing(List<ProcessPaymentJob> jobs) {
+        publish(QUEUE_PAYMENTS, toOutgoing(jobs, ProcessPaymentJob::getMerchantId));
     }
 
     public void scheduleWebhookDelivery(DeliverWebhookJob job) {
-        try {
-            String json = objectMapper.writeValueAsString(job);
-            redisTemplate.opsForList().rightPush(QUEUE_WEBHOOKS, json);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Error serializing webhook job", e);
-        }
+        scheduleWebhookDelivery(List.of(job));
+    }
+
+    public void scheduleWebhookDelivery(List<DeliverWebhookJob> jobs) {
+        publish(QUEUE_WEBHOOKS, toOutgoing(jobs, DeliverWebhookJob::getMerchantId));
+    }
+
+    // Retry goes to the delayed set, not the outbox: it is only ever scheduled by workers
+    public void scheduleWebhookRetry(DeliverWebhookJob job, int attempt, LocalDateTime dueAt) {
+        long dueAtMillis = dueAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        jobQueue.schedule(QUEUE_WEBHOOKS, key(job.getMerchantId()), jobCodec.encode(job, attempt), dueAtMillis);
     }
 
     public void scheduleRefundProcessing(ProcessRefundJob job) {
+        scheduleRefundProcessing(List.of(job));
+    }
+
+    public void scheduleRefundProcessing(List<ProcessRefundJob> jobs) {
+        publish(QUEUE_REFUNDS, toOutgoing(jobs, ProcessRefundJob::getMerchantId));
+    }
+
+    public void runBuffered(Runnable work) {
+        callBuffered(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Nested calls join the outer unit. If the work throws, its buffered jobs are dropped.
+    public <T> T callBuffered(Supplier<T> work) {
+        if (buffer.get() != null) {
+            return work.get();
+        }
+
+        Map<String, List<OutgoingJob>> pending = new LinkedHashMap<>();
+        buffer.set(pending);
+        T result;
         try {
-            String json = objectMapper.writeValueAsString(job);
-            redisTemplate.opsForList().rightPush(QUEUE_REFUNDS, json);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Error serializing refund job", e);
+            result = work.get();
+        } finally {
+            buffer.remove();
+        }
+
+        pending.forEach(this::write);
+        return result;
+    }
+
+    private void publish(String queue, List<OutgoingJob> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        Map<String, List<OutgoingJob>> pending = buffer.get();
+        if (pending != null) {
+            pending.computeIfAbsent(queue, q -> new ArrayList<>()).addAll(jobs);
+        } else {
+            write(queue, jobs);
         }
     }
+
+    private void write(String queue, List<OutgoingJob> jobs) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            if (outboxEnabled) {
+                outboxJobRepository.insertAll(queue, jobs);
+                return;
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                // Pushed before commit, a worker could pop the job before its row is visible
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        push(queue, jobs);
+                    }
+                });
+                return;
+            }
+        }
+        push(queue, jobs);
+    }
+
+    private void push(String queue, List<OutgoingJob> jobs) {
+        if (jobs.size() == 1) {
+            jobQueue.push(queue, jobs.get(0).getKey(), jobs.get(0).getPayload());
+        } else {
+            jobQueue.pushAll(queue, jobs);
+        }
+    }
+
+    private <T> List<OutgoingJob> toOutgoing(List<T> jobs, Function<T, UUID> merchantId) {
+        List<OutgoingJob> outgoing = new ArrayList<>(jobs.size());
+        for (T job : jobs) {
+            outgoing.add(new OutgoingJob(key(merchantId.apply(job)), jobCodec.encode(job)));
+        }
+        return outgoing;
+    }
+
+    private String key(UUID merchantId) {
+        return merchantId != null ? merchantId.toString() : null;
+    }
 }
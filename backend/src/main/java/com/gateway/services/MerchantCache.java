@@ -0,0 +1,111 @@
+package com.gateway.services;
+
+import com.gateway.models.Merchant;
+import com.gateway.repositories.MerchantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Merchants by id and by API key, for the auth filter and the workers, which otherwise
+// read the merchant on every request and every delivery. Entries live for ttl-ms.
+// Changes go through invalidate(), which evicts the merchant (and its webhook
+// subscriptions) here and, over Redis pub/sub, on every other node; a node that misses
+// the message serves the old merchant until the entry expires.
+//
+// Cached merchants are shared between threads: read them, never modify them. Code that
+// changes a merchant loads it from MerchantRepository and calls invalidate() after saving.
+@Service
+public class MerchantCache {
+
+    public static final String INVALIDATION_CHANNEL = "merchants:invalidate";
+
+    private static final Logger logger = LoggerFactory.getLogger(MerchantCache.class);
+
+    private record Entry(Merchant merchant, long expiresAt) {
+    }
+
+    @Autowired
+    private MerchantRepository merchantRepository;
+
+    @Autowired
+    private WebhookSubscriptions webhookSubscriptions;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${gateway.merchant-cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    // Past it the cache starts over
+    @Value("${gateway.merchant-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${gateway.merchant-cache.invalidation.enabled:true}")
+    private boolean broadcast;
+
+    private final ConcurrentHashMap<UUID, Entry> byId = new ConcurrentHashMap<>();
+    // API key -> merchant id; resolved through byId so one eviction covers both
+    private final ConcurrentHashMap<String, UUID> idByApiKey = new ConcurrentHashMap<>();
+
+    public Optional<Merchant> byId(UUID merchantId) {
+        Entry entry = byId.get(merchantId);
+        if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+            return Optional.of(entry.merchant());
+        }
+        Optional<Merchant> merchant = merchantRepository.findById(merchantId);
+        merchant.ifPresent(this::put);
+        return merchant;
+    }
+
+    // Unknown keys are not cached, so a merchant's first request after creation finds it
+    public Optional<Merchant> byApiKey(String apiKey) {
+        UUID merchantId = idByApiKey.get(apiKey);
+        Entry entry = merchantId != null ? byId.get(merchantId) : null;
+        if (entry != null && entry.expiresAt() > System.currentTimeMillis()
+                && apiKey.equals(entry.merchant().getApiKey())) {
+            return Optional.of(entry.merchant());
+        }
+        Optional<Merchant> merchant = merchantRepository.findByApiKey(apiKey);
+        merchant.ifPresent(this::put);
+        return merchant;
+    }
+
+    // Call after saving a change to the merchant or its webhook endpoints
+    public void invalidate(UUID merchantId) {
+        evictLocal(merchantId);
+        if (!broadcast) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, merchantId.toString());
+        } catch (Exception e) {
+            // Other nodes catch up when their entries expire
+            logger.warn("Could not broadcast invalidation of merchant {}: {}", merchantId, e.getMessage());
+        }
+    }
+
+    // Invalidations from other nodes (and this node's own, echoed back) land here
+    public void evictLocal(UUID merchantId) {
+        Entry entry = byId.remove(merchantId);
+        if (entry != null) {
+            idByApiKey.remove(entry.merchant().getApiKey(), merchantId);
+        }
+        webhookSubscriptions.evict(merchantId);
+    }
+
+    private void put(Merchant merchant) {
+        if (byId.size() >= maxSize) {
+            byId.clear();
+            idByApiKey.clear();
+        }
+        byId.put(merchant.getId(), new Entry(merchant, System.currentTimeMillis() + ttlMs));
+        idByApiKey.put(merchant.getApiKey(), merchant.getId());
+    }
+}
@@ -0,0 +1,21 @@
+package com.gateway.services;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// Rejection by AdmissionControlService; carries Retry-After to the client
+public class OverloadedException extends ResponseStatusException {
+
+    private final HttpHeaders headers = new HttpHeaders();
+
+    public OverloadedException(HttpStatus status, String reason, long retryAfterSeconds) {
+        super(status, reason);
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+}
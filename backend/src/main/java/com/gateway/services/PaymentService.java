@@ -13,6 +13,7 @@ import com.gateway.repositories.PaymentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.security.SecureRandom;
@@ -44,7 +45,26 @@ public class PaymentService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    // One transaction for the payment, its outbox job and the idempotency key
+    @Transactional
     public Object createPayment(Merchant merchant, Map<String, Object> payload, String idempotencyHeader) {
+        // The processing job is published once the request's work is done
+        return jobService.callBuffered(() -> doCreatePayment(merchant, payload, idempotencyHeader));
+    }
+
+    // The stored response of an earlier request with this key, while it has not expired.
+    // Checked before admission control, so a client retrying after a timeout gets its
+    // payment back even while new payments are being shed.
+    public Optional<Payment> findIdempotentReplay(Merchant merchant, String idempotencyHeader) {
+        if (idempotencyHeader == null || merchant == null) {
+            return Optional.empty();
+        }
+        return idempotencyKeyRepository.findByKeyAndMerchantId(idempotencyHeader, merchant.getId())
+                .filter(key -> key.getExpiresAt().isAfter(LocalDateTime.now()))
+                .flatMap(this::storedPayment);
+    }
+
+    private Object doCreatePayment(Merchant merchant, Map<String, Object> payload, String idempotencyHeader) {
         // Idempotency Check
         if (idempotencyHeader != null && merchant != null) {
             Optional<IdempotencyKey> existingKey = idempotencyKeyRepository.findByKeyAndMerchantId(idempotencyHeader,
@@ -52,10 +72,9 @@ public class PaymentService {
             if (existingKey.isPresent()) {
                 IdempotencyKey key = existingKey.get();
                 if (key.getExpiresAt().isAfter(LocalDateTime.now())) {
-                    try {
-                        return objectMapper.readValue(key.getResponse(), Payment.class);
-                    } catch (JsonProcessingException e) {
-                        // ignore and process as new? or error?
+                    Optional<Payment> stored = storedPayment(key);
+                    if (stored.isPresent()) {
+                        return stored.get();
                     }
                 } else {
                     idempotencyKeyRepository.delete(key);
@@ -118,7 +137,7 @@ public class PaymentService {
         payment = paymentRepository.save(payment);
 
         // Enqueue Job
-        ProcessPaymentJob job = new ProcessPaymentJob(payment.getId());
+        ProcessPaymentJob job = new ProcessPaymentJob(payment.getId(), payment.getMerchantId());
         jobService.schedulePaymentProcessing(job);
 
         // Save Idempotency Key
@@ -140,6 +159,15 @@ public class PaymentService {
         return payment;
     }
 
+    private Optional<Payment> storedPayment(IdempotencyKey key) {
+        try {
+            return Optional.of(objectMapper.readValue(key.getResponse(), Payment.class));
+        } catch (JsonProcessingException e) {
+            // Unreadable: processed as a new request
+            return Optional.empty();
+        }
+    }
+
     public Payment capturePayment(String paymentId, Merchant merchant, Map<String, Object> payload) {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Payment not found"));
@@ -8,6 +8,7 @@ import com.gateway.repositories.RefundRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.security.SecureRandom;
@@ -30,7 +31,12 @@ public class RefundService {
     @Autowired
     private JobService jobService;
 
+    @Transactional
     public Refund createRefund(String paymentId, UUID merchantId, Map<String, Object> payload) {
+        return jobService.callBuffered(() -> doCreateRefund(paymentId, merchantId, payload));
+    }
+
+    private Refund doCreateRefund(String paymentId, UUID merchantId, Map<String, Object> payload) {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Payment not found"));
 
@@ -77,7 +83,7 @@ public class RefundService {
 
         refund = refundRepository.save(refund);
 
-        ProcessRefundJob job = new ProcessRefundJob(refund.getId());
+        ProcessRefundJob job = new ProcessRefundJob(refund.getId(), refund.getMerchantId());
         jobService.scheduleRefundProcessing(job);
 
         return refund;
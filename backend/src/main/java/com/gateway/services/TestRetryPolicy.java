@@ -0,0 +1,35 @@
+package com.gateway.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Fast, fixed retries for testing: 5 s, 10 s, 15 s, 20 s. The default policy while
+// webhook.retry.intervals.test is set.
+@Component
+public class TestRetryPolicy implements WebhookRetryPolicy {
+
+    @Value("${gateway.webhook.retry.test.max-attempts:${gateway.webhook.retry.max-attempts:5}}")
+    private int maxAttempts;
+
+    @Override
+    public String name() {
+        return "test";
+    }
+
+    @Override
+    public Duration nextDelay(int attempts, Duration sinceLastAttempt) {
+        return Duration.ofSeconds(5L * Math.min(Math.max(attempts, 1), 4));
+    }
+
+    @Override
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public Duration maxAge() {
+        return Duration.ofHours(1);
+    }
+}
@@ -0,0 +1,240 @@
+package com.gateway.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Circuit breaker per webhook endpoint, shared by all worker nodes through Redis.
+//
+//   closed     deliveries go out; the failure rate over a rolling window (a ring of
+//              time buckets) or a run of consecutive timeouts trips it open
+//   open       deliveries are deferred without a network call until open-until
+//   half_open  one probe delivery at a time; success closes the circuit, failure
+//              reopens it for twice as long (up to max-open-ms)
+//
+// Keys per endpoint:
+//   webhook:endpoint:<url>   hash with the state, counters and bucket ring
+@Service
+public class WebhookCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookCircuitBreaker.class);
+
+    // KEYS: health  ARGV: now ms, probe timeout ms
+    // Returns 0 when the delivery may go out, otherwise the epoch ms to defer it to
+    private static final RedisScript<Long> ALLOW_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) "
+                    + "local h = redis.call('HMGET', KEYS[1], 'state', 'open_until', 'probe_until') "
+                    + "local state = h[1] or 'closed' "
+                    + "if state == 'closed' then return 0 end "
+                    + "local open_until = tonumber(h[2] or '0') "
+                    + "if state == 'open' and now < open_until then return open_until end "
+                    + "local probe_until = tonumber(h[3] or '0') "
+                    + "if now < probe_until then return probe_until end "
+                    // Half-open: let this delivery through as the probe
+                    + "redis.call('HSET', KEYS[1], 'state', 'half_open', 'probe_until', now + tonumber(ARGV[2])) "
+                    + "return 0", Long.class);
+
+    // KEYS: health
+    // ARGV: now ms, ok (1/0), timeout (1/0), bucket ms, buckets, min calls, failure rate %,
+    //       timeout threshold, open ms, max open ms, ttl s, error
+    // Returns the state after recording the outcome, or "tripped" when this outcome opened it
+    private static final RedisScript<String> RECORD_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) "
+                    + "local ok = ARGV[2] == '1' "
+                    + "local timeout = ARGV[3] == '1' "
+                    + "local bucket_ms = tonumber(ARGV[4]) "
+                    + "local buckets = tonumber(ARGV[5]) "
+                    + "local key = KEYS[1] "
+                    + "local b = math.floor(now / bucket_ms) "
+                    + "local slot = tostring(b % buckets) "
+                    + "if redis.call('HGET', key, 'at:' .. slot) ~= tostring(b) then "
+                    + "  redis.call('HSET', key, 'at:' .. slot, b, 'ok:' .. slot, 0, 'fail:' .. slot, 0) "
+                    + "end "
+                    + "redis.call('HINCRBY', key, (ok and 'ok:' or 'fail:') .. slot, 1) "
+                    + "local timeouts = 0 "
+                    + "if ok then "
+                    + "  redis.call('HSET', key, 'consecutive_timeouts', 0, 'last_success_at', now) "
+                    + "else "
+                    + "  redis.call('HSET', key, 'last_failure_at', now, 'last_error', ARGV[12]) "
+                    + "  if timeout then timeouts = redis.call('HINCRBY', key, 'consecutive_timeouts', 1) "
+                    + "  else redis.call('HSET', key, 'consecutive_timeouts', 0) end "
+                    + "end "
+                    + "local state = redis.call('HGET', key, 'state') or 'closed' "
+                    + "local open_ms = tonumber(ARGV[9]) "
+                    + "local trip = false "
+                    + "if state == 'half_open' then "
+                    + "  if ok then "
+                    + "    redis.call('HSET', key, 'state', 'closed', 'probe_until', 0, 'open_ms', open_ms) "
+                    + "    for i = 0, buckets - 1 do redis.call('HSET', key, 'ok:' .. i, 0, 'fail:' .. i, 0) end "
+                    + "    state = 'closed' "
+                    + "  else "
+                    + "    open_ms = math.min(tonumber(redis.call('HGET', key, 'open_ms') or ARGV[9]) * 2, tonumber(ARGV[10])) "
+                    + "    trip = true "
+                    + "  end "
+                    + "elseif state == 'closed' and not ok then "
+                    + "  local calls, fails = 0, 0 "
+                    + "  local oldest = b - buckets + 1 "
+                    + "  for i = 0, buckets - 1 do "
+                    + "    if tonumber(redis.call('HGET', key, 'at:' .. i) or '-1') >= oldest then "
+                    + "      local f = tonumber(redis.call('HGET', key, 'fail:' .. i) or '0') "
+                    + "      calls = calls + f + tonumber(redis.call('HGET', key, 'ok:' .. i) or '0') "
+                    + "      fails = fails + f "
+                    + "    end "
+                    + "  end "
+                    + "  trip = (calls >= tonumber(ARGV[6]) and fails * 100 >= calls * tonumber(ARGV[7])) "
+                    + "    or timeouts >= tonumber(ARGV[8]) "
+                    + "end "
+                    + "if trip then "
+                    + "  redis.call('HSET', key, 'state', 'open', 'opened_at', now, 'open_until', now + open_ms, "
+                    + "    'open_ms', open_ms, 'probe_until', 0) "
+                    + "end "
+                    + "redis.call('EXPIRE', key, tonumber(ARGV[11])) "
+                    + "if trip then return 'tripped' end "
+                    + "return state", String.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${gateway.webhook.circuit.enabled:true}")
+    private boolean enabled;
+
+    // Rolling window: bucket-count buckets of bucket-ms each
+    @Value("${gateway.webhook.circuit.bucket-ms:10000}")
+    private long bucketMs;
+
+    @Value("${gateway.webhook.circuit.bucket-count:6}")
+    private int bucketCount;
+
+    // Failure rate (percent) that opens the circuit once the window has min-calls deliveries
+    @Value("${gateway.webhook.circuit.failure-rate-percent:50}")
+    private int failureRatePercent;
+
+    @Value("${gateway.webhook.circuit.min-calls:10}")
+    private int minCalls;
+
+    @Value("${gateway.webhook.circuit.consecutive-timeouts:5}")
+    private int consecutiveTimeouts;
+
+    @Value("${gateway.webhook.circuit.open-ms:30000}")
+    private long openMs;
+
+    @Value("${gateway.webhook.circuit.max-open-ms:600000}")
+    private long maxOpenMs;
+
+    // A probe that never reports back frees the half-open slot after this long
+    @Value("${gateway.webhook.circuit.probe-timeout-ms:10000}")
+    private long probeTimeoutMs;
+
+    // Returns 0 when a delivery to the endpoint may go out now, otherwise the epoch ms
+    // it should be deferred to. Redis errors fail open.
+    public long deferUntil(String url) {
+        if (!enabled) {
+            return 0;
+        }
+        try {
+            Long until = stringRedisTemplate.execute(ALLOW_SCRIPT, List.of(healthKey(url)),
+                    Long.toString(System.currentTimeMillis()), Long.toString(probeTimeoutMs));
+            return until != null ? until : 0;
+        } catch (Exception e) {
+            logger.warn("Circuit check failed for webhook endpoint: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    public void recordSuccess(String url) {
+        record(url, true, false, null);
+    }
+
+    public void recordFailure(String url, boolean timeout, String error) {
+        record(url, false, timeout, error);
+    }
+
+    // Endpoint health for the merchant's webhook view
+    public Map<String, Object> health(String url) {
+        Map<String, Object> health = new LinkedHashMap<>();
+        health.put("url", url);
+        health.put("state", "closed");
+        if (url == null || url.isEmpty()) {
+            return health;
+        }
+
+        Map<Object, Object> fields;
+        try {
+            fields = stringRedisTemplate.opsForHash().entries(healthKey(url));
+        } catch (Exception e) {
+            logger.warn("Circuit read failed for webhook endpoint: {}", e.getMessage());
+            health.put("state", "unknown");
+            return health;
+        }
+        long now = System.currentTimeMillis();
+        long oldest = now / bucketMs - bucketCount + 1;
+        long calls = 0;
+        long failures = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            if (asLong(fields.get("at:" + i)) >= oldest) {
+                long failed = asLong(fields.get("fail:" + i));
+                calls += failed + asLong(fields.get("ok:" + i));
+                failures += failed;
+            }
+        }
+
+        String state = (String) fields.getOrDefault("state", "closed");
+        if ("open".equals(state) && now >= asLong(fields.get("open_until"))) {
+            state = "half_open"; // The next delivery will probe
+        }
+        health.put("state", state);
+        health.put("window_seconds", bucketMs * bucketCount / 1000);
+        health.put("calls", calls);
+        health.put("failures", failures);
+        health.put("failure_rate", calls > 0 ? (double) failures / calls : 0.0);
+        health.put("consecutive_timeouts", Math.max(0, asLong(fields.get("consecutive_timeouts"))));
+        health.put("open_until", "open".equals(state) ? asLong(fields.get("open_until")) : null);
+        health.put("last_error", fields.get("last_error"));
+        health.put("last_failure_at", fields.containsKey("last_failure_at")
+                ? asLong(fields.get("last_failure_at")) : null);
+        health.put("last_success_at", fields.containsKey("last_success_at")
+                ? asLong(fields.get("last_success_at")) : null);
+        return health;
+    }
+
+    private void record(String url, boolean ok, boolean timeout, String error) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long ttlSeconds = Math.max(maxOpenMs, bucketMs * bucketCount) / 1000 * 2;
+            String state = stringRedisTemplate.execute(RECORD_SCRIPT, List.of(healthKey(url)),
+                    Long.toString(System.currentTimeMillis()), ok ? "1" : "0", timeout ? "1" : "0",
+                    Long.toString(bucketMs), Integer.toString(bucketCount), Integer.toString(minCalls),
+                    Integer.toString(failureRatePercent), Integer.toString(consecutiveTimeouts),
+                    Long.toString(openMs), Long.toString(maxOpenMs), Long.toString(ttlSeconds),
+                    error != null ? truncate(error) : "");
+            if ("tripped".equals(state)) {
+                logger.warn("Webhook circuit open for {}", url);
+            }
+        } catch (Exception e) {
+            logger.warn("Circuit update failed for webhook endpoint: {}", e.getMessage());
+        }
+    }
+
+    private String healthKey(String url) {
+        return "webhook:endpoint:" + url;
+    }
+
+    private String truncate(String error) {
+        return error.length() > 200 ? error.substring(0, 200) : error;
+    }
+
+    private long asLong(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : -1;
+    }
+}
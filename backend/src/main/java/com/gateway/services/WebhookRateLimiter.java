@@ -0,0 +1,96 @@
+package com.gateway.services;
+
+import com.gateway.models.Merchant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// Outbound rate limit per merchant webhook endpoint: a token bucket (as GCRA: one
+// timestamp per merchant) shared by all worker nodes through Redis, on the Redis clock.
+//
+// A delivery that fits within max-wait-ms takes a slot in the schedule and waits for it
+// in-process, which spaces a draining backlog out at the merchant's rate. One further
+// out is not given a slot; it is deferred through the retry schedule and asks again then.
+//
+// Keys per merchant:
+//   webhook:rate:<merchant id>   theoretical arrival time of the next request, epoch ms
+@Service
+public class WebhookRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookRateLimiter.class);
+
+    // KEYS: bucket  ARGV: ms per request, burst, cost in requests, max wait ms
+    // Returns the wait in ms (>= 0) with the slot taken, or minus the wait (< 0) when it is
+    // too long and no slot was taken
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local t = redis.call('TIME') "
+                    + "local now = tonumber(t[1]) * 1000 + tonumber(t[2]) / 1000 "
+                    + "local interval = tonumber(ARGV[1]) "
+                    + "local tat = tonumber(redis.call('GET', KEYS[1]) or '0') "
+                    + "if tat < now then tat = now end "
+                    + "local next_tat = tat + interval * tonumber(ARGV[3]) "
+                    + "local wait = next_tat - tonumber(ARGV[2]) * interval - now "
+                    + "if wait > tonumber(ARGV[4]) then return -math.ceil(wait) end "
+                    + "redis.call('SET', KEYS[1], string.format('%.3f', next_tat), 'PX', "
+                    + "  math.ceil(next_tat - now) + 1000) "
+                    + "if wait < 0 then wait = 0 end "
+                    + "return math.ceil(wait)", Long.class);
+
+    public record Slot(boolean granted, long waitMs) {
+    }
+
+    private static final Slot NOW = new Slot(true, 0);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${gateway.webhook.rate.enabled:true}")
+    private boolean enabled;
+
+    // For merchants without a limit of their own
+    @Value("${gateway.webhook.rate.default-per-second:50}")
+    private int defaultPerSecond;
+
+    @Value("${gateway.webhook.rate.default-burst:100}")
+    private int defaultBurst;
+
+    // Longest a delivery waits in the worker for its slot before being deferred instead
+    @Value("${gateway.webhook.rate.max-wait-ms:1000}")
+    private long maxWaitMs;
+
+    // `requests` is the share of one request this delivery costs: 1, or 1 / batch size for
+    // an event that goes out in a batch. Redis errors fail open.
+    public Slot acquire(Merchant merchant, double requests) {
+        if (!enabled) {
+            return NOW;
+        }
+        int perSecond = merchant.getWebhookRateLimit() != null ? merchant.getWebhookRateLimit() : defaultPerSecond;
+        int burst = merchant.getWebhookRateBurst() != null ? merchant.getWebhookRateBurst() : defaultBurst;
+        if (perSecond <= 0) {
+            return NOW;
+        }
+        try {
+            Long wait = stringRedisTemplate.execute(ACQUIRE_SCRIPT, List.of(bucketKey(merchant)),
+                    Double.toString(1000.0 / perSecond), Integer.toString(Math.max(1, burst)),
+                    Double.toString(requests), Long.toString(maxWaitMs));
+            if (wait == null) {
+                return NOW;
+            }
+            return wait >= 0 ? new Slot(true, wait) : new Slot(false, -wait);
+        } catch (Exception e) {
+            logger.warn("Webhook rate check failed: {}", e.getMessage());
+            return NOW;
+        }
+    }
+
+    private String bucketKey(Merchant merchant) {
+        return "webhook:rate:" + merchant.getId();
+    }
+}
@@ -0,0 +1,99 @@
+package com.gateway.services;
+
+import com.gateway.models.Merchant;
+import com.gateway.models.WebhookLog;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Picks the retry policy for a delivery: the merchant's own choice, else the one set
+// for the event type in event-policies ("payment.failed=decorrelated,..."), else the
+// default policy ("test" while webhook.retry.intervals.test is set).
+@Service
+public class WebhookRetryPolicies {
+
+    @Autowired
+    private List<WebhookRetryPolicy> policies;
+
+    @Value("${gateway.webhook.retry.default-policy:exponential}")
+    private String defaultPolicyName;
+
+    @Value("${gateway.webhook.retry.event-policies:}")
+    private String eventPolicyNames;
+
+    @Value("${webhook.retry.intervals.test:false}")
+    private boolean testRetryIntervals;
+
+    private final Map<String, WebhookRetryPolicy> byName = new TreeMap<>();
+    private final Map<String, WebhookRetryPolicy> byEvent = new HashMap<>();
+    private WebhookRetryPolicy defaultPolicy;
+
+    @PostConstruct
+    public void start() {
+        for (WebhookRetryPolicy policy : policies) {
+            byName.put(policy.name(), policy);
+        }
+        defaultPolicy = named(testRetryIntervals ? "test" : defaultPolicyName);
+        for (String entry : eventPolicyNames.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalStateException("Invalid webhook event retry policy entry: " + entry);
+            }
+            byEvent.put(parts[0].trim(), named(parts[1].trim()));
+        }
+    }
+
+    public WebhookRetryPolicy forDelivery(Merchant merchant, String event) {
+        WebhookRetryPolicy policy = merchant.getWebhookRetryPolicy() != null
+                ? byName.get(merchant.getWebhookRetryPolicy()) : null;
+        if (policy == null) {
+            policy = byEvent.getOrDefault(event, defaultPolicy);
+        }
+        return policy;
+    }
+
+    // When a delivery that just failed is tried next, or null when it is out of attempts
+    // or the next attempt would fall past the policy's max age
+    public LocalDateTime nextRetryAt(WebhookRetryPolicy policy, WebhookLog log, Duration sinceLastAttempt) {
+        if (log.getAttempts() >= policy.maxAttempts()) {
+            return null;
+        }
+        LocalDateTime next = LocalDateTime.now().plus(policy.nextDelay(log.getAttempts(), sinceLastAttempt));
+        return isExhausted(policy, log, next) ? null : next;
+    }
+
+    // Whether an attempt at `at` would be past the policy's limits. Deferrals (circuit open,
+    // rate limited) use no attempt but still end here once the event is too old.
+    public boolean isExhausted(WebhookRetryPolicy policy, WebhookLog log, LocalDateTime at) {
+        return log.getAttempts() >= policy.maxAttempts()
+                || (log.getCreatedAt() != null && at.isAfter(log.getCreatedAt().plus(policy.maxAge())));
+    }
+
+    public boolean exists(String name) {
+        return byName.containsKey(name);
+    }
+
+    public Set<String> names() {
+        return byName.keySet();
+    }
+
+    private WebhookRetryPolicy named(String name) {
+        WebhookRetryPolicy policy = byName.get(name);
+        if (policy == null) {
+            throw new IllegalStateException("Unknown webhook retry policy: " + name + " (known: " + byName.keySet() + ")");
+        }
+        return policy;
+    }
+}
@@ -0,0 +1,20 @@
+package com.gateway.services;
+
+import java.time.Duration;
+
+// When a failed webhook delivery is tried again. Implementations are beans, picked by
+// name per merchant or per event through WebhookRetryPolicies.
+public interface WebhookRetryPolicy {
+
+    String name();
+
+    // Wait before the next attempt after `attempts` failed ones. `sinceLastAttempt` is how
+    // long the delivery waited before the attempt that just failed; null after the first.
+    Duration nextDelay(int attempts, Duration sinceLastAttempt);
+
+    // Attempts in all, the first one included
+    int maxAttempts();
+
+    // No attempt is scheduled later than this after the event was logged
+    Duration maxAge();
+}
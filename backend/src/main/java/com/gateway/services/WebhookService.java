@@ -1,76 +1,65 @@
 package com.gateway.services;
 
-import com.gateway.models.WebhookLog;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.jobs.DeliverWebhookJob;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class WebhookService {
 
-    private static final String HMAC_SHA256 = "HmacSHA256";
+    @Autowired
+    private WebhookSigner webhookSigner;
 
-    public String generateSignature(String payload, String secret) {
-        try {
-            Mac sha256_HMAC = Mac.getInstance(HMAC_SHA256);
-            SecretKeySpec secret_key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256);
-            sha256_HMAC.init(secret_key);
-            byte[] bytes = sha256_HMAC.doFinal(payload.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(bytes);
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            throw new RuntimeException("Error generating signature", e);
-        }
-    }
+    @Autowired
+    private WebhookSubscriptions webhookSubscriptions;
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
-        }
-        return result.toString();
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Delivery path: the merchant's key stays cached between deliveries
+    public String generateSignature(UUID merchantId, byte[] payload, String secret) {
+        return webhookSigner.sign(merchantId, secret, payload);
     }
 
-    public LocalDateTime calculateNextRetry(int currentAttempt) {
-        // Attempt 1: Immediate (handled by caller before first retry scheduled)
-        // Retry logic starts AFTER first failure, so attempts=1 means we are scheduling
-        // for 2nd attempt
-        // Requirements:
-        // Attempt 2: After 1 minute
-        // Attempt 3: After 5 minutes
-        // Attempt 4: After 30 minutes
-        // Attempt 5: After 2 hours
+    public String generateSignature(String payload, String secret) {
+        return webhookSigner.sign(secret, payload.getBytes(StandardCharsets.UTF_8));
+    }
 
-        switch (currentAttempt) {
-            case 1:
-                return LocalDateTime.now().plusMinutes(1);
-            case 2:
-                return LocalDateTime.now().plusMinutes(5);
-            case 3:
-                return LocalDateTime.now().plusMinutes(30);
-            case 4:
-                return LocalDateTime.now().plusHours(2);
-            default:
-                return null; // No more retries
+    // Fans an event out to every destination subscribed to it, one delivery job each. The
+    // payload is serialized once and signed once per key; an event nobody subscribes to
+    // is neither serialized nor queued.
+    public void publish(UUID merchantId, String event, Map<String, Object> data) throws JsonProcessingException {
+        List<WebhookSubscriptions.Target> targets = webhookSubscriptions.forEvent(merchantId, event);
+        if (targets.isEmpty()) {
+            return;
         }
-    }
 
-    public LocalDateTime calculateTestNextRetry(int currentAttempt) {
-        // Allow faster retries for testing
-        switch (currentAttempt) {
-            case 1:
-                return LocalDateTime.now().plusSeconds(5);
-            case 2:
-                return LocalDateTime.now().plusSeconds(10);
-            case 3:
-                return LocalDateTime.now().plusSeconds(15);
-            case 4:
-                return LocalDateTime.now().plusSeconds(20);
-            default:
-                return null;
+        Map<String, Object> payloadMap = new HashMap<>();
+        payloadMap.put("event", event);
+        payloadMap.put("timestamp", System.currentTimeMillis() / 1000);
+        payloadMap.put("data", data);
+        byte[] payload = objectMapper.writeValueAsBytes(payloadMap);
+
+        Map<UUID, String> signatures = new HashMap<>();
+        List<DeliverWebhookJob> jobs = new ArrayList<>(targets.size());
+        for (WebhookSubscriptions.Target target : targets) {
+            // A merchant without a webhook secret cannot be signed for; leave it to the
+            // worker rather than fail the payment job that publishes the event
+            String signature = target.secret().isEmpty() ? null : signatures.computeIfAbsent(target.keyId(),
+                    keyId -> webhookSigner.sign(keyId, target.secret(), payload));
+            jobs.add(new DeliverWebhookJob(merchantId, event, payload, null, target.endpointId(), signature));
         }
+        jobService.scheduleWebhookDelivery(jobs);
     }
 }
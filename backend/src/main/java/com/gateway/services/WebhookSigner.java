@@ -0,0 +1,101 @@
+package com.gateway.services;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// HMAC-SHA256 webhook signatures without per-call setup:
+//   - each merchant's key is built once and reused until its secret changes
+//   - each thread keeps one Mac and re-keys it only when it signs for another key
+//   - the digest and hex digits go into per-thread buffers; the signature String is
+//     the only allocation
+@Component
+public class WebhookSigner {
+
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Far above the merchants a worker signs for; past it the cache starts over
+    private static final int MAX_CACHED_KEYS = 10_000;
+
+    private record CachedKey(String secret, SecretKeySpec spec) {
+    }
+
+    private static final class ThreadState {
+        final Mac mac;
+        final byte[] digest;
+        final char[] hex;
+        SecretKeySpec key;
+
+        ThreadState() {
+            try {
+                mac = Mac.getInstance(HMAC_SHA256);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(HMAC_SHA256 + " not available", e);
+            }
+            digest = new byte[mac.getMacLength()];
+            hex = new char[digest.length * 2];
+        }
+    }
+
+    private final ConcurrentHashMap<UUID, CachedKey> keys = new ConcurrentHashMap<>();
+    private final ThreadLocal<ThreadState> threadState = ThreadLocal.withInitial(ThreadState::new);
+
+    public String sign(UUID merchantId, String secret, byte[] payload) {
+        return sign(key(merchantId, secret), payload);
+    }
+
+    // For one-off signatures: the key is not cached
+    public String sign(String secret, byte[] payload) {
+        return sign(newKey(secret), payload);
+    }
+
+    private String sign(SecretKeySpec key, byte[] payload) {
+        ThreadState state = threadState.get();
+        try {
+            if (state.key != key) {
+                state.mac.init(key);
+                state.key = key;
+            }
+            state.mac.update(payload);
+            state.mac.doFinal(state.digest, 0);
+        } catch (InvalidKeyException | ShortBufferException e) {
+            state.key = null;
+            throw new RuntimeException("Error generating signature", e);
+        }
+        return toHex(state.digest, state.hex);
+    }
+
+    private SecretKeySpec key(UUID merchantId, String secret) {
+        CachedKey cached = keys.get(merchantId);
+        if (cached != null && cached.secret().equals(secret)) {
+            return cached.spec();
+        }
+        if (keys.size() >= MAX_CACHED_KEYS) {
+            keys.clear();
+        }
+        SecretKeySpec spec = newKey(secret);
+        keys.put(merchantId, new CachedKey(secret, spec));
+        return spec;
+    }
+
+    private SecretKeySpec newKey(String secret) {
+        return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256);
+    }
+
+    static String toHex(byte[] bytes, char[] out) {
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            out[i * 2] = HEX[b >>> 4];
+            out[i * 2 + 1] = HEX[b & 0x0f];
+        }
+        return new String(out, 0, bytes.length * 2);
+    }
+}
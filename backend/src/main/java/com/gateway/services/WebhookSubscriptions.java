@@ -0,0 +1,132 @@
+package com.gateway.services;
+
+import com.gateway.models.Merchant;
+import com.gateway.models.WebhookEndpoint;
+import com.gateway.repositories.MerchantRepository;
+import com.gateway.repositories.WebhookEndpointRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Which webhook destinations receive which events, per merchant: the merchant's
+// webhook_url (all events) plus its active endpoints with their event filters.
+// Fan-out reads it for every event, so each merchant's list is cached for cache-ttl-ms.
+// Changes evict it on every node through MerchantCache.invalidate().
+@Service
+public class WebhookSubscriptions {
+
+    private static final List<String> ALL_EVENTS = List.of("*");
+
+    // Where one delivery goes. keyId names the signing key for WebhookSigner's cache: the
+    // endpoint for one with its own secret, else the merchant.
+    public record Target(UUID endpointId, String url, String secret, UUID keyId, List<String> events) {
+
+        public boolean accepts(String event) {
+            for (String pattern : events) {
+                if (pattern.equals("*") || pattern.equals(event)
+                        || (pattern.endsWith(".*") && event != null
+                        && event.startsWith(pattern.substring(0, pattern.length() - 1)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record Entry(List<Target> targets, long expiresAt) {
+    }
+
+    @Autowired
+    private MerchantRepository merchantRepository;
+
+    @Autowired
+    private WebhookEndpointRepository webhookEndpointRepository;
+
+    @Value("${gateway.webhook.subscriptions.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+
+    // Far above the merchants one node publishes for; past it the cache starts over
+    @Value("${gateway.webhook.subscriptions.max-cached-merchants:10000}")
+    private int maxCachedMerchants;
+
+    private final ConcurrentHashMap<UUID, Entry> cache = new ConcurrentHashMap<>();
+
+    // The merchant's own webhook_url, or null when it has none
+    public static Target merchantTarget(Merchant merchant) {
+        if (merchant.getWebhookUrl() == null || merchant.getWebhookUrl().isEmpty()) {
+            return null;
+        }
+        return new Target(null, merchant.getWebhookUrl(),
+                merchant.getWebhookSecret() != null ? merchant.getWebhookSecret() : "", merchant.getId(), ALL_EVENTS);
+    }
+
+    public List<Target> forEvent(UUID merchantId, String event) {
+        List<Target> subscribed = new ArrayList<>();
+        for (Target target : targets(merchantId)) {
+            if (target.accepts(event)) {
+                subscribed.add(target);
+            }
+        }
+        return subscribed;
+    }
+
+    // Null once the endpoint is deleted or deactivated
+    public Target endpoint(UUID merchantId, UUID endpointId) {
+        for (Target target : targets(merchantId)) {
+            if (endpointId.equals(target.endpointId())) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    public void evict(UUID merchantId) {
+        cache.remove(merchantId);
+    }
+
+    public static List<String> parseEvents(String events) {
+        return Arrays.stream(events.split(",")).map(String::trim).filter(e -> !e.isEmpty()).toList();
+    }
+
+    private List<Target> targets(UUID merchantId) {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(merchantId);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.targets();
+        }
+        List<Target> targets = load(merchantId);
+        if (cache.size() >= maxCachedMerchants) {
+            cache.clear();
+        }
+        cache.put(merchantId, new Entry(targets, now + cacheTtlMs));
+        return targets;
+    }
+
+    private List<Target> load(UUID merchantId) {
+        Merchant merchant = merchantRepository.findById(merchantId).orElse(null);
+        if (merchant == null) {
+            return List.of();
+        }
+        List<Target> targets = new ArrayList<>();
+        Target own = merchantTarget(merchant);
+        if (own != null) {
+            targets.add(own);
+        }
+        for (WebhookEndpoint endpoint : webhookEndpointRepository.findByMerchantId(merchantId)) {
+            if (!endpoint.isActive()) {
+                continue;
+            }
+            boolean ownSecret = endpoint.getSecret() != null;
+            targets.add(new Target(endpoint.getId(), endpoint.getUrl(),
+                    ownSecret ? endpoint.getSecret() : (merchant.getWebhookSecret() != null ? merchant.getWebhookSecret() : ""),
+                    ownSecret ? endpoint.getId() : merchantId, parseEvents(endpoint.getEvents())));
+        }
+        return List.copyOf(targets);
+    }
+}
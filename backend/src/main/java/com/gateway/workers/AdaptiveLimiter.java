@@ -0,0 +1,110 @@
+package com.gateway.workers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// AIMD limit on the jobs one queue may have in flight, in the spirit of Netflix
+// concurrency-limits. Every finished job group is a sample:
+//   - success, latency flat and at least half the limit in use: limit + 1
+//   - failure, or smoothed latency above `tolerance` x the baseline: limit x backoffRatio
+// The baseline is the lowest latency seen in the last baseline window, so it follows
+// slow drifts (a bigger DB, a slower bank) but not a spike. Cuts are spaced at least
+// one smoothed latency apart, so one slow batch costs one cut, not one per job.
+public class AdaptiveLimiter {
+
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double tolerance;
+    private final long baselineWindowNanos;
+
+    private double limit;
+    private int inFlight;
+    private double smoothedNanos;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private long windowStartedAt;
+    private long lastDecreaseAt;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double tolerance,
+            long baselineWindowMillis) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.minLimit = Math.max(1, Math.min(minLimit, this.maxLimit));
+        this.limit = Math.max(this.minLimit, Math.min(initialLimit, this.maxLimit));
+        this.backoffRatio = backoffRatio;
+        this.tolerance = tolerance;
+        this.baselineWindowNanos = TimeUnit.MILLISECONDS.toNanos(baselineWindowMillis);
+        this.windowStartedAt = System.nanoTime();
+    }
+
+    // Waits up to the timeout for a free slot under the current limit
+    public synchronized boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (inFlight >= (int) limit) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void release(int slots) {
+        inFlight = Math.max(0, inFlight - slots);
+        notifyAll();
+    }
+
+    // Records how long a group of jobs took from dispatch to completion
+    public synchronized void onSample(long latencyNanos, boolean failed) {
+        long now = System.nanoTime();
+        smoothedNanos = smoothedNanos == 0 ? latencyNanos
+                : smoothedNanos + SMOOTHING * (latencyNanos - smoothedNanos);
+
+        windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+        if (baselineNanos == Long.MAX_VALUE || now - windowStartedAt >= baselineWindowNanos) {
+            baselineNanos = windowMinNanos;
+            windowMinNanos = Long.MAX_VALUE;
+            windowStartedAt = now;
+        }
+
+        if (failed || smoothedNanos > baselineNanos * tolerance) {
+            if (now - lastDecreaseAt >= (long) smoothedNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseAt = now;
+                notifyAll();
+            }
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+            notifyAll();
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("limit", (int) limit);
+        snapshot.put("minLimit", minLimit);
+        snapshot.put("maxLimit", maxLimit);
+        snapshot.put("inFlight", inFlight);
+        snapshot.put("latencyMs", TimeUnit.NANOSECONDS.toMillis((long) smoothedNanos));
+        snapshot.put("baselineLatencyMs",
+                baselineNanos == Long.MAX_VALUE ? null : TimeUnit.NANOSECONDS.toMillis(baselineNanos));
+        return snapshot;
+    }
+}
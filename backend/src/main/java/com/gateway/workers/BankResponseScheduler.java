@@ -0,0 +1,106 @@
+package com.gateway.workers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Timer for the simulated bank round trip. A payment waiting on the "bank" is just
+// a deadline in this scheduler, not a blocked worker thread.
+//
+// On shutdown the deadlines still pending are run early rather than dropped: in list
+// and fair mode their jobs were acked when popped, and nothing else would ever settle
+// those payments.
+@Component
+public class BankResponseScheduler {
+
+    private final class Deadline implements Runnable {
+
+        private final Runnable bankResponse;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private Deadline(Runnable bankResponse) {
+            this.bankResponse = bankResponse;
+        }
+
+        @Override
+        public void run() {
+            // Once only, whether the timer or drain() gets there first
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            pending.remove(this);
+            try {
+                bankResponse.run();
+                future.complete(null);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+    @Value("${gateway.simulation.scheduler-threads:4}")
+    private int threads;
+
+    // Deadlines are rounded up to this window so a batch shares timers and DB writes
+    @Value("${gateway.worker.batch-window-ms:250}")
+    private long batchWindowMs;
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    private final Set<Deadline> pending = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void start() {
+        scheduler = new ScheduledThreadPoolExecutor(Math.max(1, threads),
+                new CustomizableThreadFactory("bank-response-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        // drain() runs them instead of waiting them out
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    // PaymentWorker and RefundWorker call this from their own @PreDestroy, while the
+    // repositories and Redis they settle through are still up
+    @PreDestroy
+    public void drain() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Deadline deadline : List.copyOf(pending)) {
+            deadline.run();
+        }
+    }
+
+    public long alignToWindow(long delayMillis) {
+        if (batchWindowMs <= 1) {
+            return delayMillis;
+        }
+        return ((delayMillis + batchWindowMs - 1) / batchWindowMs) * batchWindowMs;
+    }
+
+    // After drain() the response runs at once, on the caller's thread
+    public CompletableFuture<Void> schedule(long delayMillis, Runnable bankResponse) {
+        Deadline deadline = new Deadline(bankResponse);
+        pending.add(deadline);
+        try {
+            scheduler.schedule(deadline, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            deadline.run();
+        }
+        return deadline.future;
+    }
+}
@@ -0,0 +1,81 @@
+package com.gateway.workers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Collects items per key and hands each group to `flush` once it holds maxItems items
+// or its first item has waited windowMs, whichever comes first. An item's future
+// completes with its group's flush.
+public class KeyedBatcher<K, T> {
+
+    private final ScheduledExecutorService timer;
+    private final Function<List<T>, CompletableFuture<Void>> flush;
+    private final Map<K, Group<T>> open = new HashMap<>();
+
+    private static class Group<T> {
+        final List<T> items = new ArrayList<>();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+    }
+
+    public KeyedBatcher(ScheduledExecutorService timer, Function<List<T>, CompletableFuture<Void>> flush) {
+        this.timer = timer;
+        this.flush = flush;
+    }
+
+    public CompletableFuture<Void> add(K key, T item, int maxItems, long windowMs) {
+        Group<T> full = null;
+        Group<T> group;
+        synchronized (open) {
+            group = open.get(key);
+            if (group == null) {
+                Group<T> created = new Group<>();
+                group = created;
+                open.put(key, created);
+                timer.schedule(() -> flushIfOpen(key, created), windowMs, TimeUnit.MILLISECONDS);
+            }
+            group.items.add(item);
+            if (group.items.size() >= maxItems) {
+                open.remove(key);
+                full = group;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return group.done;
+    }
+
+    // Only the group this timer was started for: if it filled up and went out early, a
+    // newer group for the key has a timer of its own
+    private void flushIfOpen(K key, Group<T> group) {
+        boolean removed;
+        synchronized (open) {
+            removed = open.remove(key, group);
+        }
+        if (removed) {
+            send(group);
+        }
+    }
+
+    private void send(Group<T> group) {
+        CompletableFuture<Void> sent;
+        try {
+            sent = flush.apply(group.items);
+        } catch (Exception e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.whenComplete((result, error) -> {
+            if (error != null) {
+                group.done.completeExceptionally(error);
+            } else {
+                group.done.complete(null);
+            }
+        });
+    }
+}
@@ -1,21 +1,26 @@
 package com.gateway.workers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.gateway.jobs.DeliverWebhookJob;
-import com.gateway.jobs.ProcessPaymentJob;
 import com.gateway.jobs.ProcessPaymentJob;
 import com.gateway.models.Payment;
 import com.gateway.repositories.PaymentRepository;
 import com.gateway.services.JobService;
+import com.gateway.services.WebhookService;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class PaymentWorker {
@@ -29,7 +34,10 @@ public class PaymentWorker {
     private JobService jobService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private WebhookService webhookService;
+
+    @Autowired
+    private BankResponseScheduler bankResponseScheduler;
 
     @Value("${gateway.simulation.test-mode:false}")
     private boolean testMode;
@@ -40,20 +48,69 @@ public class PaymentWorker {
     @Value("${gateway.simulation.test-processing-delay:1000}")
     private long testProcessingDelay;
 
-    public void process(ProcessPaymentJob job) {
-        logger.info("Processing payment job: {}", job.getPaymentId());
+    // Settles the payments still waiting on the bank before the repositories go away
+    @PreDestroy
+    public void stop() {
+        bankResponseScheduler.drain();
+    }
+
+    public CompletableFuture<Void> process(ProcessPaymentJob job) {
+        return processBatch(List.of(job)).get(0);
+    }
+
+    // Loads the whole batch with one query. Deadlines that fall in the same window share
+    // one timer and one JDBC batch, so a backlog costs a few round trips per window
+    // instead of several per payment. Returned futures line up with the jobs.
+    public List<CompletableFuture<Void>> processBatch(List<ProcessPaymentJob> jobs) {
+        logger.info("Processing {} payment jobs", jobs.size());
 
-        Payment payment = paymentRepository.findById(job.getPaymentId()).orElse(null);
-        if (payment == null) {
-            logger.error("Payment not found: {}", job.getPaymentId());
-            return;
+        Set<String> ids = new HashSet<>();
+        for (ProcessPaymentJob job : jobs) {
+            ids.add(job.getPaymentId());
+        }
+        Map<String, Payment> payments = new HashMap<>();
+        for (Payment payment : paymentRepository.findAllById(ids)) {
+            payments.put(payment.getId(), payment);
         }
 
-        try {
-            // Simulate delay
+        Map<String, Long> windowByPayment = new HashMap<>();
+        Map<Long, List<Payment>> paymentsByWindow = new HashMap<>();
+        for (ProcessPaymentJob job : jobs) {
+            Payment payment = payments.get(job.getPaymentId());
+            if (payment == null) {
+                logger.error("Payment not found: {}", job.getPaymentId());
+                continue;
+            }
+            if (windowByPayment.containsKey(payment.getId())) {
+                continue; // Duplicate job in the same batch
+            }
+            if (!"pending".equals(payment.getStatus())) {
+                continue; // Already settled by an earlier delivery or retry of this job
+            }
+
+            // Simulate delay without holding the worker thread; the bank "responds" when the deadline fires
             long delay = testMode ? testProcessingDelay : 5000 + new Random().nextInt(5001);
-            Thread.sleep(delay);
+            long window = bankResponseScheduler.alignToWindow(delay);
+            windowByPayment.put(payment.getId(), window);
+            paymentsByWindow.computeIfAbsent(window, w -> new ArrayList<>()).add(payment);
+        }
+
+        Map<Long, CompletableFuture<Void>> responses = new HashMap<>();
+        paymentsByWindow.forEach((window, group) -> responses.put(window,
+                bankResponseScheduler.schedule(window, () -> completePayments(group))));
+
+        List<CompletableFuture<Void>> results = new ArrayList<>(jobs.size());
+        for (ProcessPaymentJob job : jobs) {
+            Long window = windowByPayment.get(job.getPaymentId());
+            results.add(window != null ? responses.get(window) : CompletableFuture.completedFuture(null));
+        }
+        return results;
+    }
 
+    // A failed status update fails the jobs so WorkerRunner retries them
+    private void completePayments(List<Payment> group) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Payment payment : group) {
             boolean success = determineOutcome(payment.getMethod());
 
             if (success) {
@@ -65,17 +122,22 @@ public class PaymentWorker {
                 payment.setErrorCode("PAYMENT_FAILED");
                 payment.setErrorDescription("Payment failed due to bank rejection");
             }
+            payment.setUpdatedAt(now);
+        }
 
-            paymentRepository.save(payment);
-
-            // Enqueue Webhook
-            enqueueWebhook(payment);
+        // Only the payments still pending are settled: another delivery of the same job
+        // (a reaped lease, a claimed stream entry, an outbox retry) may have got there first
+        List<Payment> settled = paymentRepository.batchUpdateStatus(group);
+        if (settled.size() < group.size()) {
+            logger.info("{} of {} payments were already settled", group.size() - settled.size(), group.size());
+        }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.error("Worker interrupted", e);
+        // Enqueue Webhooks, one push for the whole group. The payments are settled by now,
+        // so a retry would skip them; a failed push is only logged.
+        try {
+            jobService.runBuffered(() -> settled.forEach(this::enqueueWebhook));
         } catch (Exception e) {
-            logger.error("Error processing payment", e);
+            logger.error("Error enqueueing webhooks for {} payments", settled.size(), e);
         }
     }
 
@@ -95,24 +157,10 @@ public class PaymentWorker {
         try {
             String event = "payment." + payment.getStatus();
 
-            // Build payload
             Map<String, Object> data = new HashMap<>();
             data.put("payment", payment);
 
-            Map<String, Object> payloadMap = new HashMap<>();
-            payloadMap.put("event", event);
-            payloadMap.put("timestamp", System.currentTimeMillis() / 1000);
-            payloadMap.put("data", data);
-
-            String payloadJson = objectMapper.writeValueAsString(payloadMap);
-
-            DeliverWebhookJob webhookJob = new DeliverWebhookJob(
-                    payment.getMerchantId(),
-                    event,
-                    payloadJson,
-                    null);
-
-            jobService.scheduleWebhookDelivery(webhookJob);
+            webhookService.publish(payment.getMerchantId(), event, data);
 
         } catch (Exception e) {
             logger.error("Error enqueueing webhook", e);
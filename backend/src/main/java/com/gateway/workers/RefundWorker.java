@@ -1,20 +1,25 @@
 package com.gateway.workers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.gateway.jobs.DeliverWebhookJob;
 import com.gateway.jobs.ProcessRefundJob;
 import com.gateway.models.Refund;
 import com.gateway.repositories.RefundRepository;
 import com.gateway.services.JobService;
+import com.gateway.services.WebhookService;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class RefundWorker {
@@ -28,43 +33,99 @@ public class RefundWorker {
     private JobService jobService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private WebhookService webhookService;
 
-    public void process(ProcessRefundJob job) {
-        logger.info("Processing refund job: {}", job.getRefundId());
+    @Autowired
+    private BankResponseScheduler bankResponseScheduler;
+
+    // Settles the refunds still waiting on the bank before the repositories go away
+    @PreDestroy
+    public void stop() {
+        bankResponseScheduler.drain();
+    }
+
+    public CompletableFuture<Void> process(ProcessRefundJob job) {
+        return processBatch(List.of(job)).get(0);
+    }
 
-        Refund refund = refundRepository.findById(job.getRefundId()).orElse(null);
-        if (refund == null) {
-            logger.error("Refund not found: {}", job.getRefundId());
-            return;
+    // Same batching as PaymentWorker: one findAllById, one timer and JDBC batch per window
+    public List<CompletableFuture<Void>> processBatch(List<ProcessRefundJob> jobs) {
+        logger.info("Processing {} refund jobs", jobs.size());
+
+        Set<String> ids = new HashSet<>();
+        for (ProcessRefundJob job : jobs) {
+            ids.add(job.getRefundId());
+        }
+        Map<String, Refund> refunds = new HashMap<>();
+        for (Refund refund : refundRepository.findAllById(ids)) {
+            refunds.put(refund.getId(), refund);
         }
 
-        try {
-            // Retrieve payment to check status and total refunds
-            // Note: The controller should have done initial validation, but we double-check
-            // or finalize here.
+        // Retrieve payment to check status and total refunds
+        // Note: The controller should have done initial validation, but we double-check
+        // or finalize here.
+
+        Map<String, Long> windowByRefund = new HashMap<>();
+        Map<Long, List<Refund>> refundsByWindow = new HashMap<>();
+        for (ProcessRefundJob job : jobs) {
+            Refund refund = refunds.get(job.getRefundId());
+            if (refund == null) {
+                logger.error("Refund not found: {}", job.getRefundId());
+                continue;
+            }
+            if (windowByRefund.containsKey(refund.getId())) {
+                continue; // Duplicate job in the same batch
+            }
+            if (!"pending".equals(refund.getStatus())) {
+                continue; // Already processed by an earlier delivery or retry of this job
+            }
 
             // Simulate delay
-            Thread.sleep(3000 + new Random().nextInt(2001)); // 3-5 seconds
+            long delay = 3000 + new Random().nextInt(2001); // 3-5 seconds
+            long window = bankResponseScheduler.alignToWindow(delay);
+            windowByRefund.put(refund.getId(), window);
+            refundsByWindow.computeIfAbsent(window, w -> new ArrayList<>()).add(refund);
+        }
 
-            refund.setStatus("processed");
-            refund.setProcessedAt(LocalDateTime.now());
-            refundRepository.save(refund);
+        Map<Long, CompletableFuture<Void>> responses = new HashMap<>();
+        refundsByWindow.forEach((window, group) -> responses.put(window,
+                bankResponseScheduler.schedule(window, () -> completeRefunds(group))));
 
-            // Update payment if full refund?
-            // Logic says "verified total refunded amount... does not exceed" which is
-            // validation.
-            // If full refund, optionally update payment record. Let's skip updating payment
-            // status for now to keep it simple,
-            // unless requirement says so explicitly. It says "Optionally update payment
-            // record".
+        List<CompletableFuture<Void>> results = new ArrayList<>(jobs.size());
+        for (ProcessRefundJob job : jobs) {
+            Long window = windowByRefund.get(job.getRefundId());
+            results.add(window != null ? responses.get(window) : CompletableFuture.completedFuture(null));
+        }
+        return results;
+    }
+
+    // A failed status update fails the jobs so WorkerRunner retries them
+    private void completeRefunds(List<Refund> group) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Refund refund : group) {
+            refund.setStatus("processed");
+            refund.setProcessedAt(now);
+        }
+        // Only the refunds still pending are processed: another delivery of the same job
+        // may have got there first
+        List<Refund> processed = refundRepository.batchUpdateStatus(group);
+        if (processed.size() < group.size()) {
+            logger.info("{} of {} refunds were already processed", group.size() - processed.size(), group.size());
+        }
 
-            enqueueWebhook(refund);
+        // Update payment if full refund?
+        // Logic says "verified total refunded amount... does not exceed" which is
+        // validation.
+        // If full refund, optionally update payment record. Let's skip updating payment
+        // status for now to keep it simple,
+        // unless requirement says so explicitly. It says "Optionally update payment
+        // record".
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        // Refunds are processed by now, so a retry would skip them; a failed push is only logged
+        try {
+            jobService.runBuffered(() -> processed.forEach(this::enqueueWebhook));
         } catch (Exception e) {
-            logger.error("Error processing refund", e);
+            logger.error("Error enqueueing webhooks for {} refunds", processed.size(), e);
         }
     }
 
@@ -75,20 +136,7 @@ public class RefundWorker {
             Map<String, Object> data = new HashMap<>();
             data.put("refund", refund);
 
-            Map<String, Object> payloadMap = new HashMap<>();
-            payloadMap.put("event", event);
-            payloadMap.put("timestamp", System.currentTimeMillis() / 1000);
-            payloadMap.put("data", data);
-
-            String payloadJson = objectMapper.writeValueAsString(payloadMap);
-
-            DeliverWebhookJob webhookJob = new DeliverWebhookJob(
-                    refund.getMerchantId(),
-                    event,
-                    payloadJson,
-                    null);
-
-            jobService.scheduleWebhookDelivery(webhookJob);
+            webhookService.publish(refund.getMerchantId(), event, data);
 
         } catch (Exception e) {
             logger.error("Error enqueueing webhook", e);
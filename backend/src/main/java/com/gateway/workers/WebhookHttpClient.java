@@ -0,0 +1,142 @@
+package com.gateway.workers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+// Async webhook transport on the JDK HttpClient. Connections are kept alive and pooled
+// per host by the client, HTTP/2 is negotiated where the endpoint offers it (h2 over
+// TLS), and an outstanding delivery holds no thread, only a socket and a timer.
+// Every request has a hard deadline and at most max-response-bytes of the response
+// body are kept; the rest is discarded unread.
+@Component
+public class WebhookHttpClient {
+
+    @Value("${gateway.webhook.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    // Whole request, connect to last body byte
+    @Value("${gateway.webhook.http.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${gateway.webhook.http.max-response-bytes:4096}")
+    private int maxResponseBytes;
+
+    // Threads for I/O completion and the work chained on it (saving the log)
+    @Value("${gateway.webhook.http.threads:16}")
+    private int threads;
+
+    private ExecutorService executor;
+    private HttpClient client;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(Math.max(2, threads), new CustomizableThreadFactory("webhook-http-"));
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(executor)
+                .build();
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    // The body array is sent as-is, not copied; callers must not change it afterwards
+    public CompletableFuture<HttpResponse<String>> post(String url, byte[] body, String signature) {
+        return post(url, body, signature, Map.of(), maxResponseBytes);
+    }
+
+    // Extra headers and a response cap of its own, for batch deliveries whose
+    // response carries one status per event
+    public CompletableFuture<HttpResponse<String>> post(String url, byte[] body, String signature,
+            Map<String, String> headers, int responseBytes) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Content-Type", "application/json")
+                .header("X-Webhook-Signature", signature);
+        headers.forEach(builder::header);
+        HttpRequest request = builder
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body != null ? body : new byte[0]))
+                .build();
+        // The request timeout stops at the headers; this one also covers a slow body
+        return client.sendAsync(request, info -> new CappedBodySubscriber(responseBytes))
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Keeps the first `max` bytes as UTF-8 and cancels the stream once it has them
+    private static class CappedBodySubscriber implements HttpResponse.BodySubscriber<String> {
+
+        private final int max;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        CappedBodySubscriber(int max) {
+            this.max = Math.max(0, max);
+        }
+
+        @Override
+        public CompletionStage<String> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            for (ByteBuffer buffer : buffers) {
+                int take = Math.min(buffer.remaining(), max - out.size());
+                byte[] chunk = new byte[take];
+                buffer.get(chunk);
+                out.writeBytes(chunk);
+            }
+            if (out.size() >= max) {
+                subscription.cancel();
+                complete();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            complete();
+        }
+
+        private void complete() {
+            result.complete(out.toString(StandardCharsets.UTF_8));
+        }
+    }
+}
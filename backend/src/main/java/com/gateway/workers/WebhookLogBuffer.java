@@ -0,0 +1,246 @@
+package com.gateway.workers;
+
+import com.gateway.models.WebhookLog;
+import com.gateway.repositories.WebhookLogRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Write-behind for webhook delivery logs. Inserts and attempt updates collect here and
+// go to the database as JDBC batches every flush-interval-ms or batch-size rows.
+// Writes to the same log coalesce into its latest state.
+//
+// Durability is bounded: about max-pending rows, none older than one flush interval
+// unless the database is failing, are lost if the process dies. Before each delivery
+// the worker calls awaitCapacity, which flushes on its thread while the buffer is full
+// and throws if that fails, so a slow or down database stops deliveries instead of
+// growing the buffer. The buffer is flushed on shutdown, and saves that arrive after
+// that (deliveries still completing) are written on the caller's thread.
+//
+// A batch the database rejects is written again row by row: rows rejected on their own
+// (a constraint violation, a value too long for its column) are logged and dropped so
+// they cannot block every later flush; the rest go back to the buffer.
+@Component
+public class WebhookLogBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookLogBuffer.class);
+
+    @Autowired
+    private WebhookLogRepository webhookLogRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Off: every save goes straight to the repository
+    @Value("${gateway.webhook.log-buffer.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gateway.webhook.log-buffer.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${gateway.webhook.log-buffer.batch-size:500}")
+    private int batchSize;
+
+    @Value("${gateway.webhook.log-buffer.max-pending:5000}")
+    private int maxPending;
+
+    private record Pending(WebhookLog log, boolean insert) {
+    }
+
+    // Guarded by `this`; pending in arrival order, writing holds the batch being written
+    private final Map<UUID, Pending> pending = new LinkedHashMap<>();
+    private final Map<UUID, Pending> writing = new HashMap<>();
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flusher;
+    private volatile boolean stopped;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("webhook-log-flush-"));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        stopped = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                logger.error("Dropped {} webhook log writes at shutdown", pending.size());
+            }
+        }
+    }
+
+    // `created` marks a log that is not in the database yet; it must already have its id
+    public void save(WebhookLog log, boolean created) {
+        if (!enabled) {
+            // Same statements as a flush: JPA's save() would look the row up by id alone
+            if (created) {
+                webhookLogRepository.insertAll(List.of(log));
+            } else {
+                webhookLogRepository.updateAttempts(List.of(log));
+            }
+            return;
+        }
+        // Snapshot: the caller may keep changing its copy
+        WebhookLog snapshot = log.toBuilder().build();
+        int size;
+        synchronized (this) {
+            Pending previous = pending.get(log.getId());
+            pending.put(log.getId(), new Pending(snapshot, created || (previous != null && previous.insert())));
+            size = pending.size();
+        }
+        if (stopped) {
+            flushQuietly();
+            return;
+        }
+        if (size == batchSize) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // Shutting down: stop() flushes what is left
+            }
+        }
+    }
+
+    // With the buffer full, flushes on the caller's thread and throws if that fails
+    public void awaitCapacity() {
+        if (enabled && pendingCount() >= maxPending) {
+            flush();
+        }
+    }
+
+    // The buffered state of a log not yet written, so a retry never reads a stale row
+    public Optional<WebhookLog> find(UUID id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Pending entry;
+        synchronized (this) {
+            entry = pending.getOrDefault(id, writing.get(id));
+        }
+        return entry != null ? Optional.of(entry.log().toBuilder().build()) : Optional.empty();
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Error flushing webhook logs", e);
+        }
+    }
+
+    // Writes everything pending, batch-size rows per transaction. Rows that could not be
+    // written go back to the buffer unless a newer write for the same log arrived meanwhile.
+    public void flush() {
+        synchronized (flushLock) {
+            while (true) {
+                List<Pending> batch = new ArrayList<>();
+                synchronized (this) {
+                    Iterator<Pending> it = pending.values().iterator();
+                    while (it.hasNext() && batch.size() < batchSize) {
+                        Pending entry = it.next();
+                        batch.add(entry);
+                        writing.put(entry.log().getId(), entry);
+                        it.remove();
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                List<Pending> failed;
+                RuntimeException error = null;
+                try {
+                    write(batch);
+                    failed = List.of();
+                } catch (RuntimeException e) {
+                    error = e;
+                    failed = writeEach(batch);
+                }
+                synchronized (this) {
+                    writing.clear();
+                    for (Pending entry : failed) {
+                        Pending newer = pending.get(entry.log().getId());
+                        if (newer == null) {
+                            pending.put(entry.log().getId(), entry);
+                        } else if (entry.insert() && !newer.insert()) {
+                            pending.put(entry.log().getId(), new Pending(newer.log(), true));
+                        }
+                    }
+                }
+                if (!failed.isEmpty()) {
+                    throw error;
+                }
+            }
+        }
+    }
+
+    // Returns the rows to keep for a later flush. The first failure that is not the row's
+    // own fault (the database is down, say) keeps it and the rest of the batch unwritten.
+    private List<Pending> writeEach(List<Pending> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            Pending entry = batch.get(i);
+            try {
+                write(List.of(entry));
+            } catch (DataIntegrityViolationException e) {
+                logger.error("Dropped webhook log {} ({}): rejected by the database: {}", entry.log().getId(),
+                        entry.log().getStatus(), e.getMostSpecificCause().getMessage());
+            } catch (RuntimeException e) {
+                return batch.subList(i, batch.size());
+            }
+        }
+        return List.of();
+    }
+
+    private void write(List<Pending> batch) {
+        List<WebhookLog> inserts = new ArrayList<>();
+        List<WebhookLog> updates = new ArrayList<>();
+        for (Pending entry : batch) {
+            (entry.insert() ? inserts : updates).add(entry.log());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!inserts.isEmpty()) {
+                webhookLogRepository.insertAll(inserts);
+            }
+            if (!updates.isEmpty()) {
+                webhookLogRepository.updateAttempts(updates);
+            }
+        });
+    }
+}
@@ -0,0 +1,154 @@
+package com.gateway.workers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// Webhook delivery SLIs, scraped from /actuator/prometheus:
+//   webhook.delivery.duration   POST latency, by mode (single/batch) and response class
+//   webhook.delivery.attempts   attempts by outcome (success/retry/failed) and response class
+//   webhook.delivery.deferred   deliveries put back without an attempt, by reason
+//   webhook.retry.backlog       retries waiting in the delayed set
+//   webhook.retry.oldest.pending.age   age of the oldest event still waiting for a retry
+//
+// The merchant tag names only the top-merchants merchants with the most attempts in the
+// last refresh period and is "other" for the rest. Series of merchants that drop out of
+// the top are removed, so the series count stays bounded however many merchants there are.
+@Component
+public class WebhookMetrics {
+
+    public static final String TIMEOUT = "timeout";
+    public static final String ERROR = "error";
+
+    private static final String OTHER = "other";
+    private static final String MERCHANT_TAG = "merchant";
+
+    // Bounds the counting map between refreshes; merchants past it count as "other"
+    private static final int MAX_TRACKED_MERCHANTS = 100_000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${gateway.metrics.webhook.top-merchants:20}")
+    private int topMerchants;
+
+    private final Map<UUID, LongAdder> attemptsByMerchant = new ConcurrentHashMap<>();
+    private volatile Set<String> topMerchantTags = Set.of();
+
+    private final AtomicLong retryBacklog = new AtomicLong();
+    private final AtomicLong oldestPendingAgeMs = new AtomicLong();
+    private final AtomicBoolean backlogGaugesRegistered = new AtomicBoolean();
+
+    public void recordDelivery(UUID merchantId, String mode, long startNanos, String responseClass) {
+        Timer.builder("webhook.delivery.duration")
+                .description("Webhook POST latency, request to response")
+                .tag(MERCHANT_TAG, merchantTag(merchantId))
+                .tag("mode", mode)
+                .tag("response_class", responseClass)
+                .serviceLevelObjectives(Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250),
+                        Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofMillis(2500),
+                        Duration.ofSeconds(5), Duration.ofSeconds(10))
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // `status` is the log status after the attempt: success, pending (will retry) or failed
+    public void recordAttempt(UUID merchantId, String status, String responseClass) {
+        countAttempt(merchantId);
+        Counter.builder("webhook.delivery.attempts")
+                .description("Webhook delivery attempts by outcome")
+                .tag(MERCHANT_TAG, merchantTag(merchantId))
+                .tag("outcome", "pending".equals(status) ? "retry" : status)
+                .tag("response_class", responseClass)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordDeferred(UUID merchantId, String reason) {
+        Counter.builder("webhook.delivery.deferred")
+                .description("Webhook deliveries deferred without an attempt")
+                .tag(MERCHANT_TAG, merchantTag(merchantId))
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Gauges appear on the first sample, so nodes that never sample (the API) do not report zeros
+    public void updateRetryBacklog(long size, long oldestAgeMs) {
+        retryBacklog.set(size);
+        oldestPendingAgeMs.set(oldestAgeMs);
+        if (backlogGaugesRegistered.compareAndSet(false, true)) {
+            Gauge.builder("webhook.retry.backlog", retryBacklog, AtomicLong::get)
+                    .description("Webhook retries waiting for their due time")
+                    .register(meterRegistry);
+            Gauge.builder("webhook.retry.oldest.pending.age", oldestPendingAgeMs, age -> age.get() / 1000.0)
+                    .description("Age of the oldest webhook event still waiting for a retry")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    public static String responseClass(int statusCode) {
+        return statusCode >= 100 && statusCode < 600 ? (statusCode / 100) + "xx" : ERROR;
+    }
+
+    // Picks the busiest merchants of the period just ended and drops the series of the rest
+    @Scheduled(fixedDelayString = "${gateway.metrics.webhook.top-merchants-refresh-ms:60000}")
+    public void refreshTopMerchants() {
+        List<Map.Entry<UUID, LongAdder>> counts = List.copyOf(attemptsByMerchant.entrySet());
+        attemptsByMerchant.clear();
+        Set<String> top = counts.stream()
+                .sorted(Comparator.comparingLong((Map.Entry<UUID, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(topMerchants)
+                .map(e -> e.getKey().toString())
+                .collect(Collectors.toUnmodifiableSet());
+        topMerchantTags = top;
+        for (Meter meter : meterRegistry.getMeters()) {
+            String merchant = meter.getId().getTag(MERCHANT_TAG);
+            if (meter.getId().getName().startsWith("webhook.") && merchant != null
+                    && !OTHER.equals(merchant) && !top.contains(merchant)) {
+                meterRegistry.remove(meter);
+            }
+        }
+    }
+
+    private void countAttempt(UUID merchantId) {
+        if (merchantId == null) {
+            return;
+        }
+        LongAdder count = attemptsByMerchant.get(merchantId);
+        if (count == null && attemptsByMerchant.size() < MAX_TRACKED_MERCHANTS) {
+            count = attemptsByMerchant.computeIfAbsent(merchantId, id -> new LongAdder());
+        }
+        if (count != null) {
+            count.increment();
+        }
+    }
+
+    private String merchantTag(UUID merchantId) {
+        if (merchantId == null) {
+            return OTHER;
+        }
+        String tag = merchantId.toString();
+        return topMerchantTags.contains(tag) ? tag : OTHER;
+    }
+}
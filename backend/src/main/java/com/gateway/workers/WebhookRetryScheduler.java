@@ -1,20 +1,29 @@
 package com.gateway.workers;
 
 import com.gateway.jobs.DeliverWebhookJob;
+import com.gateway.jobs.JobCodec;
 import com.gateway.models.WebhookLog;
+import com.gateway.queue.JobQueue;
 import com.gateway.repositories.WebhookLogRepository;
 import com.gateway.services.JobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
+// Webhook retries wait in the delayed set of queue:webhooks (see WebhookWorker).
+// Every worker promotes due entries; the promote script is atomic, so a retry is
+// enqueued once no matter how many nodes run this.
 @Component
 @EnableScheduling
 @Profile("worker")
@@ -22,45 +31,91 @@ public class WebhookRetryScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(WebhookRetryScheduler.class);
 
+    @Autowired
+    private JobQueue jobQueue;
+
     @Autowired
     private WebhookLogRepository webhookLogRepository;
 
     @Autowired
     private JobService jobService;
 
-    // Run every 10 seconds to check for retries
-    @Scheduled(fixedDelay = 10000)
-    public void checkRetries() {
+    @Autowired
+    private WebhookMetrics webhookMetrics;
+
+    @Autowired
+    private JobCodec jobCodec;
+
+    @Value("${gateway.webhook.retry.promote-batch-size:500}")
+    private int promoteBatchSize;
+
+    // Rows still pending this long after their retry time, beyond what queue:webhooks is
+    // currently behind, never made it into Redis (scheduled before the delayed set
+    // existed, or the ZADD failed)
+    @Value("${gateway.webhook.retry.reconcile-grace-ms:300000}")
+    private long reconcileGraceMs;
+
+    @Value("${gateway.webhook.retry.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    @Scheduled(fixedDelayString = "${gateway.webhook.retry.promote-interval-ms:250}")
+    public void promoteDueRetries() {
         try {
-            List<WebhookLog> pendingLogs = webhookLogRepository.findByStatusAndNextRetryAtBefore("pending",
-                    LocalDateTime.now());
+            long moved;
+            do {
+                moved = jobQueue.promoteDue(JobService.QUEUE_WEBHOOKS, System.currentTimeMillis(), promoteBatchSize);
+                if (moved > 0) {
+                    logger.info("Re-queued {} webhooks for retry", moved);
+                }
+            } while (moved >= promoteBatchSize);
+        } catch (Exception e) {
+            logger.error("Error in retry scheduler", e);
+        }
+    }
+
+    // Retry backlog gauges: size of the delayed set and age of the oldest pending event
+    @Scheduled(fixedDelayString = "${gateway.metrics.webhook.backlog-interval-ms:15000}")
+    public void sampleBacklog() {
+        try {
+            long size = jobQueue.delayedSize(JobService.QUEUE_WEBHOOKS);
+            LocalDateTime oldest = webhookLogRepository.findOldestPendingCreatedAt();
+            long oldestAgeMs = oldest != null ? Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis()) : 0;
+            webhookMetrics.updateRetryBacklog(size, oldestAgeMs);
+        } catch (Exception e) {
+            logger.error("Error sampling webhook retry backlog", e);
+        }
+    }
 
-            for (WebhookLog log : pendingLogs) {
-                logger.info("Re-queueing webhook for retry: {}", log.getId());
+    // Safety net on the (status, next_retry_at) index, not the regular retry path.
+    // Rows are claimed atomically (moved to now), so each is re-queued by one node, and
+    // a promoted retry still waiting behind a deep queue:webhooks is not taken for stranded.
+    @Scheduled(fixedDelayString = "${gateway.webhook.retry.reconcile-interval-ms:300000}",
+            initialDelayString = "${gateway.webhook.retry.reconcile-interval-ms:300000}")
+    public void reconcileStrandedRetries() {
+        try {
+            long now = System.currentTimeMillis();
+            long enqueuedAt = jobCodec.enqueuedAt(jobQueue.peekOldest(JobService.QUEUE_WEBHOOKS));
+            long queueLagMs = enqueuedAt > 0 ? Math.max(0, now - enqueuedAt) : 0;
+            LocalDateTime cutoff = LocalDateTime.now().minusNanos((reconcileGraceMs + queueLagMs) * 1_000_000);
+            List<WebhookLog> stranded = webhookLogRepository.claimStrandedRetries(cutoff, reconcileBatchSize);
+            if (stranded.isEmpty()) {
+                return;
+            }
 
-                DeliverWebhookJob job = new DeliverWebhookJob(
+            List<DeliverWebhookJob> jobs = new ArrayList<>(stranded.size());
+            for (WebhookLog log : stranded) {
+                jobs.add(new DeliverWebhookJob(
                         log.getMerchantId(),
                         log.getEvent(),
-                        log.getPayload(),
-                        log.getId());
-
-                jobService.scheduleWebhookDelivery(job);
-
-                // Update nextRetryAt to avoid immediate re-pickup by this polled (though
-                // setting to null or tomorrow might be safer until processed,
-                // but effectively we just assume it gets picked up. To be safe, we could set
-                // nextRetryAt to null or future in the worker).
-                // Actually the Worker will update it. But to prevent double queuing if worker
-                // is slow, we should probably "lock" it or update timestamp.
-                // For this simple implementation, if we run every 10s, we might double queue if
-                // queue is backed up.
-                // Let's bump it forward temporarily.
-
-                log.setNextRetryAt(LocalDateTime.now().plusMinutes(1)); // Temorary bump
-                webhookLogRepository.save(log);
+                        log.getPayload().getBytes(StandardCharsets.UTF_8),
+                        log.getId(),
+                        log.getEndpointId(),
+                        null));
             }
+            jobService.scheduleWebhookDelivery(jobs);
+            logger.warn("Re-queued {} stranded webhook retries", jobs.size());
         } catch (Exception e) {
-            logger.error("Error in retry scheduler", e);
+            logger.error("Error reconciling webhook retries", e);
         }
     }
 }
@@ -1,23 +1,47 @@
 package com.gateway.workers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gateway.jobs.DeliverWebhookJob;
 import com.gateway.models.Merchant;
 import com.gateway.models.WebhookLog;
-import com.gateway.repositories.MerchantRepository;
 import com.gateway.repositories.WebhookLogRepository;
+import com.gateway.services.JobService;
+import com.gateway.services.MerchantCache;
+import com.gateway.services.WebhookCircuitBreaker;
+import com.gateway.services.WebhookRateLimiter;
+import com.gateway.services.WebhookRetryPolicies;
+import com.gateway.services.WebhookRetryPolicy;
 import com.gateway.services.WebhookService;
+import com.gateway.services.WebhookSubscriptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Component
 public class WebhookWorker {
@@ -25,7 +49,7 @@ public class WebhookWorker {
     private static final Logger logger = LoggerFactory.getLogger(WebhookWorker.class);
 
     @Autowired
-    private MerchantRepository merchantRepository;
+    private MerchantCache merchantCache;
 
     @Autowired
     private WebhookLogRepository webhookLogRepository;
@@ -33,96 +57,432 @@ public class WebhookWorker {
     @Autowired
     private WebhookService webhookService;
 
-    @Value("${webhook.retry.intervals.test:false}")
-    private boolean testRetryIntervals;
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private WebhookHttpClient webhookHttpClient;
+
+    @Autowired
+    private WebhookCircuitBreaker webhookCircuitBreaker;
+
+    @Autowired
+    private WebhookSubscriptions webhookSubscriptions;
+
+    @Autowired
+    private WebhookRateLimiter webhookRateLimiter;
+
+    @Autowired
+    private WebhookRetryPolicies webhookRetryPolicies;
+
+    @Autowired
+    private WebhookLogBuffer webhookLogBuffer;
+
+    @Autowired
+    private WebhookMetrics webhookMetrics;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${gateway.webhook.batch.enabled:true}")
+    private boolean batchEnabled;
+
+    @Value("${gateway.webhook.batch.max-size:100}")
+    private int maxBatchSize;
+
+    // Window for merchants that set a batch size but no window
+    @Value("${gateway.webhook.batch.default-window-ms:1000}")
+    private int defaultBatchWindowMs;
+
+    // Room for a per-event status array in the batch response
+    @Value("${gateway.webhook.batch.max-response-bytes:65536}")
+    private int batchResponseBytes;
+
+    // Of the response body, what the delivery log keeps
+    @Value("${gateway.webhook.log.max-response-body-chars:1024}")
+    private int maxResponseBodyChars;
+
+    // Events for one destination waiting to go out together. The key carries the URL and
+    // secret, so a config change mid-window starts a new batch.
+    private record BatchTarget(UUID merchantId, String url, String secret, UUID keyId) {
+    }
+
+    private record BatchedEvent(BatchTarget target, WebhookLog log, boolean created, byte[] payload,
+                                WebhookRetryPolicy retryPolicy, Duration sinceLastAttempt) {
+    }
+
+    // Batch windows and deliveries waiting for their rate limit slot
+    private ScheduledExecutorService timer;
+    private KeyedBatcher<BatchTarget, BatchedEvent> batcher;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @PostConstruct
+    public void start() {
+        timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("webhook-timer-"));
+        batcher = new KeyedBatcher<>(timer, this::deliverBatch);
+    }
 
-    public void process(DeliverWebhookJob job) {
+    // Open batches and waiting deliveries still go out: shutdown() runs pending timers first
+    @PreDestroy
+    public void stop() {
+        timer.shutdown();
+    }
+
+    // Lookups run on the caller's thread; the POST is async and the log is saved when it
+    // completes, on a WebhookHttpClient thread. The future fails only when the log
+    // cannot be saved, not when the merchant endpoint fails.
+    public CompletableFuture<Void> process(DeliverWebhookJob job) {
         logger.info("Processing webhook job for merchant: {}", job.getMerchantId());
 
-        Merchant merchant = merchantRepository.findById(job.getMerchantId()).orElse(null);
+        Merchant merchant = merchantCache.byId(job.getMerchantId()).orElse(null);
         if (merchant == null) {
             logger.error("Merchant not found");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        if (merchant.getWebhookUrl() == null || merchant.getWebhookUrl().isEmpty()) {
+        // The endpoint the event was fanned out to, or the merchant's own webhook_url
+        WebhookSubscriptions.Target target = job.getEndpointId() != null
+                ? webhookSubscriptions.endpoint(merchant.getId(), job.getEndpointId())
+                : WebhookSubscriptions.merchantTarget(merchant);
+        if (target == null && job.getWebhookLogId() == null) {
             logger.info("No webhook URL configured for merchant provided");
-            return;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Log writes are buffered; with the buffer full and the database failing, fail the
+        // job before delivering rather than deliver without a record
+        try {
+            webhookLogBuffer.awaitCapacity();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
         }
 
         // Generate ID / Log Entry
-        WebhookLog log;
+        WebhookLog log = null;
         if (job.getWebhookLogId() != null) {
-            log = webhookLogRepository.findById(job.getWebhookLogId()).orElse(null);
-            if (log == null) {
-                // If ID passed but not found (shouldn't happen), create new
-                log = createNewLog(job, merchant.getId());
-            }
-        } else {
+            log = webhookLogBuffer.find(job.getWebhookLogId())
+                    .or(() -> webhookLogRepository.findById(job.getWebhookLogId()))
+                    .orElse(null);
+        }
+        // If ID passed but not found (shouldn't happen), create new
+        boolean created = log == null;
+        if (created) {
             log = createNewLog(job, merchant.getId());
         }
 
-        // Perform Delivery
+        // Destination removed since the first attempt: end the retries
+        if (target == null) {
+            log.setStatus("failed");
+            log.setNextRetryAt(null);
+            log.setResponseBody("Webhook endpoint no longer configured");
+            return saveNow(log, created, job.getPayload());
+        }
+
+        // Endpoint circuit open: straight back to the retry schedule, no attempt used, until
+        // the event is past its retry policy's max age
+        WebhookRetryPolicy retryPolicy = webhookRetryPolicies.forDelivery(merchant, log.getEvent());
+        long deferUntil = webhookCircuitBreaker.deferUntil(target.url());
+        if (deferUntil > 0) {
+            webhookMetrics.recordDeferred(merchant.getId(), "circuit_open");
+            defer(log, deferUntil, 1000, retryPolicy, "endpoint circuit open");
+            return saveNow(log, created, job.getPayload());
+        }
+
+        // Over the merchant's outbound rate: wait here for a slot up to the limiter's
+        // max-wait-ms, otherwise back to the retry schedule, no attempt used, until the event
+        // is past its retry policy's max age. A batched event costs its share of one request.
+        Integer batchSize = merchant.getWebhookBatchSize();
+        int groupSize = batchEnabled && batchSize != null && batchSize > 1 ? Math.min(batchSize, maxBatchSize) : 1;
+        WebhookRateLimiter.Slot slot = webhookRateLimiter.acquire(merchant, 1.0 / groupSize);
+        if (!slot.granted()) {
+            webhookMetrics.recordDeferred(merchant.getId(), "rate_limit");
+            defer(log, System.currentTimeMillis() + slot.waitMs(), slot.waitMs(), retryPolicy, "rate limited");
+            return saveNow(log, created, job.getPayload());
+        }
+        if (slot.waitMs() <= 0) {
+            return deliver(merchant, target, job, log, created, groupSize);
+        }
+        WebhookLog waiting = log;
+        CompletableFuture<Void> delivered = new CompletableFuture<>();
         try {
-            log.setLastAttemptAt(LocalDateTime.now());
-            log.setAttempts(log.getAttempts() + 1);
+            timer.schedule(() -> {
+                // A synchronous throw would otherwise leave `delivered` pending forever,
+                // holding the worker permit and the job unacked
+                try {
+                    deliver(merchant, target, job, waiting, created, groupSize).whenComplete((result, error) -> {
+                        if (error != null) {
+                            delivered.completeExceptionally(error);
+                        } else {
+                            delivered.complete(null);
+                        }
+                    });
+                } catch (Throwable e) {
+                    delivered.completeExceptionally(e);
+                }
+            }, slot.waitMs(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return delivered;
+    }
 
-            String signature = webhookService.generateSignature(job.getPayload(),
-                    merchant.getWebhookSecret() != null ? merchant.getWebhookSecret() : "");
+    private CompletableFuture<Void> deliver(Merchant merchant, WebhookSubscriptions.Target target,
+                                            DeliverWebhookJob job, WebhookLog log, boolean created, int groupSize) {
+        LocalDateTime now = LocalDateTime.now();
+        Duration sinceLastAttempt = log.getLastAttemptAt() != null ? Duration.between(log.getLastAttemptAt(), now) : null;
+        WebhookRetryPolicy retryPolicy = webhookRetryPolicies.forDelivery(merchant, log.getEvent());
+        log.setLastAttemptAt(now);
+        log.setAttempts(log.getAttempts() + 1);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("X-Webhook-Signature", signature);
+        if (groupSize > 1) {
+            Integer windowMs = merchant.getWebhookBatchWindowMs();
+            BatchTarget batch = new BatchTarget(merchant.getId(), target.url(), target.secret(), target.keyId());
+            return batcher.add(batch, new BatchedEvent(batch, log, created, job.getPayload(),
+                    retryPolicy, sinceLastAttempt),
+                    groupSize, windowMs != null && windowMs > 0 ? windowMs : defaultBatchWindowMs);
+        }
 
-            HttpEntity<String> entity = new HttpEntity<>(job.getPayload(), headers);
+        long startNanos = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> delivery;
+        try {
+            // Signed at fan-out for a first attempt; retries sign again with the current key
+            String signature = job.getSignature() != null ? job.getSignature()
+                    : webhookService.generateSignature(target.keyId(), job.getPayload(), target.secret());
+            delivery = webhookHttpClient.post(target.url(), job.getPayload(), signature);
+        } catch (Exception e) {
+            delivery = CompletableFuture.failedFuture(e);
+        }
 
-            // Set timeout? RestTemplate default usually okay, or configure it.
-            // Requirement says Timeout: 5 seconds. Ideally we configure RestTemplate bean.
+        WebhookLog attempt = log;
+        String url = target.url();
+        return delivery.handle((response, error) -> {
+            String responseClass;
+            if (error == null) {
+                responseClass = WebhookMetrics.responseClass(response.statusCode());
+                attempt.setResponseCode(response.statusCode());
+                attempt.setResponseBody(truncateBody(response.body()));
 
-            ResponseEntity<String> response = restTemplate.postForEntity(merchant.getWebhookUrl(), entity,
-                    String.class);
+                if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                    attempt.setStatus("success");
+                    attempt.setNextRetryAt(null);
+                    webhookCircuitBreaker.recordSuccess(url);
+                } else {
+                    handleFailure(attempt, retryPolicy, sinceLastAttempt);
+                    webhookCircuitBreaker.recordFailure(url, false, "HTTP " + response.statusCode());
+                }
+            } else {
+                Throwable cause = unwrap(error);
+                boolean timeout = isTimeout(cause);
+                String message = timeout ? "Request timed out" : cause.getMessage();
+                responseClass = timeout ? WebhookMetrics.TIMEOUT : WebhookMetrics.ERROR;
+                logger.error("Webhook delivery failed: {}", message);
+                attempt.setResponseCode(0);
+                attempt.setResponseBody(truncateBody(message));
+                handleFailure(attempt, retryPolicy, sinceLastAttempt);
+                webhookCircuitBreaker.recordFailure(url, timeout, message);
+            }
+            webhookMetrics.recordDelivery(attempt.getMerchantId(), "single", startNanos, responseClass);
+            webhookMetrics.recordAttempt(attempt.getMerchantId(), attempt.getStatus(), responseClass);
+            return attempt;
+        }).thenAccept(attempted -> saveAttempt(attempted, created, job.getPayload()));
+    }
 
-            log.setResponseCode(response.getStatusCode().value());
-            log.setResponseBody(response.getBody());
+    // One POST for the whole batch: a JSON array of the event payloads, signed as a whole.
+    // The endpoint may answer 2xx with a JSON array of status codes, one per event in
+    // request order, to accept some events and fail others; any other answer applies
+    // to every event. The circuit breaker counts the batch as one call.
+    private CompletableFuture<Void> deliverBatch(List<BatchedEvent> events) {
+        BatchTarget target = events.get(0).target();
+        int length = events.size() + 1;
+        for (BatchedEvent event : events) {
+            length += event.payload().length;
+        }
+        ByteBuffer body = ByteBuffer.allocate(length).put((byte) '[');
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) {
+                body.put((byte) ',');
+            }
+            body.put(events.get(i).payload());
+        }
+        byte[] batchBody = body.put((byte) ']').array();
 
-            if (response.getStatusCode().is2xxSuccessful()) {
-                log.setStatus("success");
-                log.setNextRetryAt(null);
+        long startNanos = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> delivery;
+        try {
+            String signature = webhookService.generateSignature(target.keyId(), batchBody, target.secret());
+            delivery = webhookHttpClient.post(target.url(), batchBody, signature,
+                    Map.of("X-Webhook-Batch-Size", Integer.toString(events.size())), batchResponseBytes);
+        } catch (Exception e) {
+            delivery = CompletableFuture.failedFuture(e);
+        }
+
+        return delivery.handle((response, error) -> {
+            if (error == null) {
+                int status = response.statusCode();
+                webhookMetrics.recordDelivery(target.merchantId(), "batch", startNanos, WebhookMetrics.responseClass(status));
+                int[] statuses = eventStatuses(response.body(), events.size());
+                for (int i = 0; i < events.size(); i++) {
+                    BatchedEvent event = events.get(i);
+                    WebhookLog log = event.log();
+                    int eventStatus = statuses != null && status >= 200 && status < 300 ? statuses[i] : status;
+                    log.setResponseCode(eventStatus);
+                    log.setResponseBody(truncateBody(response.body()));
+                    if (eventStatus >= 200 && eventStatus < 300) {
+                        log.setStatus("success");
+                        log.setNextRetryAt(null);
+                    } else {
+                        handleFailure(log, event.retryPolicy(), event.sinceLastAttempt());
+                    }
+                    webhookMetrics.recordAttempt(target.merchantId(), log.getStatus(),
+                            WebhookMetrics.responseClass(eventStatus));
+                }
+                if (status >= 200 && status < 300) {
+                    webhookCircuitBreaker.recordSuccess(target.url());
+                } else {
+                    webhookCircuitBreaker.recordFailure(target.url(), false, "HTTP " + status);
+                }
             } else {
-                handleFailure(log);
+                Throwable cause = unwrap(error);
+                boolean timeout = isTimeout(cause);
+                String message = timeout ? "Request timed out" : cause.getMessage();
+                logger.error("Webhook batch delivery of {} events failed: {}", events.size(), message);
+                String responseClass = timeout ? WebhookMetrics.TIMEOUT : WebhookMetrics.ERROR;
+                webhookMetrics.recordDelivery(target.merchantId(), "batch", startNanos, responseClass);
+                for (BatchedEvent event : events) {
+                    event.log().setResponseCode(0);
+                    event.log().setResponseBody(truncateBody(message));
+                    handleFailure(event.log(), event.retryPolicy(), event.sinceLastAttempt());
+                    webhookMetrics.recordAttempt(target.merchantId(), event.log().getStatus(), responseClass);
+                }
+                webhookCircuitBreaker.recordFailure(target.url(), timeout, message);
+            }
+            return events;
+        }).thenAccept(this::saveBatch);
+    }
+
+    // Saves every log even when one fails, then fails the batch if any did
+    private void saveBatch(List<BatchedEvent> events) {
+        RuntimeException failure = null;
+        for (BatchedEvent event : events) {
+            try {
+                saveAttempt(event.log(), event.created(), event.payload());
+            } catch (RuntimeException e) {
+                logger.error("Error saving webhook log for batched event {}", event.log().getEvent(), e);
+                failure = failure != null ? failure : e;
             }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
 
+    // Per-event statuses from a batch response, or null when it does not carry exactly one per event
+    private int[] eventStatuses(String body, int count) {
+        if (body == null || body.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(body);
+            if (!node.isArray() || node.size() != count) {
+                return null;
+            }
+            int[] statuses = new int[count];
+            for (int i = 0; i < count; i++) {
+                if (!node.get(i).canConvertToInt()) {
+                    return null;
+                }
+                statuses[i] = node.get(i).asInt();
+            }
+            return statuses;
         } catch (Exception e) {
-            logger.error("Webhook delivery failed: {}", e.getMessage());
-            log.setResponseCode(0);
-            log.setResponseBody(e.getMessage());
-            handleFailure(log);
+            return null;
         }
+    }
 
-        webhookLogRepository.save(log);
+    private String truncateBody(String body) {
+        return body != null && body.length() > maxResponseBodyChars ? body.substring(0, maxResponseBodyChars) : body;
+    }
+
+    private Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private boolean isTimeout(Throwable cause) {
+        return cause instanceof TimeoutException || cause instanceof HttpTimeoutException;
+    }
+
+    // Spread deferred deliveries over spreadMs past the deferral point, so they do not all
+    // arrive together just as the circuit lets a single probe through or the rate allows
+    private void defer(WebhookLog log, long deferUntilMillis, long spreadMs,
+                       WebhookRetryPolicy retryPolicy, String reason) {
+        long dueAt = deferUntilMillis + ThreadLocalRandom.current().nextLong(Math.max(1, spreadMs));
+        LocalDateTime nextRetryAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(dueAt), ZoneId.systemDefault());
+        if (webhookRetryPolicies.isExhausted(retryPolicy, log, nextRetryAt)) {
+            log.setStatus("failed");
+            log.setNextRetryAt(null);
+            log.setResponseBody("Gave up after the retry limit: " + reason);
+            return;
+        }
+        log.setStatus("pending");
+        log.setNextRetryAt(nextRetryAt);
+    }
+
+    // Saves a log that was settled without a delivery attempt; a failed save fails the job
+    private CompletableFuture<Void> saveNow(WebhookLog log, boolean created, byte[] payload) {
+        try {
+            saveAttempt(log, created, payload);
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // The job's payload bytes go to the retry as they are, not re-encoded from the log
+    private void saveAttempt(WebhookLog log, boolean created, byte[] payload) {
+        webhookLogBuffer.save(log, created);
+
+        if ("pending".equals(log.getStatus()) && log.getNextRetryAt() != null) {
+            scheduleRetry(log, payload);
+        }
+    }
+
+    private void scheduleRetry(WebhookLog log, byte[] payload) {
+        try {
+            DeliverWebhookJob retry = new DeliverWebhookJob(
+                    log.getMerchantId(),
+                    log.getEvent(),
+                    payload,
+                    log.getId(),
+                    log.getEndpointId(),
+                    null);
+            jobService.scheduleWebhookRetry(retry, log.getAttempts(), log.getNextRetryAt());
+        } catch (Exception e) {
+            // WebhookRetryScheduler's reconcile sweep picks the row up later
+            logger.error("Error scheduling webhook retry {}", log.getId(), e);
+        }
     }
 
-    private WebhookLog createNewLog(DeliverWebhookJob job, java.util.UUID merchantId) {
+    // The id is assigned here, not by the database, so the log can be buffered
+    private WebhookLog createNewLog(DeliverWebhookJob job, UUID merchantId) {
         return WebhookLog.builder()
+                .id(UUID.randomUUID())
                 .merchantId(merchantId)
+                .endpointId(job.getEndpointId())
                 .event(job.getEvent())
-                .payload(job.getPayload())
+                .payload(new String(job.getPayload(), StandardCharsets.UTF_8))
                 .status("pending")
                 .attempts(0)
-                .createdAt(LocalDateTime.now())
+                // As stored: updates find the row by id and created_at
+                .createdAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
                 .build();
     }
 
-    private void handleFailure(WebhookLog log) {
-        if (log.getAttempts() >= 5) {
+    private void handleFailure(WebhookLog log, WebhookRetryPolicy retryPolicy, Duration sinceLastAttempt) {
+        LocalDateTime nextRetry = webhookRetryPolicies.nextRetryAt(retryPolicy, log, sinceLastAttempt);
+        if (nextRetry == null) {
             log.setStatus("failed");
             log.setNextRetryAt(null);
         } else {
             log.setStatus("pending");
-            LocalDateTime nextRetry = testRetryIntervals ? webhookService.calculateTestNextRetry(log.getAttempts())
-                    : webhookService.calculateNextRetry(log.getAttempts());
             log.setNextRetryAt(nextRetry);
         }
     }
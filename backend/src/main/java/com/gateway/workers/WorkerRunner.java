@@ -1,21 +1,40 @@
 package com.gateway.workers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gateway.jobs.DeliverWebhookJob;
+import com.gateway.jobs.JobCodec;
 import com.gateway.jobs.ProcessPaymentJob;
 import com.gateway.jobs.ProcessRefundJob;
+import com.gateway.queue.DeadLetterQueue;
+import com.gateway.queue.JobQueue;
+import com.gateway.queue.QueuedJob;
 import com.gateway.services.JobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Profile;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Component
 @Profile("worker")
@@ -24,10 +43,13 @@ public class WorkerRunner implements CommandLineRunner {
     private static final Logger logger = LoggerFactory.getLogger(WorkerRunner.class);
 
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private JobQueue jobQueue;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private JobCodec jobCodec;
+
+    @Autowired
+    private DeadLetterQueue deadLetterQueue;
 
     @Autowired
     private PaymentWorker paymentWorker;
@@ -38,73 +60,331 @@ public class WorkerRunner implements CommandLineRunner {
     @Autowired
     private RefundWorker refundWorker;
 
-    private boolean running = true;
+    // Max jobs in flight per queue on this worker node; the adaptive limit stays below it
+    @Value("${gateway.worker.payments.concurrency:20000}")
+    private int paymentsConcurrency;
+
+    @Value("${gateway.worker.webhooks.concurrency:2000}")
+    private int webhooksConcurrency;
+
+    @Value("${gateway.worker.refunds.concurrency:5000}")
+    private int refundsConcurrency;
+
+    // Upper bound on jobs fetched by one poll, for backends that support bulk reads
+    @Value("${gateway.worker.poll-batch-size:10}")
+    private int pollBatchSize;
+
+    // Attempts per job on this worker, including the first, before it is dead-lettered
+    @Value("${gateway.worker.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    // Delay before the second attempt; doubles for each one after
+    @Value("${gateway.worker.retry.backoff-ms:500}")
+    private long retryBackoffMs;
+
+    // Adaptive concurrency, see AdaptiveLimiter. Disabled, each queue runs at its fixed maximum.
+    @Value("${gateway.worker.adaptive.enabled:true}")
+    private boolean adaptiveEnabled;
+
+    @Value("${gateway.worker.adaptive.initial-limit:20}")
+    private int adaptiveInitialLimit;
+
+    @Value("${gateway.worker.adaptive.min-limit:1}")
+    private int adaptiveMinLimit;
+
+    @Value("${gateway.worker.adaptive.backoff-ratio:0.9}")
+    private double adaptiveBackoffRatio;
+
+    // Smoothed latency above this multiple of the baseline counts as congestion
+    @Value("${gateway.worker.adaptive.latency-tolerance:2.0}")
+    private double adaptiveTolerance;
+
+    @Value("${gateway.worker.adaptive.baseline-window-ms:60000}")
+    private long adaptiveBaselineWindowMs;
+
+    // How often leases of running jobs are extended; keep it well below the visibility timeout
+    @Value("${gateway.queue.lease-extend-interval-ms:20000}")
+    private long leaseExtendIntervalMs;
+
+    private final Map<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    // Jobs popped but not yet acked or dead-lettered, including ones waiting for a retry
+    private final Map<String, Set<QueuedJob>> inFlight = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService retryTimer = Executors.newSingleThreadScheduledExecutor(
+            new CustomizableThreadFactory("job-retry-"));
+
+    private final ScheduledExecutorService leaseTimer = Executors.newSingleThreadScheduledExecutor(
+            new CustomizableThreadFactory("job-lease-"));
+
+    private final List<ExecutorService> executors = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running = true;
 
     @Override
     public void run(String... args) throws Exception {
         logger.info("Starting Worker Service...");
+        executors.add(retryTimer);
+        executors.add(leaseTimer);
+        if (leaseExtendIntervalMs > 0) {
+            leaseTimer.scheduleWithFixedDelay(this::extendLeases, leaseExtendIntervalMs, leaseExtendIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
 
-        ExecutorService executor = Executors.newFixedThreadPool(3);
-
-        executor.submit(() -> processQueue(JobService.QUEUE_PAYMENTS, this::handlePaymentJob));
-        executor.submit(() -> processQueue(JobService.QUEUE_WEBHOOKS, this::handleWebhookJob));
-        executor.submit(() -> processQueue(JobService.QUEUE_REFUNDS, this::handleRefundJob));
+        startConsumer(JobService.QUEUE_PAYMENTS, paymentsConcurrency, this::handlePaymentJobs);
+        // Webhook deliveries are async: a poll's jobs share a handler thread only for the
+        // DB lookups, and each delivery completes (and is acked) on its own
+        startConsumer(JobService.QUEUE_WEBHOOKS, webhooksConcurrency, this::handleWebhookJobs);
+        startConsumer(JobService.QUEUE_REFUNDS, refundsConcurrency, this::handleRefundJobs);
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             running = false;
-            executor.shutdown();
+            executors.forEach(ExecutorService::shutdown);
             try {
-                executor.awaitTermination(5, TimeUnit.SECONDS);
+                for (ExecutorService executor : executors) {
+                    executor.awaitTermination(5, TimeUnit.SECONDS);
+                }
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
         }));
     }
 
+    // Handlers return one completion per payload, in order; a job that waits on a timer
+    // holds its slot but not a thread. Jobs sharing a completion are acked together.
     private interface JobHandler {
-        void handle(String payload) throws Exception;
+        List<? extends CompletionStage<?>> handle(List<byte[]> payloads);
+    }
+
+    // One dispatcher thread per queue pops jobs and hands them to a pool of handler
+    // threads. The limiter caps outstanding jobs, so we never pop more than we can run,
+    // and it also bounds the cached pool to at most `concurrency` threads.
+    private void startConsumer(String queueName, int concurrency, JobHandler handler) {
+        int limit = Math.max(1, concurrency);
+        AdaptiveLimiter permits = adaptiveEnabled
+                ? new AdaptiveLimiter(adaptiveInitialLimit, adaptiveMinLimit, limit, adaptiveBackoffRatio,
+                        adaptiveTolerance, adaptiveBaselineWindowMs)
+                : new AdaptiveLimiter(limit, limit, limit, 1, Double.MAX_VALUE, adaptiveBaselineWindowMs);
+        limiters.put(queueName, permits);
+        inFlight.put(queueName, Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>())));
+        ExecutorService dispatcher = Executors.newSingleThreadExecutor(
+                new CustomizableThreadFactory(queueName + "-dispatcher-"));
+        ExecutorService workers = Executors.newCachedThreadPool(
+                new CustomizableThreadFactory(queueName + "-worker-"));
+        executors.add(dispatcher);
+        executors.add(workers);
+
+        dispatcher.submit(() -> processQueue(queueName, permits, workers, handler));
+        logger.info("Queue {} consumer started with concurrency limit {} (max {})", queueName,
+                permits.getLimit(), limit);
     }
 
-    private void processQueue(String queueName, JobHandler handler) {
+    // Current limit, jobs in flight and job latency per queue
+    public Map<String, Map<String, Object>> concurrencySnapshot() {
+        Map<String, Map<String, Object>> snapshot = new LinkedHashMap<>();
+        limiters.forEach((queueName, limiter) -> snapshot.put(queueName, limiter.snapshot()));
+        return snapshot;
+    }
+
+    private void processQueue(String queueName, AdaptiveLimiter permits, ExecutorService workers, JobHandler handler) {
         logger.info("Listening on queue: {}", queueName);
         while (running) {
             try {
-                // BLPOP with timeout (e.g., 5 seconds) to check running flag periodically
-                // RedisTemplate doesn't have direct BLPOP, use execute
-                // For simplicity in this demo, accessing opsForList().leftPop(key, timeout,
-                // unit)
+                // Wait for a free slot before popping so jobs stay in Redis while we are busy
+                if (!permits.tryAcquire(1, TimeUnit.SECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
 
-                String payload = redisTemplate.opsForList().leftPop(queueName, 2, TimeUnit.SECONDS);
+            // Reserve more free slots so one poll can fetch several jobs
+            int reserved = 1;
+            while (reserved < pollBatchSize && permits.tryAcquire()) {
+                reserved++;
+            }
 
-                if (payload != null) {
-                    try {
-                        handler.handle(payload);
-                    } catch (Exception e) {
-                        logger.error("Error handling job from " + queueName, e);
-                    }
+            int undispatched = reserved;
+            try {
+                // Blocking pop with timeout (e.g., 2 seconds) to check running flag periodically
+                List<QueuedJob> jobs = jobQueue.poll(queueName, reserved, 2, TimeUnit.SECONDS);
+                permits.release(reserved - jobs.size());
+                undispatched = jobs.size();
+                inFlight.get(queueName).addAll(jobs);
+
+                if (!jobs.isEmpty()) {
+                    dispatch(queueName, jobs, permits, workers, handler);
+                    undispatched = 0;
                 }
             } catch (Exception e) {
+                permits.release(undispatched);
                 logger.error("Error polling queue " + queueName, e);
                 try {
                     Thread.sleep(1000);
                 } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                    return;
                 }
             }
         }
     }
 
-    private void handlePaymentJob(String payload) throws Exception {
-        ProcessPaymentJob job = objectMapper.readValue(payload, ProcessPaymentJob.class);
-        paymentWorker.process(job);
+    private void dispatch(String queueName, List<QueuedJob> jobs, AdaptiveLimiter permits, ExecutorService workers,
+            JobHandler handler) {
+        workers.execute(() -> runJobs(queueName, jobs, 1, permits, workers, handler));
     }
 
-    private void handleWebhookJob(String payload) throws Exception {
-        DeliverWebhookJob job = objectMapper.readValue(payload, DeliverWebhookJob.class);
-        webhookWorker.process(job);
+    private void runJobs(String queueName, List<QueuedJob> jobs, int attempt, AdaptiveLimiter permits,
+            ExecutorService workers, JobHandler handler) {
+        long started = System.nanoTime();
+        List<byte[]> payloads = new ArrayList<>(jobs.size());
+        for (QueuedJob job : jobs) {
+            payloads.add(job.getPayload());
+        }
+
+        List<? extends CompletionStage<?>> completions;
+        try {
+            completions = handler.handle(payloads);
+        } catch (Exception e) {
+            completions = Collections.nCopies(jobs.size(), CompletableFuture.failedFuture(e));
+        }
+
+        Map<CompletionStage<?>, List<QueuedJob>> groups = new IdentityHashMap<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            groups.computeIfAbsent(completions.get(i), c -> new ArrayList<>()).add(jobs.get(i));
+        }
+        groups.forEach((completion, group) -> completion.whenComplete((result, error) -> {
+            permits.onSample(System.nanoTime() - started, error != null);
+            if (error == null) {
+                acknowledge(queueName, group);
+                permits.release(group.size());
+            } else {
+                retryOrDeadLetter(queueName, group, attempt, error, permits, workers, handler);
+            }
+        }));
+    }
+
+    // Failed jobs keep their slot while they wait for the backoff, so a failing
+    // dependency slows polling down instead of piling up retries
+    private void retryOrDeadLetter(String queueName, List<QueuedJob> jobs, int attempt, Throwable error,
+            AdaptiveLimiter permits, ExecutorService workers, JobHandler handler) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (attempt < maxAttempts && running) {
+            long backoff = retryBackoffMs << Math.min(attempt - 1, 16);
+            logger.warn("{} jobs from {} failed on attempt {}, retrying in {} ms: {}", jobs.size(), queueName,
+                    attempt, backoff, cause.toString());
+            try {
+                retryTimer.schedule(() -> {
+                    try {
+                        workers.execute(() -> runJobs(queueName, jobs, attempt + 1, permits, workers, handler));
+                    } catch (RejectedExecutionException e) {
+                        deadLetter(queueName, jobs, attempt, cause, permits);
+                    }
+                }, backoff, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                // Shutting down: dead-letter now rather than drop the jobs
+            }
+        }
+        deadLetter(queueName, jobs, attempt, cause, permits);
+    }
+
+    private void deadLetter(String queueName, List<QueuedJob> jobs, int attempts, Throwable cause,
+            AdaptiveLimiter permits) {
+        logger.error("Dead-lettering " + jobs.size() + " jobs from " + queueName + " after " + attempts
+                + " attempts", cause);
+        try {
+            List<byte[]> payloads = new ArrayList<>(jobs.size());
+            for (QueuedJob job : jobs) {
+                payloads.add(job.getPayload());
+            }
+            deadLetterQueue.add(queueName, payloads, cause.toString(), attempts);
+            acknowledge(queueName, jobs);
+        } catch (Exception e) {
+            // Not acked: reliable backends redeliver it once its lease runs out
+            logger.error("Error dead-lettering jobs from " + queueName, e);
+        } finally {
+            jobs.forEach(inFlight.get(queueName)::remove);
+            permits.release(jobs.size());
+        }
+    }
+
+    private void acknowledge(String queueName, List<QueuedJob> jobs) {
+        try {
+            jobQueue.ack(queueName, jobs);
+        } catch (Exception e) {
+            logger.error("Error acknowledging jobs from " + queueName, e);
+        } finally {
+            jobs.forEach(inFlight.get(queueName)::remove);
+        }
+    }
+
+    // Heartbeat for everything this node is still working on. If the node dies the
+    // heartbeats stop and the jobs are redelivered after the visibility timeout.
+    private void extendLeases() {
+        inFlight.forEach((queueName, jobs) -> {
+            List<QueuedJob> running;
+            synchronized (jobs) {
+                running = new ArrayList<>(jobs);
+            }
+            if (running.isEmpty()) {
+                return;
+            }
+            try {
+                jobQueue.extendLeases(queueName, running);
+            } catch (Exception e) {
+                logger.warn("Could not extend leases of {} jobs on {}: {}", running.size(), queueName,
+                        e.getMessage());
+            }
+        });
+    }
+
+    private List<CompletableFuture<Void>> handlePaymentJobs(List<byte[]> payloads) {
+        return handleBatch(payloads, ProcessPaymentJob.class, paymentWorker::processBatch);
+    }
+
+    private List<CompletableFuture<Void>> handleWebhookJobs(List<byte[]> payloads) {
+        return handleBatch(payloads, DeliverWebhookJob.class, jobs -> {
+            List<CompletableFuture<Void>> results = new ArrayList<>(jobs.size());
+            for (DeliverWebhookJob job : jobs) {
+                results.add(webhookWorker.process(job));
+            }
+            return results;
+        });
+    }
+
+    private List<CompletableFuture<Void>> handleRefundJobs(List<byte[]> payloads) {
+        return handleBatch(payloads, ProcessRefundJob.class, refundWorker::processBatch);
     }
 
-    private void handleRefundJob(String payload) throws Exception {
-        ProcessRefundJob job = objectMapper.readValue(payload, ProcessRefundJob.class);
-        refundWorker.process(job);
+    // Decodes the payloads and runs the batch; a payload that fails to decode gets a
+    // failed completion of its own and does not hold up the rest.
+    private <T> List<CompletableFuture<Void>> handleBatch(List<byte[]> payloads, Class<T> type,
+            Function<List<T>, List<CompletableFuture<Void>>> batch) {
+        List<CompletableFuture<Void>> results = new ArrayList<>(Collections.nCopies(payloads.size(), null));
+        List<T> decoded = new ArrayList<>(payloads.size());
+        List<Integer> positions = new ArrayList<>(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            try {
+                decoded.add(jobCodec.decode(payloads.get(i), type).getJob());
+                positions.add(i);
+            } catch (Exception e) {
+                results.set(i, CompletableFuture.failedFuture(e));
+            }
+        }
+
+        if (!decoded.isEmpty()) {
+            List<CompletableFuture<Void>> completions;
+            try {
+                completions = batch.apply(decoded);
+            } catch (Exception e) {
+                completions = Collections.nCopies(decoded.size(), CompletableFuture.failedFuture(e));
+            }
+            for (int i = 0; i < positions.size(); i++) {
+                results.set(positions.get(i), completions.get(i));
+            }
+        }
+        return results;
     }
 }
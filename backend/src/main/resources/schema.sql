@@ -59,21 +59,8 @@ CREATE TABLE IF NOT EXISTS refunds (
 );
 
 -- NEW: Webhook Logs
-CREATE TABLE IF NOT EXISTS webhook_logs (
-    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
-    merchant_id UUID NOT NULL REFERENCES merchants(id),
-    event VARCHAR(50) NOT NULL,
-    payload JSONB NOT NULL,
-    status VARCHAR(20) DEFAULT 'pending',
-    attempts INTEGER DEFAULT 0,
-    last_attempt_at TIMESTAMP,
-    next_retry_at TIMESTAMP,
-    response_code INTEGER,
-    response_body TEXT,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-);
-
-CREATE INDEX IF NOT EXISTS idx_webhook_retry ON webhook_logs(status, next_retry_at);
+-- Partitioned by month and maintained by WebhookLogPartitions (created at startup,
+-- before Hibernate), not here
 
 -- NEW: Idempotency Keys
 CREATE TABLE IF NOT EXISTS idempotency_keys (
@@ -86,4 +73,41 @@ CREATE TABLE IF NOT EXISTS idempotency_keys (
 );
 
 -- UPDATE: Add secret to merchants
-ALTER TABLE merchants ADD COLUMN IF NOT EXISTS webhook_secret VARCHAR(64);
\ No newline at end of file
+ALTER TABLE merchants ADD COLUMN IF NOT EXISTS webhook_secret VARCHAR(64);
+
+-- UPDATE: Opt-in batched webhook delivery
+ALTER TABLE merchants ADD COLUMN IF NOT EXISTS webhook_batch_size INTEGER;
+ALTER TABLE merchants ADD COLUMN IF NOT EXISTS webhook_batch_window_ms INTEGER;
+
+-- UPDATE: Per-merchant outbound webhook rate limit
+ALTER TABLE merchants ADD COLUMN IF NOT EXISTS webhook_rate_limit INTEGER;
+ALTER TABLE merchants ADD COLUMN IF NOT EXISTS webhook_rate_burst INTEGER;
+
+-- UPDATE: Per-merchant webhook retry policy
+ALTER TABLE merchants ADD COLUMN IF NOT EXISTS webhook_retry_policy VARCHAR(32);
+
+-- NEW: Webhook endpoints with event subscriptions, alongside merchants.webhook_url
+CREATE TABLE IF NOT EXISTS webhook_endpoints (
+    id UUID PRIMARY KEY,
+    merchant_id UUID NOT NULL REFERENCES merchants(id),
+    url TEXT NOT NULL,
+    events TEXT NOT NULL,
+    secret VARCHAR(64),
+    is_active BOOLEAN DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_webhook_endpoints_merchant ON webhook_endpoints(merchant_id);
+
+-- NEW: Outbox for jobs written in the same transaction as payments/refunds
+CREATE TABLE IF NOT EXISTS outbox_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    queue_name VARCHAR(64) NOT NULL,
+    partition_key VARCHAR(64),
+    payload BYTEA NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Per-queue backlog for admission control
+CREATE INDEX IF NOT EXISTS idx_outbox_jobs_queue ON outbox_jobs(queue_name, created_at);
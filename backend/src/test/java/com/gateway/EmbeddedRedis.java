@@ -0,0 +1,79 @@
+package com.gateway;
+
+import com.gateway.config.RedisConfig;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+// One real Redis per test JVM, on a free port, for the Lua scripts and queue backends.
+// Tests share it: call flush() in @BeforeEach.
+public final class EmbeddedRedis {
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private EmbeddedRedis() {
+    }
+
+    public static synchronized LettuceConnectionFactory connectionFactory() {
+        if (connectionFactory == null) {
+            int port = freePort();
+            try {
+                RedisServer server = RedisServer.newRedisServer()
+                        .port(port)
+                        .setting("bind 127.0.0.1")
+                        .setting("save \"\"")
+                        .onShutdownForceStop(true)
+                        .build();
+                server.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        server.stop();
+                    } catch (IOException e) {
+                        // Exiting anyway
+                    }
+                }));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            LettuceConnectionFactory factory = new LettuceConnectionFactory(
+                    new RedisStandaloneConfiguration("127.0.0.1", port));
+            factory.afterPropertiesSet();
+            factory.start();
+            connectionFactory = factory;
+        }
+        return connectionFactory;
+    }
+
+    // Same template as the application's, see RedisConfig
+    public static RedisTemplate<String, byte[]> jobTemplate() {
+        RedisTemplate<String, byte[]> template = new RedisConfig().jobRedisTemplate(connectionFactory());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    public static StringRedisTemplate stringTemplate() {
+        return new StringRedisTemplate(connectionFactory());
+    }
+
+    public static void flush() {
+        stringTemplate().execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
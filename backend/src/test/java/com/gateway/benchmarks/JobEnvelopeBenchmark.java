@@ -0,0 +1,96 @@
+package com.gateway.benchmarks;
+
+import com.gateway.jobs.DeliverWebhookJob;
+import com.gateway.jobs.JobCodec;
+import com.gateway.jobs.ProcessPaymentJob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// Encode/decode cost of the job envelope against the previous JSON format.
+// Run: mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+//        -Dexec.args="-cp %classpath com.gateway.benchmarks.JobEnvelopeBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobEnvelopeBenchmark {
+
+    private JobCodec codec;
+    private ProcessPaymentJob paymentJob;
+    private DeliverWebhookJob webhookJob;
+    private byte[] paymentJson;
+    private byte[] paymentEnvelope;
+    private byte[] webhookJson;
+    private byte[] webhookEnvelope;
+
+    @Setup
+    public void setUp() throws Exception {
+        codec = JobFixtures.codec(1024);
+        paymentJob = JobFixtures.paymentJob();
+        webhookJob = JobFixtures.webhookJob();
+        paymentJson = JobFixtures.OBJECT_MAPPER.writeValueAsBytes(paymentJob);
+        paymentEnvelope = codec.encode(paymentJob);
+        webhookJson = JobFixtures.OBJECT_MAPPER.writeValueAsBytes(webhookJob);
+        webhookEnvelope = codec.encode(webhookJob);
+    }
+
+    @Benchmark
+    public byte[] paymentEncodeJson() throws Exception {
+        return JobFixtures.OBJECT_MAPPER.writeValueAsBytes(paymentJob);
+    }
+
+    @Benchmark
+    public byte[] paymentEncodeEnvelope() {
+        return codec.encode(paymentJob);
+    }
+
+    @Benchmark
+    public ProcessPaymentJob paymentDecodeJson() throws Exception {
+        return JobFixtures.OBJECT_MAPPER.readValue(paymentJson, ProcessPaymentJob.class);
+    }
+
+    @Benchmark
+    public ProcessPaymentJob paymentDecodeEnvelope() {
+        return codec.decode(paymentEnvelope, ProcessPaymentJob.class).getJob();
+    }
+
+    @Benchmark
+    public byte[] webhookEncodeJson() throws Exception {
+        return JobFixtures.OBJECT_MAPPER.writeValueAsBytes(webhookJob);
+    }
+
+    @Benchmark
+    public byte[] webhookEncodeEnvelope() {
+        return codec.encode(webhookJob);
+    }
+
+    @Benchmark
+    public DeliverWebhookJob webhookDecodeJson() throws Exception {
+        return JobFixtures.OBJECT_MAPPER.readValue(webhookJson, DeliverWebhookJob.class);
+    }
+
+    @Benchmark
+    public DeliverWebhookJob webhookDecodeEnvelope() {
+        return codec.decode(webhookEnvelope, DeliverWebhookJob.class).getJob();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JobEnvelopeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,58 @@
+package com.gateway.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gateway.jobs.DeliverWebhookJob;
+import com.gateway.jobs.JobCodec;
+import com.gateway.jobs.ProcessPaymentJob;
+import com.gateway.models.Payment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Jobs shaped like the ones PaymentService and PaymentWorker enqueue
+final class JobFixtures {
+
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private JobFixtures() {
+    }
+
+    static JobCodec codec(int compressThreshold) {
+        JobCodec codec = new JobCodec();
+        ReflectionTestUtils.setField(codec, "objectMapper", OBJECT_MAPPER);
+        ReflectionTestUtils.setField(codec, "compressThreshold", compressThreshold);
+        return codec;
+    }
+
+    static ProcessPaymentJob paymentJob() {
+        return new ProcessPaymentJob("pay_" + "A1b2C3d4E5f6G7h8", UUID.randomUUID());
+    }
+
+    static DeliverWebhookJob webhookJob() throws Exception {
+        Payment payment = new Payment();
+        payment.setId("pay_A1b2C3d4E5f6G7h8");
+        payment.setOrderId("order_Z9y8X7w6V5u4T3s2");
+        payment.setMerchantId(UUID.randomUUID());
+        payment.setAmount(50000);
+        payment.setMethod("card");
+        payment.setStatus("success");
+        payment.setCardNetwork("visa");
+        payment.setCardLast4("1111");
+        payment.setCreatedAt(LocalDateTime.now());
+        payment.setUpdatedAt(LocalDateTime.now());
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("payment", payment);
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("event", "payment.success");
+        payload.put("timestamp", System.currentTimeMillis() / 1000);
+        payload.put("data", data);
+
+        return new DeliverWebhookJob(payment.getMerchantId(), "payment.success",
+                OBJECT_MAPPER.writeValueAsBytes(payload), null);
+    }
+}
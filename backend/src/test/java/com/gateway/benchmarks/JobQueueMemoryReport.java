@@ -0,0 +1,83 @@
+package com.gateway.benchmarks;
+
+import com.gateway.jobs.JobCodec;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+// Redis memory per million queued jobs, JSON against the job envelope. Needs a scratch
+// Redis: it writes to and deletes bench:* keys.
+// Run: mvn test-compile exec:java -Dexec.classpathScope=test
+//        -Dexec.mainClass=com.gateway.benchmarks.JobQueueMemoryReport -Dexec.args="localhost 6379 1000000"
+public class JobQueueMemoryReport {
+
+    private static final int BATCH = 1000;
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 6379;
+        int jobs = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(host, port);
+        connectionFactory.afterPropertiesSet();
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+
+        JobCodec codec = JobFixtures.codec(1024);
+        byte[] paymentJson = JobFixtures.OBJECT_MAPPER.writeValueAsBytes(JobFixtures.paymentJob());
+        byte[] webhookJson = JobFixtures.OBJECT_MAPPER.writeValueAsBytes(JobFixtures.webhookJob());
+
+        System.out.printf("%-18s %10s %14s %14s%n", "format", "job bytes", "redis B/job", "MB per 1M jobs");
+        report(template, "payment json", jobs, () -> paymentJson);
+        report(template, "payment envelope", jobs, () -> codec.encode(JobFixtures.paymentJob()));
+        report(template, "webhook json", jobs, () -> webhookJson);
+        report(template, "webhook envelope", jobs, () -> {
+            try {
+                return codec.encode(JobFixtures.webhookJob());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        connectionFactory.destroy();
+    }
+
+    private static void report(RedisTemplate<String, byte[]> template, String name, int jobs,
+            Supplier<byte[]> job) {
+        String key = "bench:" + name.replace(' ', '-');
+        template.delete(key);
+        long before = usedMemory(template);
+        long totalBytes = 0;
+        List<byte[]> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < jobs; i++) {
+            byte[] payload = job.get();
+            totalBytes += payload.length;
+            batch.add(payload);
+            if (batch.size() == BATCH || i == jobs - 1) {
+                template.opsForList().rightPushAll(key, batch);
+                batch.clear();
+            }
+        }
+        long used = usedMemory(template) - before;
+        template.delete(key);
+
+        System.out.printf("%-18s %10d %14d %14.1f%n", name, totalBytes / jobs, used / jobs,
+                used / (double) jobs * 1_000_000 / (1024 * 1024));
+    }
+
+    private static long usedMemory(RedisTemplate<String, byte[]> template) {
+        Properties info = template.execute((RedisCallback<Properties>) connection -> connection.serverCommands()
+                .info("memory"));
+        return Long.parseLong(info.getProperty("used_memory"));
+    }
+}
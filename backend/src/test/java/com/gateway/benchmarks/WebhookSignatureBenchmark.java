@@ -0,0 +1,81 @@
+package com.gateway.benchmarks;
+
+import com.gateway.services.WebhookSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Webhook signing cost against the previous per-call Mac/SecretKeySpec/String.format
+// implementation. The GC profiler adds bytes/op (gc.alloc.rate.norm).
+// Run: mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+//        -Dexec.args="-cp %classpath com.gateway.benchmarks.WebhookSignatureBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebhookSignatureBenchmark {
+
+    private static final String SECRET = "whsec_A1b2C3d4E5f6G7h8I9j0K1l2M3n4O5p6";
+
+    private WebhookSigner signer;
+    private UUID merchantId;
+    private String payload;
+    private byte[] payloadBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        signer = new WebhookSigner();
+        merchantId = UUID.randomUUID();
+        payloadBytes = JobFixtures.webhookJob().getPayload();
+        payload = new String(payloadBytes, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String previous() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] bytes = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        StringBuilder result = new StringBuilder();
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    // Uncached key, payload still a String: WebhookService.generateSignature(String, String)
+    @Benchmark
+    public String signerUncachedKey() {
+        return signer.sign(SECRET, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The delivery path: cached merchant key, byte[] payload
+    @Benchmark
+    public String signerCachedKey() {
+        return signer.sign(merchantId, SECRET, payloadBytes);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(WebhookSignatureBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
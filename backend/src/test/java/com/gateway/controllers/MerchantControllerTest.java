@@ -0,0 +1,84 @@
+package com.gateway.controllers;
+
+import com.gateway.models.Merchant;
+import com.gateway.repositories.MerchantRepository;
+import com.gateway.services.MerchantCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The principal is the auth filter's cached merchant, shared with every other request
+class MerchantControllerTest {
+
+    private final MerchantRepository merchantRepository = mock(MerchantRepository.class);
+    private final MerchantCache merchantCache = mock(MerchantCache.class);
+    private final MerchantController controller = new MerchantController();
+    private final Merchant principal = new Merchant();
+    private final Authentication authentication;
+
+    MerchantControllerTest() {
+        principal.setId(UUID.randomUUID());
+        principal.setWebhookSecret("whsec_cached");
+        principal.setWebhookUrl("https://merchant.example/hook");
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, List.of());
+        ReflectionTestUtils.setField(controller, "merchantRepository", merchantRepository);
+        ReflectionTestUtils.setField(controller, "merchantCache", merchantCache);
+        ReflectionTestUtils.setField(controller, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(controller, "maxBatchWindowMs", 10000);
+    }
+
+    @Test
+    void regenerateWebhookSecret_ShouldEditAFreshCopyAndLeaveThePrincipalAlone() {
+        Merchant stored = new Merchant();
+        stored.setId(principal.getId());
+        when(merchantRepository.findById(principal.getId())).thenReturn(Optional.of(stored));
+
+        String secret = controller.regenerateWebhookSecret(authentication).getBody().get("webhook_secret");
+
+        assertEquals(secret, stored.getWebhookSecret());
+        assertNotEquals(secret, principal.getWebhookSecret());
+        verify(merchantRepository).save(stored);
+        verify(merchantCache).invalidate(principal.getId());
+    }
+
+    @Test
+    void regenerateWebhookSecret_MerchantGone_ShouldReturnNotFound() {
+        when(merchantRepository.findById(principal.getId())).thenReturn(Optional.empty());
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> controller.regenerateWebhookSecret(authentication));
+
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatusCode());
+        assertEquals("whsec_cached", principal.getWebhookSecret());
+        verify(merchantRepository, never()).save(any());
+    }
+
+    @Test
+    void updateWebhookUrl_MerchantGone_ShouldReturnNotFound() {
+        when(merchantRepository.findById(principal.getId())).thenReturn(Optional.empty());
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> controller.updateWebhookUrl(Map.of("webhook_url", "https://evil.example"), authentication));
+
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatusCode());
+        assertEquals("https://merchant.example/hook", principal.getWebhookUrl());
+        verify(merchantRepository, never()).save(any());
+    }
+}
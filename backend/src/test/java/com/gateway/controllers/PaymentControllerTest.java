@@ -0,0 +1,68 @@
+package com.gateway.controllers;
+
+import com.gateway.models.Merchant;
+import com.gateway.models.Payment;
+import com.gateway.services.AdmissionControlService;
+import com.gateway.services.OverloadedException;
+import com.gateway.services.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PaymentControllerTest {
+
+    private final PaymentService paymentService = mock(PaymentService.class);
+    private final AdmissionControlService admissionControlService = mock(AdmissionControlService.class);
+    private final PaymentController controller = new PaymentController();
+    private final Merchant merchant = new Merchant();
+    private final Authentication authentication;
+
+    PaymentControllerTest() {
+        ReflectionTestUtils.setField(controller, "paymentService", paymentService);
+        ReflectionTestUtils.setField(controller, "admissionControlService", admissionControlService);
+        merchant.setId(UUID.randomUUID());
+        authentication = new UsernamePasswordAuthenticationToken(merchant, null);
+    }
+
+    @Test
+    void createPayment_StoredResponse_ShouldBeReplayedWithoutAdmissionControl() {
+        Payment stored = new Payment();
+        stored.setId("pay_1");
+        when(paymentService.findIdempotentReplay(merchant, "key-1")).thenReturn(Optional.of(stored));
+
+        ResponseEntity<Object> response = controller.createPayment(Map.of(), "key-1", authentication);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertSame(stored, response.getBody());
+        verifyNoInteractions(admissionControlService);
+        verify(paymentService, never()).createPayment(any(), any(), any());
+    }
+
+    @Test
+    void createPayment_NewKeyWhileOverloaded_ShouldBeShed() {
+        when(paymentService.findIdempotentReplay(merchant, "key-2")).thenReturn(Optional.empty());
+        doThrow(new OverloadedException(HttpStatus.SERVICE_UNAVAILABLE, "Payment queue is overloaded", 5))
+                .when(admissionControlService).admitPayment(AdmissionControlService.Budget.MERCHANT);
+
+        assertThrows(OverloadedException.class, () -> controller.createPayment(Map.of(), "key-2", authentication));
+        verify(paymentService, never()).createPayment(any(), any(), any());
+    }
+}
@@ -0,0 +1,186 @@
+package com.gateway.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobCodecTest {
+
+    private JobCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        codec = new JobCodec();
+        ReflectionTestUtils.setField(codec, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(codec, "compressThreshold", 1024);
+    }
+
+    @Test
+    void encodeDecode_ShouldRoundTripEveryJobType() {
+        ProcessPaymentJob payment = new ProcessPaymentJob("pay_123", UUID.randomUUID());
+        ProcessRefundJob refund = new ProcessRefundJob("rfnd_123", null);
+        DeliverWebhookJob webhook = new DeliverWebhookJob(UUID.randomUUID(), "payment.success",
+                "{\"event\":\"payment.success\",\"note\":\"café\"}".getBytes(StandardCharsets.UTF_8),
+                UUID.randomUUID());
+
+        assertEquals(payment, codec.decode(codec.encode(payment), ProcessPaymentJob.class).getJob());
+        assertEquals(refund, codec.decode(codec.encode(refund), ProcessRefundJob.class).getJob());
+
+        JobEnvelope<DeliverWebhookJob> envelope = codec.decode(codec.encode(webhook, 3), DeliverWebhookJob.class);
+        assertEquals(webhook, envelope.getJob());
+        assertEquals(JobType.WEBHOOK, envelope.getType());
+        assertEquals(3, envelope.getAttempt());
+        assertTrue(envelope.getEnqueuedAt() > 0);
+    }
+
+    @Test
+    void encodeDecode_EndpointWebhook_ShouldKeepEndpointAndSignature() {
+        DeliverWebhookJob webhook = new DeliverWebhookJob(UUID.randomUUID(), "refund.processed",
+                "{\"event\":\"refund.processed\"}".getBytes(StandardCharsets.UTF_8), null,
+                UUID.randomUUID(), "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08");
+
+        DeliverWebhookJob decoded = codec.decode(codec.encode(webhook), DeliverWebhookJob.class).getJob();
+
+        assertEquals(webhook, decoded);
+        assertNull(codec.decode(codec.encode(new DeliverWebhookJob(UUID.randomUUID(), "payment.success",
+                new byte[0], null)), DeliverWebhookJob.class).getJob().getEndpointId());
+    }
+
+    @Test
+    void enqueuedAt_ShouldReadHeaderWithoutDecoding() {
+        byte[] bytes = codec.encode(new ProcessPaymentJob("pay_123", UUID.randomUUID()));
+
+        assertEquals(codec.decode(bytes, ProcessPaymentJob.class).getEnqueuedAt(), codec.enqueuedAt(bytes));
+        assertEquals(-1, codec.enqueuedAt("{\"paymentId\":\"pay_123\"}".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(-1, codec.enqueuedAt(null));
+    }
+
+    @Test
+    void encode_LargeWebhookPayload_ShouldCompress() {
+        String payload = "{\"data\":\"" + "abcdefgh".repeat(1000) + "\"}";
+        DeliverWebhookJob webhook = new DeliverWebhookJob(UUID.randomUUID(), "payment.success",
+                payload.getBytes(StandardCharsets.UTF_8), null);
+
+        byte[] encoded = codec.encode(webhook);
+
+        assertTrue(encoded.length < payload.length() / 4);
+        assertEquals(webhook, codec.decode(encoded, DeliverWebhookJob.class).getJob());
+    }
+
+    @Test
+    void encode_LargeEndpointWebhook_ShouldCompressAndKeepEndpointAndSignature() {
+        DeliverWebhookJob webhook = new DeliverWebhookJob(UUID.randomUUID(), "payment.success",
+                ("{\"data\":\"" + "abcdefgh".repeat(1000) + "\"}").getBytes(StandardCharsets.UTF_8),
+                UUID.randomUUID(), UUID.randomUUID(), "sig");
+
+        byte[] encoded = codec.encode(webhook, 2);
+
+        assertEquals(3, encoded[2]);
+        JobEnvelope<DeliverWebhookJob> envelope = codec.decode(encoded, DeliverWebhookJob.class);
+        assertEquals(webhook, envelope.getJob());
+        assertEquals(2, envelope.getAttempt());
+    }
+
+    @Test
+    void encode_IncompressiblePayload_ShouldStayRaw() {
+        byte[] random = new byte[4096];
+        new Random(42).nextBytes(random);
+        DeliverWebhookJob webhook = new DeliverWebhookJob(UUID.randomUUID(), "payment.success", random, null);
+
+        byte[] encoded = codec.encode(webhook);
+
+        assertEquals(0, encoded[2]);
+        assertArrayEquals(random, codec.decode(encoded, DeliverWebhookJob.class).getJob().getPayload());
+    }
+
+    @Test
+    void encode_ThresholdZero_ShouldNeverCompress() {
+        ReflectionTestUtils.setField(codec, "compressThreshold", 0);
+        DeliverWebhookJob webhook = new DeliverWebhookJob(UUID.randomUUID(), "payment.success",
+                "a".repeat(10_000).getBytes(StandardCharsets.UTF_8), null);
+
+        byte[] encoded = codec.encode(webhook);
+
+        assertEquals(0, encoded[2]);
+        assertEquals(webhook, codec.decode(encoded, DeliverWebhookJob.class).getJob());
+    }
+
+    @Test
+    void decode_TruncatedDeflatedBody_ShouldThrow() {
+        byte[] encoded = codec.encode(new DeliverWebhookJob(UUID.randomUUID(), "payment.success",
+                "abcdefgh".repeat(1000).getBytes(StandardCharsets.UTF_8), null));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 10);
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(truncated, DeliverWebhookJob.class));
+    }
+
+    @Test
+    void encode_AttemptPastTheHeaderField_ShouldSaturate() {
+        byte[] encoded = codec.encode(new ProcessPaymentJob("pay_123", null), 100_000);
+
+        assertEquals(0xFFFF, codec.decode(encoded, ProcessPaymentJob.class).getAttempt());
+    }
+
+    @Test
+    void merchantId_ShouldReadEveryJobTypeAndSkipLegacyJson() {
+        UUID merchantId = UUID.randomUUID();
+
+        assertEquals(merchantId, codec.merchantId(codec.encode(new ProcessPaymentJob("pay_123", merchantId))));
+        assertEquals(merchantId, codec.merchantId(codec.encode(new ProcessRefundJob("rfnd_123", merchantId))));
+        assertEquals(merchantId, codec.merchantId(codec.encode(new DeliverWebhookJob(merchantId, "payment.success",
+                "abcdefgh".repeat(1000).getBytes(StandardCharsets.UTF_8), null))));
+        assertNull(codec.merchantId("{\"paymentId\":\"pay_123\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void decode_LegacyJsonRefund_ShouldBeAccepted() {
+        UUID merchantId = UUID.randomUUID();
+        byte[] json = ("{\"refundId\":\"rfnd_123\",\"merchantId\":\"" + merchantId + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+
+        JobEnvelope<ProcessRefundJob> envelope = codec.decode(json, ProcessRefundJob.class);
+
+        assertEquals(new ProcessRefundJob("rfnd_123", merchantId), envelope.getJob());
+        assertEquals(JobType.REFUND, envelope.getType());
+        assertEquals(0, envelope.getAttempt());
+    }
+
+    @Test
+    void decode_LegacyJson_ShouldBeAccepted() {
+        byte[] json = "{\"paymentId\":\"pay_123\"}".getBytes(StandardCharsets.UTF_8);
+
+        JobEnvelope<ProcessPaymentJob> envelope = codec.decode(json, ProcessPaymentJob.class);
+
+        assertEquals("pay_123", envelope.getJob().getPaymentId());
+        assertNull(envelope.getJobId());
+    }
+
+    @Test
+    void decode_LegacyJsonWebhook_ShouldReadStringPayloadAsUtf8() {
+        byte[] json = "{\"event\":\"payment.success\",\"payload\":\"{\\\"note\\\":\\\"café\\\"}\"}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        DeliverWebhookJob job = codec.decode(json, DeliverWebhookJob.class).getJob();
+
+        assertEquals("{\"note\":\"café\"}", new String(job.getPayload(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decode_WrongType_ShouldThrow() {
+        byte[] encoded = codec.encode(new ProcessRefundJob("rfnd_123", null));
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(encoded, ProcessPaymentJob.class));
+    }
+}
@@ -0,0 +1,119 @@
+package com.gateway.queue;
+
+import com.gateway.EmbeddedRedis;
+import io.lettuce.core.cluster.SlotHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DelayedJobsTest {
+
+    private static final String QUEUE = "queue:test";
+
+    private final RedisTemplate<String, byte[]> redis = EmbeddedRedis.jobTemplate();
+    private final ListJobQueue jobQueue = new ListJobQueue();
+
+    DelayedJobsTest() {
+        ReflectionTestUtils.setField(jobQueue, "jobRedisTemplate", redis);
+    }
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+    }
+
+    @Test
+    void promoteDue_ShouldMoveOnlyDueJobsInDueOrder() {
+        jobQueue.schedule(QUEUE, null, ScriptArgs.bytes("later"), 3_000);
+        jobQueue.schedule(QUEUE, null, ScriptArgs.bytes("second"), 2_000);
+        jobQueue.schedule(QUEUE, null, ScriptArgs.bytes("first"), 1_000);
+
+        assertEquals(2, jobQueue.promoteDue(QUEUE, 2_000, 10));
+
+        assertEquals(List.of("first", "second"), payloads());
+        assertEquals(1, jobQueue.delayedSize(QUEUE));
+    }
+
+    @Test
+    void promoteDue_ShouldMoveAtMostLimit() {
+        for (int i = 0; i < 5; i++) {
+            jobQueue.schedule(QUEUE, null, ScriptArgs.bytes("job-" + i), i);
+        }
+
+        assertEquals(2, jobQueue.promoteDue(QUEUE, 10, 2));
+        assertEquals(List.of("job-0", "job-1"), payloads());
+        assertEquals(3, jobQueue.delayedSize(QUEUE));
+    }
+
+    @Test
+    void schedule_SameJobTwice_ShouldKeepOneEntry() {
+        jobQueue.schedule(QUEUE, null, ScriptArgs.bytes("job"), 1_000);
+        jobQueue.schedule(QUEUE, null, ScriptArgs.bytes("job"), 2_000);
+
+        assertEquals(1, jobQueue.delayedSize(QUEUE));
+        assertEquals(1, jobQueue.promoteDue(QUEUE, 5_000, 10));
+    }
+
+    @Test
+    void promoteDue_ConcurrentSchedulers_ShouldMoveEachJobOnce() throws Exception {
+        for (int i = 0; i < 500; i++) {
+            jobQueue.schedule(QUEUE, null, ScriptArgs.bytes("job-" + i), i);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Callable<Long>> promoters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            promoters.add(() -> {
+                long moved = 0;
+                long batch;
+                while ((batch = jobQueue.promoteDue(QUEUE, 1_000, 25)) > 0) {
+                    moved += batch;
+                }
+                return moved;
+            });
+        }
+        long moved = 0;
+        for (Future<Long> result : pool.invokeAll(promoters)) {
+            moved += result.get();
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(500, moved);
+        assertEquals(500, jobQueue.size(QUEUE));
+        assertEquals(0, jobQueue.delayedSize(QUEUE));
+    }
+
+    @Test
+    void promoteDue_RetriesInTheUntaggedSet_ShouldBeAdoptedAtTheirEarlierDueTime() {
+        jobQueue.schedule(QUEUE, null, ScriptArgs.bytes("both"), 5_000);
+        redis.opsForZSet().add(QUEUE + ":delayed", ScriptArgs.bytes("both"), 1_000);
+        redis.opsForZSet().add(QUEUE + ":delayed", ScriptArgs.bytes("legacy"), 2_000);
+
+        assertEquals(2, jobQueue.promoteDue(QUEUE, 2_000, 10));
+
+        assertEquals(List.of("both", "legacy"), payloads());
+        assertEquals(0, jobQueue.delayedSize(QUEUE));
+        assertEquals(Boolean.FALSE, redis.hasKey(QUEUE + ":delayed"));
+    }
+
+    @Test
+    void delayedKey_ShouldShareTheClusterSlotOfTheQueue() {
+        assertEquals(SlotHash.getSlot(QUEUE), SlotHash.getSlot(DelayedJobs.delayedKey(QUEUE)));
+    }
+
+    private List<String> payloads() {
+        return redis.opsForList().range(QUEUE, 0, -1).stream().map(ScriptArgs::string).toList();
+    }
+}
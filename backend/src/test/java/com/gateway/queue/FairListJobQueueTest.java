@@ -0,0 +1,89 @@
+package com.gateway.queue;
+
+import com.gateway.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairListJobQueueTest {
+
+    private static final String QUEUE = "queue:test";
+
+    private final RedisTemplate<String, byte[]> redis = EmbeddedRedis.jobTemplate();
+    private final FairListJobQueue jobQueue = new FairListJobQueue();
+
+    FairListJobQueueTest() {
+        ReflectionTestUtils.setField(jobQueue, "jobRedisTemplate", redis);
+        ReflectionTestUtils.setField(jobQueue, "quantum", 2);
+        ReflectionTestUtils.setField(jobQueue, "idlePollMs", 10L);
+    }
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+    }
+
+    @Test
+    void poll_BurstFromOneMerchant_ShouldServeTheOthersBetweenItsTurns() {
+        jobQueue.pushAll(QUEUE, jobs("a", 6));
+        jobQueue.pushAll(QUEUE, jobs("b", 2));
+        jobQueue.push(QUEUE, null, ScriptArgs.bytes("shared"));
+
+        assertEquals(List.of("a0", "a1", "b0", "b1", "shared", "a2", "a3", "a4", "a5"), poll(20));
+        assertEquals(0, jobQueue.size(QUEUE));
+    }
+
+    @Test
+    void poll_TurnCutShortByAFullPoll_ShouldFinishTheTurnOnTheNextPoll() {
+        ReflectionTestUtils.setField(jobQueue, "quantum", 3);
+        jobQueue.pushAll(QUEUE, jobs("a", 5));
+        jobQueue.pushAll(QUEUE, jobs("b", 1));
+
+        assertEquals(List.of("a0", "a1"), poll(2));
+        assertEquals(List.of("a2", "b0", "a3", "a4"), poll(10));
+    }
+
+    @Test
+    void promoteDue_ShouldQueueRetriesBehindTheirMerchant() {
+        jobQueue.pushAll(QUEUE, jobs("a", 1));
+        jobQueue.schedule(QUEUE, "b", ScriptArgs.bytes("b-retry"), 1);
+        jobQueue.schedule(QUEUE, "a", ScriptArgs.bytes("a-retry"), 2);
+
+        assertEquals(2, jobQueue.promoteDue(QUEUE, 10, 10));
+        assertEquals(0, jobQueue.delayedSize(QUEUE));
+        assertEquals(3, jobQueue.size(QUEUE));
+        assertEquals(List.of("a0", "a-retry", "b-retry"), poll(10));
+    }
+
+    @Test
+    void keys_ShouldAllShareTheQueueHashTag() {
+        jobQueue.pushAll(QUEUE, jobs("a", 3));
+        jobQueue.schedule(QUEUE, "b", ScriptArgs.bytes("b-retry"), 1);
+        poll(1);
+
+        assertTrue(redis.keys("*").stream().allMatch(key -> key.startsWith("{" + QUEUE + "}:")),
+                () -> "keys: " + redis.keys("*"));
+    }
+
+    private List<OutgoingJob> jobs(String merchant, int count) {
+        List<OutgoingJob> jobs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            jobs.add(new OutgoingJob(merchant, ScriptArgs.bytes(merchant + i)));
+        }
+        return jobs;
+    }
+
+    private List<String> poll(int max) {
+        return jobQueue.poll(QUEUE, max, 100, TimeUnit.MILLISECONDS).stream()
+                .map(job -> ScriptArgs.string(job.getPayload()))
+                .toList();
+    }
+}
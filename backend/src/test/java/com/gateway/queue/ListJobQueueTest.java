@@ -0,0 +1,61 @@
+package com.gateway.queue;
+
+import com.gateway.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.gateway.queue.ReliableListJobQueueTest.bytes;
+import static com.gateway.queue.ReliableListJobQueueTest.jobs;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListJobQueueTest {
+
+    private static final String QUEUE = "queue:test";
+
+    private final ListJobQueue jobQueue = new ListJobQueue();
+
+    ListJobQueueTest() {
+        ReflectionTestUtils.setField(jobQueue, "jobRedisTemplate", EmbeddedRedis.jobTemplate());
+    }
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+    }
+
+    @Test
+    void poll_Backlog_ShouldTakeUpToMaxInOrder() {
+        jobQueue.pushAll(QUEUE, jobs("a", "b", "c"));
+
+        assertEquals(List.of("a", "b"), payloads(jobQueue.poll(QUEUE, 2, 1, TimeUnit.SECONDS)));
+        assertEquals(List.of("c"), payloads(jobQueue.poll(QUEUE, 2, 1, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    void poll_EmptyQueue_ShouldBlockForTheNextJob() throws Exception {
+        Thread pusher = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            jobQueue.push(QUEUE, null, bytes("late"));
+        });
+        pusher.start();
+
+        List<QueuedJob> polled = jobQueue.poll(QUEUE, 10, 2, TimeUnit.SECONDS);
+        pusher.join();
+
+        assertEquals(List.of("late"), payloads(polled));
+        assertTrue(jobQueue.poll(QUEUE, 10, 100, TimeUnit.MILLISECONDS).isEmpty());
+    }
+
+    private static List<String> payloads(List<QueuedJob> jobs) {
+        return jobs.stream().map(job -> ScriptArgs.string(job.getPayload())).toList();
+    }
+}
@@ -0,0 +1,89 @@
+package com.gateway.queue;
+
+import com.gateway.EmbeddedRedis;
+import com.gateway.models.OutboxJob;
+import com.gateway.repositories.OutboxJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The claim itself is Postgres SQL (DELETE ... RETURNING with SKIP LOCKED) that H2 cannot
+// run, so the repository is stubbed; the transaction is what puts unsent rows back
+class OutboxRelayTest {
+
+    private final OutboxJobRepository repository = mock(OutboxJobRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final RedisTemplate<String, byte[]> redis = EmbeddedRedis.jobTemplate();
+    private final ListJobQueue jobQueue = new ListJobQueue();
+    private final OutboxRelay relay = new OutboxRelay();
+
+    OutboxRelayTest() {
+        ReflectionTestUtils.setField(jobQueue, "jobRedisTemplate", redis);
+        ReflectionTestUtils.setField(relay, "outboxJobRepository", repository);
+        ReflectionTestUtils.setField(relay, "jobQueue", jobQueue);
+        ReflectionTestUtils.setField(relay, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+    }
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+    }
+
+    @Test
+    void relay_ShouldPushEachQueueInOrderAndCommit() {
+        when(repository.claimBatch(2))
+                .thenReturn(List.of(row(1, "queue:a", "a1"), row(2, "queue:b", "b1")))
+                .thenReturn(List.of(row(3, "queue:a", "a2")));
+
+        relay.relay();
+
+        assertEquals(List.of("a1", "a2"), payloads("queue:a"));
+        assertEquals(List.of("b1"), payloads("queue:b"));
+        // A full batch is followed by another one right away
+        verify(transactionManager, times(2)).commit(any());
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    @Test
+    void relay_RedisDown_ShouldRollTheClaimBack() {
+        JobQueue failing = mock(JobQueue.class);
+        doThrow(new RedisConnectionFailureException("connection refused")).when(failing).pushAll(anyString(), anyList());
+        ReflectionTestUtils.setField(relay, "jobQueue", failing);
+        when(repository.claimBatch(2)).thenReturn(List.of(row(1, "queue:a", "a1")));
+
+        relay.relay();
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    private OutboxJob row(long id, String queue, String payload) {
+        return OutboxJob.builder()
+                .id(id)
+                .queueName(queue)
+                .payload(ScriptArgs.bytes(payload))
+                .build();
+    }
+
+    private List<String> payloads(String queue) {
+        return redis.opsForList().range(queue, 0, -1).stream().map(ScriptArgs::string).toList();
+    }
+}
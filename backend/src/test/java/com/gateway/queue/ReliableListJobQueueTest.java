@@ -0,0 +1,129 @@
+package com.gateway.queue;
+
+import com.gateway.EmbeddedRedis;
+import io.lettuce.core.cluster.SlotHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReliableListJobQueueTest {
+
+    private static final String QUEUE = "queue:test";
+    private static final long VISIBILITY_MS = 300;
+
+    private final RedisTemplate<String, byte[]> redis = EmbeddedRedis.jobTemplate();
+    private final ReliableListJobQueue workerA = queue("worker-a");
+    private final ReliableListJobQueue workerB = queue("worker-b");
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+    }
+
+    @Test
+    void ack_ShouldLeaveNothingToRedeliver() throws InterruptedException {
+        workerA.pushAll(QUEUE, jobs("a", "b"));
+        List<QueuedJob> polled = workerA.poll(QUEUE, 2, 1, TimeUnit.SECONDS);
+        workerA.ack(QUEUE, polled);
+
+        Thread.sleep(VISIBILITY_MS * 2);
+
+        assertEquals(0, workerB.reapExpired(QUEUE));
+        assertEquals(0, workerB.size(QUEUE));
+        assertEquals(0, redis.opsForList().size("{" + QUEUE + "}:processing:worker-a"));
+    }
+
+    @Test
+    void reapExpired_WorkerStoppedMidJob_ShouldRedeliverToAnotherWorker() throws InterruptedException {
+        workerA.push(QUEUE, null, bytes("a"));
+        // Blocking path: a single job is taken with BLMOVE and leased separately
+        List<QueuedJob> polled = workerA.poll(QUEUE, 1, 1, TimeUnit.SECONDS);
+        assertEquals(1, polled.size());
+        assertEquals(0, workerB.reapExpired(QUEUE));
+
+        Thread.sleep(VISIBILITY_MS * 2);
+
+        assertEquals(1, workerB.reapExpired(QUEUE));
+        List<QueuedJob> redelivered = workerB.poll(QUEUE, 1, 1, TimeUnit.SECONDS);
+        assertArrayEquals(bytes("a"), redelivered.get(0).getPayload());
+        assertEquals("worker-b", redelivered.get(0).getId());
+    }
+
+    @Test
+    void extendLeases_RunningJob_ShouldNotBeReapedUntilTheHeartbeatsStop() throws InterruptedException {
+        workerA.pushAll(QUEUE, jobs("a", "b"));
+        List<QueuedJob> polled = workerA.poll(QUEUE, 2, 1, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(VISIBILITY_MS / 2);
+            workerA.extendLeases(QUEUE, polled);
+        }
+        assertEquals(0, workerB.reapExpired(QUEUE));
+
+        Thread.sleep(VISIBILITY_MS * 2);
+        assertEquals(2, workerB.reapExpired(QUEUE));
+        assertEquals(2, workerB.size(QUEUE));
+    }
+
+    @Test
+    void extendLeases_AfterAck_ShouldNotLeaseTheJobAgain() {
+        workerA.pushAll(QUEUE, jobs("a", "b"));
+        List<QueuedJob> polled = workerA.poll(QUEUE, 2, 1, TimeUnit.SECONDS);
+
+        workerA.ack(QUEUE, polled.subList(0, 1));
+        workerA.extendLeases(QUEUE, polled);
+
+        assertEquals(1, redis.opsForZSet().zCard("{" + QUEUE + "}:processing:worker-a:leases"));
+    }
+
+    @Test
+    void poll_ShouldKeepEveryKeyInTheClusterSlotOfTheQueue() {
+        workerA.pushAll(QUEUE, jobs("a", "b"));
+        workerA.poll(QUEUE, 2, 1, TimeUnit.SECONDS);
+        workerA.schedule(QUEUE, null, bytes("c"), 1_000);
+
+        for (String key : redis.keys("*")) {
+            assertEquals(SlotHash.getSlot(QUEUE), SlotHash.getSlot(key), key);
+        }
+    }
+
+    @Test
+    void reapExpired_JobLeasedUnderTheUntaggedKeys_ShouldStillBeRedelivered() throws InterruptedException {
+        // As left by a worker from before the hash tag
+        redis.opsForList().rightPush(QUEUE + ":processing:worker-old", bytes("a"));
+        redis.opsForZSet().add(QUEUE + ":processing:worker-old:leases", bytes("a"), 0);
+        redis.opsForSet().add(QUEUE + ":consumers", bytes("worker-old"));
+
+        assertEquals(1, workerB.reapExpired(QUEUE));
+
+        assertArrayEquals(bytes("a"), workerB.poll(QUEUE, 1, 1, TimeUnit.SECONDS).get(0).getPayload());
+        assertEquals(Boolean.FALSE, redis.hasKey(QUEUE + ":consumers"));
+    }
+
+    private ReliableListJobQueue queue(String workerId) {
+        WorkerIdentity identity = new WorkerIdentity();
+        ReflectionTestUtils.setField(identity, "id", workerId);
+        ReliableListJobQueue queue = new ReliableListJobQueue();
+        ReflectionTestUtils.setField(queue, "jobRedisTemplate", redis);
+        ReflectionTestUtils.setField(queue, "workerIdentity", identity);
+        ReflectionTestUtils.setField(queue, "visibilityTimeoutMs", VISIBILITY_MS);
+        ReflectionTestUtils.setField(queue, "reapBatchSize", 100);
+        return queue;
+    }
+
+    static List<OutgoingJob> jobs(String... payloads) {
+        return Arrays.stream(payloads).map(p -> new OutgoingJob(null, bytes(p))).toList();
+    }
+
+    static byte[] bytes(String value) {
+        return ScriptArgs.bytes(value);
+    }
+}
@@ -0,0 +1,118 @@
+package com.gateway.queue;
+
+import com.gateway.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamJobQueueTest {
+
+    private static final String QUEUE = "queue:test";
+    private static final long VISIBILITY_MS = 300;
+    private static final long MAX_LENGTH = 3;
+
+    private final StreamJobQueue workerA = queue("worker-a");
+    private final StreamJobQueue workerB = queue("worker-b");
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+    }
+
+    @Test
+    void ack_ShouldDeleteTheEntries() {
+        workerA.pushAll(QUEUE, jobs("a", "b"));
+        List<QueuedJob> polled = workerA.poll(QUEUE, 2, 1, TimeUnit.SECONDS);
+        assertEquals(2, polled.size());
+
+        workerA.ack(QUEUE, polled);
+
+        assertEquals(0, workerA.size(QUEUE));
+        assertTrue(workerB.poll(QUEUE, 2, 100, TimeUnit.MILLISECONDS).isEmpty());
+    }
+
+    @Test
+    void poll_ConsumerStoppedMidJob_ShouldClaimItsEntriesAfterTheVisibilityTimeout() throws InterruptedException {
+        workerA.push(QUEUE, null, bytes("a"));
+        List<QueuedJob> polled = workerA.poll(QUEUE, 1, 1, TimeUnit.SECONDS);
+        assertTrue(workerB.poll(QUEUE, 1, 100, TimeUnit.MILLISECONDS).isEmpty());
+
+        Thread.sleep(VISIBILITY_MS * 2);
+
+        List<QueuedJob> claimed = workerB.poll(QUEUE, 1, 100, TimeUnit.MILLISECONDS);
+        assertEquals(1, claimed.size());
+        assertEquals(polled.get(0).getId(), claimed.get(0).getId());
+        assertArrayEquals(bytes("a"), claimed.get(0).getPayload());
+    }
+
+    @Test
+    void extendLeases_RunningEntries_ShouldNotBeClaimed() throws InterruptedException {
+        workerA.pushAll(QUEUE, jobs("a", "b"));
+        List<QueuedJob> polled = workerA.poll(QUEUE, 2, 1, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(VISIBILITY_MS / 2);
+            workerA.extendLeases(QUEUE, polled);
+        }
+
+        assertTrue(workerB.poll(QUEUE, 2, 100, TimeUnit.MILLISECONDS).isEmpty());
+    }
+
+    @Test
+    void pushAll_PastMaxLength_ShouldRefuseTheWholeBatch() {
+        workerA.pushAll(QUEUE, jobs("a", "b"));
+
+        assertThrows(QueueFullException.class, () -> workerA.pushAll(QUEUE, jobs("c", "d")));
+        assertEquals(2, workerA.size(QUEUE));
+
+        workerA.push(QUEUE, null, bytes("c"));
+        assertThrows(QueueFullException.class, () -> workerA.push(QUEUE, null, bytes("d")));
+        assertEquals(MAX_LENGTH, workerA.size(QUEUE));
+    }
+
+    @Test
+    void promoteDue_StreamFull_ShouldLeaveRetriesDelayedUntilThereIsRoom() {
+        workerA.pushAll(QUEUE, jobs("a", "b"));
+        workerA.schedule(QUEUE, null, bytes("retry-1"), 1);
+        workerA.schedule(QUEUE, null, bytes("retry-2"), 2);
+
+        assertEquals(1, workerA.promoteDue(QUEUE, System.currentTimeMillis(), 10));
+        assertEquals(1, workerA.delayedSize(QUEUE));
+
+        workerA.ack(QUEUE, workerA.poll(QUEUE, 3, 1, TimeUnit.SECONDS));
+        assertEquals(1, workerA.promoteDue(QUEUE, System.currentTimeMillis(), 10));
+        assertEquals(0, workerA.delayedSize(QUEUE));
+        assertArrayEquals(bytes("retry-2"), workerA.peekOldest(QUEUE));
+    }
+
+    private StreamJobQueue queue(String workerId) {
+        WorkerIdentity identity = new WorkerIdentity();
+        ReflectionTestUtils.setField(identity, "id", workerId);
+        StreamJobQueue queue = new StreamJobQueue();
+        ReflectionTestUtils.setField(queue, "jobRedisTemplate", EmbeddedRedis.jobTemplate());
+        ReflectionTestUtils.setField(queue, "workerIdentity", identity);
+        ReflectionTestUtils.setField(queue, "group", "workers");
+        ReflectionTestUtils.setField(queue, "maxLength", MAX_LENGTH);
+        ReflectionTestUtils.setField(queue, "visibilityTimeoutMs", VISIBILITY_MS);
+        // Look for stale entries on every poll
+        ReflectionTestUtils.setField(queue, "claimIntervalMs", 0L);
+        return queue;
+    }
+
+    private static List<OutgoingJob> jobs(String... payloads) {
+        return Arrays.stream(payloads).map(p -> new OutgoingJob(null, bytes(p))).toList();
+    }
+
+    private static byte[] bytes(String value) {
+        return ScriptArgs.bytes(value);
+    }
+}
@@ -0,0 +1,76 @@
+package com.gateway.repositories;
+
+import com.gateway.models.Payment;
+import com.gateway.models.Refund;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Duplicate deliveries of a payment or refund job must settle it once
+@DataJpaTest
+class SettlementRepositoryTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private RefundRepository refundRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void batchUpdateStatus_Payment_ShouldSettleOnlyPendingPayments() {
+        Payment first = pendingPayment("pay_dup_1");
+        Payment second = pendingPayment("pay_dup_2");
+        paymentRepository.saveAllAndFlush(List.of(first, second));
+
+        first.setStatus("success");
+        first.setUpdatedAt(LocalDateTime.now());
+        assertEquals(List.of(first), paymentRepository.batchUpdateStatus(List.of(first)));
+
+        // A redelivered job loaded the first payment while it was still pending
+        first.setStatus("failed");
+        second.setStatus("success");
+        second.setUpdatedAt(LocalDateTime.now());
+        assertEquals(List.of(second), paymentRepository.batchUpdateStatus(List.of(first, second)));
+
+        entityManager.clear();
+        assertEquals("success", paymentRepository.findById("pay_dup_1").map(Payment::getStatus).orElseThrow());
+    }
+
+    @Test
+    void batchUpdateStatus_Refund_ShouldProcessOnlyPendingRefunds() {
+        Refund refund = new Refund();
+        refund.setId("rfnd_dup_1");
+        refund.setPaymentId("pay_dup_1");
+        refund.setMerchantId(UUID.randomUUID());
+        refund.setAmount(100L);
+        refund.setStatus("pending");
+        refund.setCreatedAt(LocalDateTime.now());
+        refundRepository.saveAndFlush(refund);
+
+        refund.setStatus("processed");
+        refund.setProcessedAt(LocalDateTime.now());
+        assertEquals(1, refundRepository.batchUpdateStatus(List.of(refund)).size());
+        assertEquals(0, refundRepository.batchUpdateStatus(List.of(refund)).size());
+    }
+
+    private Payment pendingPayment(String id) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setOrderId("order_dup");
+        payment.setMerchantId(UUID.randomUUID());
+        payment.setAmount(50000);
+        payment.setMethod("upi");
+        payment.setStatus("pending");
+        return payment;
+    }
+}
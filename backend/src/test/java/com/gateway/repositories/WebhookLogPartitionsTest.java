@@ -0,0 +1,168 @@
+package com.gateway.repositories;
+
+import com.gateway.models.WebhookLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Partitioning is PostgreSQL-only and H2 cannot stand in for it. Runs against a scratch
+// database it is free to drop tables in, e.g.
+//   TEST_POSTGRES_URL=jdbc:postgresql://localhost:5432/gateway_test TEST_POSTGRES_USER=... \
+//   TEST_POSTGRES_PASSWORD=... mvn test -Dtest=WebhookLogPartitionsTest
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = ".+")
+class WebhookLogPartitionsTest {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final int RETENTION_MONTHS = 3;
+
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            System.getenv("TEST_POSTGRES_URL"), System.getenv("TEST_POSTGRES_USER"),
+            System.getenv("TEST_POSTGRES_PASSWORD"));
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final UUID merchantId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS webhook_logs, webhook_logs_unpartitioned, merchants CASCADE");
+        jdbcTemplate.execute("CREATE TABLE merchants (id UUID PRIMARY KEY)");
+        jdbcTemplate.update("INSERT INTO merchants (id) VALUES (?)", merchantId);
+    }
+
+    @Test
+    void maintain_LegacyTable_ShouldConvertAndCopyTheRowsWithinRetention() {
+        jdbcTemplate.execute("CREATE TABLE webhook_logs (id UUID PRIMARY KEY, "
+                + "merchant_id UUID NOT NULL REFERENCES merchants(id), event VARCHAR(50) NOT NULL, "
+                + "payload JSONB NOT NULL, status VARCHAR(20), attempts INTEGER, last_attempt_at TIMESTAMP, "
+                + "next_retry_at TIMESTAMP, response_code INTEGER, response_body TEXT, created_at TIMESTAMP)");
+        UUID recent = legacyRow(LocalDateTime.now().minusDays(1), "x".repeat(5000));
+        legacyRow(LocalDateTime.now().minusMonths(RETENTION_MONTHS + 2), "ok");
+
+        partitions().start();
+
+        assertEquals("p", relkind("webhook_logs"));
+        assertEquals(List.of(recent), jdbcTemplate.queryForList("SELECT id FROM webhook_logs", UUID.class));
+        assertEquals(1024, jdbcTemplate.queryForObject(
+                "SELECT LENGTH(response_body) FROM webhook_logs WHERE id = ?", Integer.class, recent));
+        // The old table is kept for the operator to drop, with every row and its own key
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM webhook_logs_unpartitioned", Integer.class));
+        assertTrue(jdbcTemplate.queryForList("SELECT conname FROM pg_constraint WHERE conrelid = "
+                + "'webhook_logs_unpartitioned'::regclass AND contype = 'p'", String.class).get(0)
+                .startsWith("webhook_logs_unpartitioned_"));
+        assertTrue(partitionNames().contains("webhook_logs_p" + YearMonth.now().plusMonths(2).format(SUFFIX)));
+        assertFalse(partitionNames().contains(partitionFor(YearMonth.now().minusMonths(RETENTION_MONTHS + 2))));
+    }
+
+    @Test
+    void maintain_EmptyLegacyTable_ShouldDropIt() {
+        jdbcTemplate.execute("CREATE TABLE webhook_logs (id UUID PRIMARY KEY, merchant_id UUID NOT NULL, "
+                + "event VARCHAR(50) NOT NULL, payload TEXT NOT NULL, status VARCHAR(20), attempts INTEGER, "
+                + "last_attempt_at TIMESTAMP, next_retry_at TIMESTAMP, response_code INTEGER, "
+                + "response_body TEXT, created_at TIMESTAMP)");
+
+        partitions().start();
+
+        assertEquals("p", relkind("webhook_logs"));
+        assertNull(relkind("webhook_logs_unpartitioned"));
+    }
+
+    @Test
+    void maintain_ShouldDropOnlyPartitionsPastRetention() {
+        WebhookLogPartitions partitions = partitions();
+        partitions.start();
+        YearMonth expiredMonth = YearMonth.now().minusMonths(RETENTION_MONTHS + 1);
+        YearMonth keptMonth = YearMonth.now().minusMonths(RETENTION_MONTHS);
+        for (YearMonth month : List.of(expiredMonth, keptMonth)) {
+            jdbcTemplate.execute("CREATE TABLE " + partitionFor(month) + " PARTITION OF webhook_logs FOR VALUES FROM ('"
+                    + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        }
+        jdbcTemplate.update("INSERT INTO webhook_logs (id, merchant_id, event, payload, created_at) "
+                + "VALUES (?, ?, 'payment.success', '{}', ?)", UUID.randomUUID(), merchantId,
+                Timestamp.valueOf(expiredMonth.atDay(2).atStartOfDay()));
+
+        partitions.maintain();
+
+        List<String> names = partitionNames();
+        assertFalse(names.contains(partitionFor(expiredMonth)));
+        assertTrue(names.contains(partitionFor(keptMonth)));
+        assertTrue(names.contains(partitionFor(YearMonth.now())));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM webhook_logs", Integer.class));
+    }
+
+    @Test
+    void updateAttempts_ShouldWriteTheRowInItsPartition() {
+        partitions().start();
+        WebhookLogRepositoryImpl repository = new WebhookLogRepositoryImpl();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        WebhookLog log = WebhookLog.builder()
+                .id(UUID.randomUUID())
+                .merchantId(merchantId)
+                .event("payment.success")
+                .payload("{}")
+                .status("pending")
+                .attempts(0)
+                .createdAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                .build();
+        repository.insertAll(List.of(log));
+
+        log.setStatus("success");
+        log.setAttempts(1);
+        log.setResponseCode(200);
+        repository.updateAttempts(List.of(log));
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT status, attempts, response_code FROM webhook_logs WHERE id = ?", log.getId());
+        assertEquals("success", row.get("status"));
+        assertEquals(1, row.get("attempts"));
+        assertEquals(200, row.get("response_code"));
+    }
+
+    private WebhookLogPartitions partitions() {
+        WebhookLogPartitions partitions = new WebhookLogPartitions();
+        ReflectionTestUtils.setField(partitions, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(partitions, "dataSource", dataSource);
+        ReflectionTestUtils.setField(partitions, "enabled", true);
+        ReflectionTestUtils.setField(partitions, "retentionMonths", RETENTION_MONTHS);
+        ReflectionTestUtils.setField(partitions, "premakeMonths", 2);
+        ReflectionTestUtils.setField(partitions, "maxResponseBodyChars", 1024);
+        return partitions;
+    }
+
+    private UUID legacyRow(LocalDateTime createdAt, String responseBody) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO webhook_logs (id, merchant_id, event, payload, status, attempts, "
+                + "response_body, created_at) VALUES (?, ?, 'payment.success', '{\"a\": 1}', 'success', 1, ?, ?)",
+                id, merchantId, responseBody, Timestamp.valueOf(createdAt));
+        return id;
+    }
+
+    private String relkind(String table) {
+        return jdbcTemplate.query("SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)",
+                rs -> rs.next() ? rs.getString(1) : null, table);
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = 'webhook_logs'::regclass", String.class);
+    }
+
+    private static String partitionFor(YearMonth month) {
+        return "webhook_logs_p" + month.format(SUFFIX);
+    }
+}
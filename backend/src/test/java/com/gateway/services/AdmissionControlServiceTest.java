@@ -0,0 +1,116 @@
+package com.gateway.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.jobs.JobCodec;
+import com.gateway.models.OutboxJob;
+import com.gateway.queue.JobQueue;
+import com.gateway.queue.OutgoingJob;
+import com.gateway.repositories.OutboxJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The backlog a slow relay leaves in outbox_jobs, with queue:payments itself empty
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AdmissionControlServiceTest {
+
+    @Autowired
+    private OutboxJobRepository outboxJobRepository;
+
+    private final JobQueue jobQueue = mock(JobQueue.class);
+    private final AdmissionControlService admission = new AdmissionControlService();
+
+    AdmissionControlServiceTest() {
+        JobCodec codec = new JobCodec();
+        ReflectionTestUtils.setField(codec, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(admission, "jobQueue", jobQueue);
+        ReflectionTestUtils.setField(admission, "jobCodec", codec);
+        ReflectionTestUtils.setField(admission, "outboxEnabled", true);
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        // Sample on every call
+        ReflectionTestUtils.setField(admission, "sampleIntervalMs", 0L);
+        ReflectionTestUtils.setField(admission, "merchantMaxDepth", 10L);
+        ReflectionTestUtils.setField(admission, "merchantMaxAgeMs", 60_000L);
+        ReflectionTestUtils.setField(admission, "merchantRetryAfterSeconds", 5L);
+        ReflectionTestUtils.setField(admission, "publicMaxDepth", 5L);
+        ReflectionTestUtils.setField(admission, "publicMaxAgeMs", 30_000L);
+        ReflectionTestUtils.setField(admission, "publicRetryAfterSeconds", 10L);
+        when(jobQueue.size(JobService.QUEUE_PAYMENTS)).thenReturn(0L);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(admission, "outboxJobRepository", outboxJobRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxJobRepository.deleteAll();
+    }
+
+    @Test
+    void admitPayment_OutboxBacklogOverTheDepthLimits_ShouldShed() {
+        outboxJobRepository.insertAll(JobService.QUEUE_PAYMENTS, jobs(8));
+        // Other queues' jobs do not count
+        outboxJobRepository.insertAll(JobService.QUEUE_WEBHOOKS, jobs(20));
+
+        assertDoesNotThrow(() -> admission.admitPayment(AdmissionControlService.Budget.MERCHANT));
+        OverloadedException shed = assertThrows(OverloadedException.class,
+                () -> admission.admitPayment(AdmissionControlService.Budget.PUBLIC));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, shed.getStatusCode());
+        assertEquals("10", shed.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        outboxJobRepository.insertAll(JobService.QUEUE_PAYMENTS, jobs(3));
+
+        shed = assertThrows(OverloadedException.class,
+                () -> admission.admitPayment(AdmissionControlService.Budget.MERCHANT));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, shed.getStatusCode());
+    }
+
+    @Test
+    void admitPayment_OldestOutboxJobOverTheAgeLimit_ShouldShed() {
+        outboxJobRepository.save(OutboxJob.builder()
+                .queueName(JobService.QUEUE_PAYMENTS)
+                .payload(new byte[]{1})
+                .createdAt(LocalDateTime.now().minusSeconds(45))
+                .build());
+
+        assertDoesNotThrow(() -> admission.admitPayment(AdmissionControlService.Budget.MERCHANT));
+        OverloadedException shed = assertThrows(OverloadedException.class,
+                () -> admission.admitPayment(AdmissionControlService.Budget.PUBLIC));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, shed.getStatusCode());
+    }
+
+    @Test
+    void admitPayment_OutboxDrained_ShouldAdmit() {
+        outboxJobRepository.insertAll(JobService.QUEUE_PAYMENTS, jobs(20));
+        assertThrows(OverloadedException.class, () -> admission.admitPayment(AdmissionControlService.Budget.MERCHANT));
+
+        outboxJobRepository.deleteAll();
+
+        assertDoesNotThrow(() -> admission.admitPayment(AdmissionControlService.Budget.MERCHANT));
+        assertDoesNotThrow(() -> admission.admitPayment(AdmissionControlService.Budget.PUBLIC));
+    }
+
+    private static List<OutgoingJob> jobs(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new OutgoingJob(null, new byte[]{1})).toList();
+    }
+}
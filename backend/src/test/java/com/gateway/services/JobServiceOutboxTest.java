@@ -0,0 +1,93 @@
+package com.gateway.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.jobs.JobCodec;
+import com.gateway.jobs.ProcessPaymentJob;
+import com.gateway.models.OutboxJob;
+import com.gateway.queue.JobQueue;
+import com.gateway.repositories.OutboxJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+// Outbox rows commit and roll back with the business transaction, on a real database
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JobServiceOutboxTest {
+
+    @Autowired
+    private OutboxJobRepository outboxJobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final JobQueue jobQueue = mock(JobQueue.class);
+    private final JobCodec codec = new JobCodec();
+    private final JobService jobService = new JobService();
+
+    JobServiceOutboxTest() {
+        ReflectionTestUtils.setField(codec, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(codec, "compressThreshold", 1024);
+        ReflectionTestUtils.setField(jobService, "jobCodec", codec);
+        ReflectionTestUtils.setField(jobService, "jobQueue", jobQueue);
+        ReflectionTestUtils.setField(jobService, "outboxEnabled", true);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jobService, "outboxJobRepository", outboxJobRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxJobRepository.deleteAll();
+    }
+
+    @Test
+    void schedule_Committed_ShouldLeaveTheJobInTheOutbox() {
+        UUID merchantId = UUID.randomUUID();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> jobService.runBuffered(() -> {
+            jobService.schedulePaymentProcessing(new ProcessPaymentJob("pay_1", merchantId));
+            jobService.schedulePaymentProcessing(new ProcessPaymentJob("pay_2", merchantId));
+        }));
+
+        List<OutboxJob> rows = outboxJobRepository.findAll();
+        rows.sort(Comparator.comparing(OutboxJob::getId));
+        assertEquals(2, rows.size());
+        assertEquals(JobService.QUEUE_PAYMENTS, rows.get(0).getQueueName());
+        assertEquals(merchantId.toString(), rows.get(0).getPartitionKey());
+        assertEquals("pay_1", codec.decode(rows.get(0).getPayload(), ProcessPaymentJob.class).getJob().getPaymentId());
+        assertEquals("pay_2", codec.decode(rows.get(1).getPayload(), ProcessPaymentJob.class).getJob().getPaymentId());
+        verifyNoInteractions(jobQueue);
+    }
+
+    @Test
+    void schedule_RolledBack_ShouldLeaveNothingToRelay() {
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    jobService.schedulePaymentProcessing(new ProcessPaymentJob("pay_1", UUID.randomUUID()));
+                    throw new IllegalStateException("payment insert failed");
+                }));
+
+        assertTrue(outboxJobRepository.findAll().isEmpty());
+        verifyNoInteractions(jobQueue);
+    }
+}
@@ -0,0 +1,163 @@
+package com.gateway.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.jobs.JobCodec;
+import com.gateway.jobs.ProcessPaymentJob;
+import com.gateway.jobs.ProcessRefundJob;
+import com.gateway.queue.JobQueue;
+import com.gateway.queue.OutgoingJob;
+import com.gateway.repositories.OutboxJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class JobServiceTest {
+
+    private final JobQueue jobQueue = mock(JobQueue.class);
+    private final OutboxJobRepository outboxJobRepository = mock(OutboxJobRepository.class);
+    private final JobService jobService = new JobService();
+
+    @BeforeEach
+    void setUp() {
+        JobCodec codec = new JobCodec();
+        ReflectionTestUtils.setField(codec, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(codec, "compressThreshold", 1024);
+        ReflectionTestUtils.setField(jobService, "jobCodec", codec);
+        ReflectionTestUtils.setField(jobService, "jobQueue", jobQueue);
+        ReflectionTestUtils.setField(jobService, "outboxJobRepository", outboxJobRepository);
+
+        // As inside a @Transactional method
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void schedule_OutboxEnabled_ShouldWriteTheOutboxInTheTransaction() {
+        ReflectionTestUtils.setField(jobService, "outboxEnabled", true);
+
+        jobService.schedulePaymentProcessing(new ProcessPaymentJob("pay_1", UUID.randomUUID()));
+
+        verify(outboxJobRepository).insertAll(eq(JobService.QUEUE_PAYMENTS), anyList());
+        verifyNoInteractions(jobQueue);
+    }
+
+    @Test
+    void schedule_OutboxDisabled_ShouldPushOnlyAfterCommit() {
+        ReflectionTestUtils.setField(jobService, "outboxEnabled", false);
+
+        jobService.schedulePaymentProcessing(new ProcessPaymentJob("pay_1", UUID.randomUUID()));
+        verifyNoInteractions(jobQueue);
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        verify(jobQueue).push(eq(JobService.QUEUE_PAYMENTS), any(), any());
+        verifyNoInteractions(outboxJobRepository);
+    }
+
+    @Test
+    void schedule_OutboxDisabled_RolledBack_ShouldNeverPush() {
+        ReflectionTestUtils.setField(jobService, "outboxEnabled", false);
+
+        jobService.schedulePaymentProcessing(new ProcessPaymentJob("pay_1", UUID.randomUUID()));
+        TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(jobQueue, never()).push(any(), any(), any());
+    }
+
+    @Test
+    void runBuffered_ShouldPushEachQueueOnceWhenTheOutermostWorkReturns() {
+        outsideTransaction();
+
+        jobService.runBuffered(() -> {
+            jobService.schedulePaymentProcessing(payment("pay_1"));
+            jobService.scheduleRefundProcessing(new ProcessRefundJob("rfnd_1", null));
+            // Nested units join the outer one
+            jobService.runBuffered(() -> jobService.schedulePaymentProcessing(
+                    List.of(payment("pay_2"), payment("pay_3"))));
+            verifyNoInteractions(jobQueue);
+        });
+
+        ArgumentCaptor<List<OutgoingJob>> payments = outgoing();
+        verify(jobQueue).pushAll(eq(JobService.QUEUE_PAYMENTS), payments.capture());
+        assertEquals(List.of("pay_1", "pay_2", "pay_3"), paymentIds(payments.getValue()));
+        // A single job still goes out as a plain push
+        verify(jobQueue).push(eq(JobService.QUEUE_REFUNDS), any(), any());
+        verify(jobQueue, never()).pushAll(eq(JobService.QUEUE_REFUNDS), anyList());
+    }
+
+    @Test
+    void callBuffered_WorkThrows_ShouldDropItsBufferedJobs() {
+        outsideTransaction();
+
+        assertThrows(IllegalStateException.class, () -> jobService.callBuffered(() -> {
+            jobService.schedulePaymentProcessing(payment("pay_1"));
+            throw new IllegalStateException("payment not saved");
+        }));
+
+        verifyNoInteractions(jobQueue);
+        // The failed unit leaves nothing behind for the next one on this thread
+        assertEquals("done", jobService.callBuffered(() -> "done"));
+        jobService.schedulePaymentProcessing(payment("pay_2"));
+        verify(jobQueue).push(eq(JobService.QUEUE_PAYMENTS), any(), any());
+        verify(jobQueue, never()).pushAll(any(), anyList());
+    }
+
+    @Test
+    void runBuffered_OutboxEnabled_ShouldInsertOneBatchPerQueue() {
+        ReflectionTestUtils.setField(jobService, "outboxEnabled", true);
+
+        jobService.runBuffered(() -> {
+            jobService.schedulePaymentProcessing(payment("pay_1"));
+            jobService.schedulePaymentProcessing(payment("pay_2"));
+        });
+
+        ArgumentCaptor<List<OutgoingJob>> payments = outgoing();
+        verify(outboxJobRepository).insertAll(eq(JobService.QUEUE_PAYMENTS), payments.capture());
+        assertEquals(List.of("pay_1", "pay_2"), paymentIds(payments.getValue()));
+        verifyNoInteractions(jobQueue);
+    }
+
+    private void outsideTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    private static ProcessPaymentJob payment(String id) {
+        return new ProcessPaymentJob(id, UUID.randomUUID());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<OutgoingJob>> outgoing() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    private List<String> paymentIds(List<OutgoingJob> jobs) {
+        JobCodec codec = (JobCodec) ReflectionTestUtils.getField(jobService, "jobCodec");
+        return jobs.stream()
+                .map(job -> codec.decode(job.getPayload(), ProcessPaymentJob.class).getJob().getPaymentId())
+                .toList();
+    }
+}
@@ -0,0 +1,135 @@
+package com.gateway.services;
+
+import com.gateway.EmbeddedRedis;
+import com.gateway.config.RedisConfig;
+import com.gateway.models.Merchant;
+import com.gateway.repositories.MerchantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Two nodes sharing one database and one Redis, each with the invalidation listener
+// RedisConfig sets up
+class MerchantCacheTest {
+
+    private final MerchantRepository merchantRepository = mock(MerchantRepository.class);
+    private final List<RedisMessageListenerContainer> listeners = new ArrayList<>();
+
+    private final Merchant merchant = merchant("key_1");
+
+    private MerchantCache nodeA;
+    private MerchantCache nodeB;
+    private WebhookSubscriptions subscriptionsB;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+        when(merchantRepository.findById(merchant.getId())).thenReturn(Optional.of(merchant));
+        when(merchantRepository.findByApiKey("key_1")).thenReturn(Optional.of(merchant));
+        nodeA = node(mock(WebhookSubscriptions.class), 60_000L);
+        subscriptionsB = mock(WebhookSubscriptions.class);
+        nodeB = node(subscriptionsB, 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        listeners.forEach(RedisMessageListenerContainer::stop);
+    }
+
+    @Test
+    void byApiKey_ShouldServeRepeatLookupsFromTheCache() {
+        assertSame(merchant, nodeA.byApiKey("key_1").orElseThrow());
+        assertSame(merchant, nodeA.byApiKey("key_1").orElseThrow());
+        assertSame(merchant, nodeA.byId(merchant.getId()).orElseThrow());
+
+        verify(merchantRepository, times(1)).findByApiKey("key_1");
+        verify(merchantRepository, times(0)).findById(merchant.getId());
+    }
+
+    @Test
+    void invalidate_ShouldEvictTheMerchantOnEveryNode() {
+        nodeA.byId(merchant.getId());
+        nodeB.byId(merchant.getId());
+        verify(merchantRepository, times(2)).findById(merchant.getId());
+
+        Merchant renamed = merchant("key_1");
+        renamed.setId(merchant.getId());
+        renamed.setName("Renamed");
+        when(merchantRepository.findById(merchant.getId())).thenReturn(Optional.of(renamed));
+        nodeA.invalidate(merchant.getId());
+
+        verify(subscriptionsB, timeout(2000)).evict(merchant.getId());
+        assertEquals("Renamed", nodeB.byId(merchant.getId()).orElseThrow().getName());
+        assertEquals("Renamed", nodeA.byId(merchant.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void byApiKey_KeyRotated_ShouldStopServingTheOldKey() {
+        nodeB.byApiKey("key_1");
+
+        Merchant rotated = merchant("key_2");
+        rotated.setId(merchant.getId());
+        when(merchantRepository.findById(merchant.getId())).thenReturn(Optional.of(rotated));
+        when(merchantRepository.findByApiKey("key_2")).thenReturn(Optional.of(rotated));
+        when(merchantRepository.findByApiKey("key_1")).thenReturn(Optional.empty());
+        nodeA.invalidate(merchant.getId());
+        verify(subscriptionsB, timeout(2000)).evict(merchant.getId());
+
+        assertTrue(nodeB.byApiKey("key_1").isEmpty());
+        assertSame(rotated, nodeB.byApiKey("key_2").orElseThrow());
+    }
+
+    @Test
+    void byId_ExpiredEntry_ShouldReload() throws InterruptedException {
+        MerchantCache shortLived = node(mock(WebhookSubscriptions.class), 100L);
+        shortLived.byId(merchant.getId());
+        shortLived.byId(merchant.getId());
+        verify(merchantRepository, times(1)).findById(merchant.getId());
+
+        Thread.sleep(200);
+
+        shortLived.byId(merchant.getId());
+        verify(merchantRepository, times(2)).findById(merchant.getId());
+    }
+
+    private MerchantCache node(WebhookSubscriptions webhookSubscriptions, long ttlMs) {
+        MerchantCache cache = new MerchantCache();
+        ReflectionTestUtils.setField(cache, "merchantRepository", merchantRepository);
+        ReflectionTestUtils.setField(cache, "webhookSubscriptions", webhookSubscriptions);
+        ReflectionTestUtils.setField(cache, "redisTemplate", EmbeddedRedis.stringTemplate());
+        ReflectionTestUtils.setField(cache, "ttlMs", ttlMs);
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+        ReflectionTestUtils.setField(cache, "broadcast", true);
+
+        RedisMessageListenerContainer listener = new RedisConfig()
+                .merchantInvalidationListener(EmbeddedRedis.connectionFactory(), cache);
+        listener.afterPropertiesSet();
+        listener.start();
+        listeners.add(listener);
+        return cache;
+    }
+
+    private static Merchant merchant(String apiKey) {
+        Merchant merchant = new Merchant();
+        merchant.setId(UUID.randomUUID());
+        merchant.setName("Merchant");
+        merchant.setApiKey(apiKey);
+        return merchant;
+    }
+}
@@ -0,0 +1,128 @@
+package com.gateway.services;
+
+import com.gateway.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookCircuitBreakerTest {
+
+    private static final String URL = "https://merchant.example/webhooks";
+    private static final long OPEN_MS = 300;
+
+    private final WebhookCircuitBreaker breaker = breaker(EmbeddedRedis.stringTemplate());
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+    }
+
+    @Test
+    void recordFailure_FailureRateAboveThreshold_ShouldOpenTheCircuit() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordSuccess(URL);
+            breaker.recordFailure(URL, false, "HTTP 500");
+        }
+        assertEquals(0, breaker.deferUntil(URL));
+
+        breaker.recordFailure(URL, false, "HTTP 500");
+
+        long until = breaker.deferUntil(URL);
+        assertTrue(until > System.currentTimeMillis(), "deliveries should be deferred while open");
+        assertEquals("open", breaker.health(URL).get("state"));
+    }
+
+    @Test
+    void recordFailure_BelowMinCalls_ShouldStayClosed() {
+        for (int i = 0; i < 5; i++) {
+            breaker.recordFailure(URL, false, "HTTP 500");
+        }
+
+        assertEquals(0, breaker.deferUntil(URL));
+    }
+
+    @Test
+    void recordFailure_ConsecutiveTimeouts_ShouldOpenBeforeMinCalls() {
+        breaker.recordFailure(URL, true, "timeout");
+        breaker.recordFailure(URL, true, "timeout");
+        assertEquals(0, breaker.deferUntil(URL));
+
+        breaker.recordFailure(URL, true, "timeout");
+
+        assertTrue(breaker.deferUntil(URL) > 0);
+    }
+
+    @Test
+    void deferUntil_AfterOpenPeriod_ShouldLetOneProbeThroughAndCloseOnSuccess() throws InterruptedException {
+        trip();
+        Thread.sleep(OPEN_MS + 50);
+
+        assertEquals(0, breaker.deferUntil(URL));
+        assertTrue(breaker.deferUntil(URL) > 0, "only one probe at a time");
+
+        breaker.recordSuccess(URL);
+
+        assertEquals(0, breaker.deferUntil(URL));
+        Map<String, Object> health = breaker.health(URL);
+        assertEquals("closed", health.get("state"));
+        assertEquals(0L, health.get("failures"));
+    }
+
+    @Test
+    void recordFailure_ProbeFails_ShouldReopenForTwiceAsLong() throws InterruptedException {
+        trip();
+        Thread.sleep(OPEN_MS + 50);
+        assertEquals(0, breaker.deferUntil(URL));
+
+        long failedAt = System.currentTimeMillis();
+        breaker.recordFailure(URL, false, "HTTP 503");
+
+        long reopenedFor = breaker.deferUntil(URL) - failedAt;
+        assertTrue(reopenedFor > OPEN_MS && reopenedFor <= 2 * OPEN_MS + 50, "reopened for " + reopenedFor + " ms");
+    }
+
+    @Test
+    void deferUntil_RedisDown_ShouldFailOpen() {
+        LettuceConnectionFactory unreachable = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("127.0.0.1", 1));
+        unreachable.afterPropertiesSet();
+        unreachable.start();
+        try {
+            WebhookCircuitBreaker down = breaker(new StringRedisTemplate(unreachable));
+            assertEquals(0, down.deferUntil(URL));
+            down.recordFailure(URL, false, "HTTP 500");
+        } finally {
+            unreachable.destroy();
+        }
+    }
+
+    private void trip() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure(URL, true, "timeout");
+        }
+        assertTrue(breaker.deferUntil(URL) > 0);
+    }
+
+    private WebhookCircuitBreaker breaker(StringRedisTemplate redis) {
+        WebhookCircuitBreaker breaker = new WebhookCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "bucketMs", 10_000L);
+        ReflectionTestUtils.setField(breaker, "bucketCount", 6);
+        ReflectionTestUtils.setField(breaker, "failureRatePercent", 50);
+        ReflectionTestUtils.setField(breaker, "minCalls", 7);
+        ReflectionTestUtils.setField(breaker, "consecutiveTimeouts", 3);
+        ReflectionTestUtils.setField(breaker, "openMs", OPEN_MS);
+        ReflectionTestUtils.setField(breaker, "maxOpenMs", 10 * OPEN_MS);
+        ReflectionTestUtils.setField(breaker, "probeTimeoutMs", 1_000L);
+        return breaker;
+    }
+}
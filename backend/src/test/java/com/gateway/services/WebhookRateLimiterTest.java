@@ -0,0 +1,110 @@
+package com.gateway.services;
+
+import com.gateway.EmbeddedRedis;
+import com.gateway.models.Merchant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookRateLimiterTest {
+
+    private final WebhookRateLimiter limiter = limiter(EmbeddedRedis.stringTemplate());
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+    }
+
+    @Test
+    void acquire_ShouldSpendTheBurstThenSpaceSlotsAtTheRate() {
+        // 10 per second: one slot every 100 ms after a burst of 3
+        Merchant merchant = merchant(10, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(new WebhookRateLimiter.Slot(true, 0), limiter.acquire(merchant, 1));
+        }
+
+        WebhookRateLimiter.Slot fourth = limiter.acquire(merchant, 1);
+        WebhookRateLimiter.Slot fifth = limiter.acquire(merchant, 1);
+
+        assertTrue(fourth.granted() && fourth.waitMs() > 50 && fourth.waitMs() <= 100, fourth::toString);
+        assertTrue(fifth.granted() && fifth.waitMs() > 150 && fifth.waitMs() <= 200, fifth::toString);
+    }
+
+    @Test
+    void acquire_WaitPastMaxWait_ShouldBeDeniedWithoutTakingASlot() {
+        Merchant merchant = merchant(10, 1);
+        limiter.acquire(merchant, 1);
+        limiter.acquire(merchant, 1);
+        limiter.acquire(merchant, 1);
+
+        WebhookRateLimiter.Slot denied = limiter.acquire(merchant, 1);
+        WebhookRateLimiter.Slot deniedAgain = limiter.acquire(merchant, 1);
+
+        assertFalse(denied.granted());
+        assertTrue(denied.waitMs() > 250 && denied.waitMs() <= 300, denied::toString);
+        // The denied request did not push the schedule further out
+        assertFalse(deniedAgain.granted());
+        assertTrue(deniedAgain.waitMs() <= denied.waitMs(), deniedAgain::toString);
+    }
+
+    @Test
+    void acquire_BatchedEvents_ShouldShareOneRequest() {
+        Merchant merchant = merchant(10, 1);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, limiter.acquire(merchant, 0.25).waitMs());
+        }
+
+        WebhookRateLimiter.Slot fifth = limiter.acquire(merchant, 0.25);
+        assertTrue(fifth.granted() && fifth.waitMs() > 0 && fifth.waitMs() <= 25, fifth::toString);
+    }
+
+    @Test
+    void acquire_ShouldLimitEachMerchantSeparately() {
+        Merchant busy = merchant(10, 1);
+        limiter.acquire(busy, 1);
+        limiter.acquire(busy, 1);
+
+        assertEquals(0, limiter.acquire(merchant(10, 1), 1).waitMs());
+    }
+
+    @Test
+    void acquire_RedisDown_ShouldFailOpen() {
+        LettuceConnectionFactory unreachable = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("127.0.0.1", 1));
+        unreachable.afterPropertiesSet();
+        unreachable.start();
+        try {
+            WebhookRateLimiter down = limiter(new StringRedisTemplate(unreachable));
+            assertEquals(new WebhookRateLimiter.Slot(true, 0), down.acquire(merchant(1, 1), 1));
+        } finally {
+            unreachable.destroy();
+        }
+    }
+
+    private Merchant merchant(int perSecond, int burst) {
+        Merchant merchant = new Merchant();
+        merchant.setId(UUID.randomUUID());
+        merchant.setWebhookRateLimit(perSecond);
+        merchant.setWebhookRateBurst(burst);
+        return merchant;
+    }
+
+    private WebhookRateLimiter limiter(StringRedisTemplate redis) {
+        WebhookRateLimiter limiter = new WebhookRateLimiter();
+        ReflectionTestUtils.setField(limiter, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "defaultPerSecond", 50);
+        ReflectionTestUtils.setField(limiter, "defaultBurst", 100);
+        ReflectionTestUtils.setField(limiter, "maxWaitMs", 250L);
+        return limiter;
+    }
+}
@@ -0,0 +1,93 @@
+package com.gateway.services;
+
+import com.gateway.models.Merchant;
+import com.gateway.models.WebhookLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookRetryPoliciesTest {
+
+    private final ExponentialRetryPolicy exponential = new ExponentialRetryPolicy();
+    private final DecorrelatedRetryPolicy decorrelated = new DecorrelatedRetryPolicy();
+    private final TestRetryPolicy test = new TestRetryPolicy();
+    private final WebhookRetryPolicies policies = new WebhookRetryPolicies();
+
+    WebhookRetryPoliciesTest() {
+        ReflectionTestUtils.setField(exponential, "baseMs", 60_000L);
+        ReflectionTestUtils.setField(exponential, "multiplier", 5.0);
+        ReflectionTestUtils.setField(exponential, "maxDelayMs", 7_200_000L);
+        ReflectionTestUtils.setField(exponential, "jitter", "full");
+        ReflectionTestUtils.setField(exponential, "maxAttempts", 5);
+        ReflectionTestUtils.setField(exponential, "maxAgeHours", 24L);
+        ReflectionTestUtils.setField(decorrelated, "baseMs", 60_000L);
+        ReflectionTestUtils.setField(decorrelated, "maxDelayMs", 7_200_000L);
+        ReflectionTestUtils.setField(decorrelated, "maxAttempts", 5);
+        ReflectionTestUtils.setField(decorrelated, "maxAgeHours", 24L);
+        ReflectionTestUtils.setField(test, "maxAttempts", 5);
+        ReflectionTestUtils.setField(policies, "policies", List.of(exponential, decorrelated, test));
+        ReflectionTestUtils.setField(policies, "defaultPolicyName", "exponential");
+        ReflectionTestUtils.setField(policies, "eventPolicyNames", "payment.failed=decorrelated");
+        policies.start();
+    }
+
+    @Test
+    void jitteredDelays_ShouldStayWithinTheirBoundsAndSpread() {
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 1000; i++) {
+            long delay = exponential.nextDelay(3, null).toMillis();
+            assertTrue(delay >= 0 && delay <= 1_500_000, "exponential " + delay);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+
+            long capped = exponential.nextDelay(10, null).toMillis();
+            assertTrue(capped <= 7_200_000, "capped " + capped);
+
+            long next = decorrelated.nextDelay(2, Duration.ofMinutes(2)).toMillis();
+            assertTrue(next >= 60_000 && next <= 360_000, "decorrelated " + next);
+        }
+        assertTrue(max - min > 500_000, "delays should spread out");
+        assertEquals(Duration.ofSeconds(10), test.nextDelay(2, null));
+    }
+
+    @Test
+    void policySelection_ShouldPreferMerchantThenEventThenDefault() {
+        Merchant merchant = new Merchant();
+        assertSame(exponential, policies.forDelivery(merchant, "payment.success"));
+        assertSame(decorrelated, policies.forDelivery(merchant, "payment.failed"));
+
+        merchant.setWebhookRetryPolicy("test");
+        assertSame(test, policies.forDelivery(merchant, "payment.failed"));
+    }
+
+    @Test
+    void nextRetryAt_ShouldStopAtMaxAttemptsAndMaxAge() {
+        WebhookLog log = WebhookLog.builder().attempts(4).createdAt(LocalDateTime.now()).build();
+        assertNotNull(policies.nextRetryAt(test, log, null));
+
+        log.setAttempts(5);
+        assertNull(policies.nextRetryAt(test, log, null));
+
+        log.setAttempts(1);
+        log.setCreatedAt(LocalDateTime.now().minusHours(25));
+        assertNull(policies.nextRetryAt(exponential, log, null));
+    }
+
+    @Test
+    void isExhausted_DeferralPastMaxAge_ShouldGiveUpWithoutAnAttempt() {
+        WebhookLog log = WebhookLog.builder().attempts(0).createdAt(LocalDateTime.now().minusHours(23)).build();
+        assertFalse(policies.isExhausted(exponential, log, LocalDateTime.now().plusMinutes(30)));
+        assertTrue(policies.isExhausted(exponential, log, LocalDateTime.now().plusHours(2)));
+    }
+}
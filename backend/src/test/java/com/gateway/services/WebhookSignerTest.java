@@ -0,0 +1,49 @@
+package com.gateway.services;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class WebhookSignerTest {
+
+    private final WebhookSigner signer = new WebhookSigner();
+
+    @Test
+    void sign_ShouldMatchPlainHmacSha256Hex() throws Exception {
+        byte[] payload = "{\"event\":\"payment.success\",\"note\":\"café\"}".getBytes(StandardCharsets.UTF_8);
+
+        String expected = hmacHex("whsec_test", payload);
+
+        assertEquals(expected, signer.sign("whsec_test", payload));
+        assertEquals(expected, signer.sign(UUID.randomUUID(), "whsec_test", payload));
+    }
+
+    @Test
+    void sign_ShouldFollowSecretChangesAndSwitchingMerchants() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        byte[] payload = "{}".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(hmacHex("secret_a", payload), signer.sign(first, "secret_a", payload));
+        assertEquals(hmacHex("secret_b", payload), signer.sign(second, "secret_b", payload));
+        assertEquals(hmacHex("secret_a", payload), signer.sign(first, "secret_a", payload));
+
+        // Rolled secret: the cached key must not be reused
+        String rolled = signer.sign(first, "secret_c", payload);
+        assertEquals(hmacHex("secret_c", payload), rolled);
+        assertNotEquals(hmacHex("secret_a", payload), rolled);
+    }
+
+    private String hmacHex(String secret, byte[] payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(payload));
+    }
+}
@@ -0,0 +1,173 @@
+package com.gateway.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.jobs.DeliverWebhookJob;
+import com.gateway.models.Merchant;
+import com.gateway.models.WebhookEndpoint;
+import com.gateway.repositories.MerchantRepository;
+import com.gateway.repositories.WebhookEndpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookSubscriptionsTest {
+
+    private final MerchantRepository merchantRepository = mock(MerchantRepository.class);
+    private final WebhookEndpointRepository webhookEndpointRepository = mock(WebhookEndpointRepository.class);
+    private final WebhookSubscriptions subscriptions = new WebhookSubscriptions();
+
+    private final Merchant merchant = new Merchant();
+    private final List<WebhookEndpoint> endpoints = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(subscriptions, "merchantRepository", merchantRepository);
+        ReflectionTestUtils.setField(subscriptions, "webhookEndpointRepository", webhookEndpointRepository);
+        ReflectionTestUtils.setField(subscriptions, "cacheTtlMs", 60_000L);
+        ReflectionTestUtils.setField(subscriptions, "maxCachedMerchants", 100);
+
+        merchant.setId(UUID.randomUUID());
+        merchant.setWebhookUrl("https://merchant.example/hook");
+        merchant.setWebhookSecret("merchant-secret");
+        when(merchantRepository.findById(merchant.getId())).thenReturn(Optional.of(merchant));
+        // A copy, so later changes to the list only show once the cache reloads
+        when(webhookEndpointRepository.findByMerchantId(merchant.getId()))
+                .thenAnswer(invocation -> List.copyOf(endpoints));
+    }
+
+    @Test
+    void forEvent_ShouldMatchEachEndpointsFilter() {
+        WebhookEndpoint exact = endpoint("https://a.example", "payment.success", null);
+        WebhookEndpoint prefix = endpoint("https://b.example", "payment.*", null);
+        WebhookEndpoint all = endpoint("https://c.example", "*", null);
+        WebhookEndpoint refunds = endpoint("https://d.example", "refund.created, refund.failed", null);
+
+        assertEquals(Set.of(merchant.getWebhookUrl(), exact.getUrl(), prefix.getUrl(), all.getUrl()),
+                urls(subscriptions.forEvent(merchant.getId(), "payment.success")));
+        assertEquals(Set.of(merchant.getWebhookUrl(), prefix.getUrl(), all.getUrl()),
+                urls(subscriptions.forEvent(merchant.getId(), "payment.failed")));
+        assertEquals(Set.of(merchant.getWebhookUrl(), all.getUrl(), refunds.getUrl()),
+                urls(subscriptions.forEvent(merchant.getId(), "refund.failed")));
+    }
+
+    @Test
+    void forEvent_InactiveEndpoint_ShouldBeSkipped() {
+        WebhookEndpoint inactive = endpoint("https://a.example", "*", null);
+        inactive.setActive(false);
+
+        assertEquals(Set.of(merchant.getWebhookUrl()), urls(subscriptions.forEvent(merchant.getId(), "payment.success")));
+    }
+
+    @Test
+    void forEvent_ShouldSignWithTheEndpointsOwnSecretOrElseTheMerchants() {
+        WebhookEndpoint own = endpoint("https://a.example", "*", "endpoint-secret");
+        WebhookEndpoint shared = endpoint("https://b.example", "*", null);
+
+        Map<String, WebhookSubscriptions.Target> byUrl = subscriptions.forEvent(merchant.getId(), "payment.success")
+                .stream().collect(Collectors.toMap(WebhookSubscriptions.Target::url, t -> t));
+
+        assertEquals("endpoint-secret", byUrl.get(own.getUrl()).secret());
+        assertEquals(own.getId(), byUrl.get(own.getUrl()).keyId());
+        assertEquals("merchant-secret", byUrl.get(shared.getUrl()).secret());
+        assertEquals(merchant.getId(), byUrl.get(shared.getUrl()).keyId());
+        assertNull(byUrl.get(merchant.getWebhookUrl()).endpointId());
+        assertEquals(merchant.getId(), byUrl.get(merchant.getWebhookUrl()).keyId());
+    }
+
+    @Test
+    void forEvent_ShouldServeFromTheCacheUntilEvicted() {
+        WebhookEndpoint endpoint = endpoint("https://a.example", "*", null);
+        assertNotNull(subscriptions.endpoint(merchant.getId(), endpoint.getId()));
+
+        endpoint.setActive(false);
+        WebhookEndpoint added = endpoint("https://b.example", "*", null);
+        assertEquals(2, subscriptions.forEvent(merchant.getId(), "payment.success").size());
+        verify(webhookEndpointRepository, times(1)).findByMerchantId(merchant.getId());
+
+        subscriptions.evict(merchant.getId());
+
+        assertNull(subscriptions.endpoint(merchant.getId(), endpoint.getId()));
+        assertEquals(Set.of(merchant.getWebhookUrl(), added.getUrl()),
+                urls(subscriptions.forEvent(merchant.getId(), "payment.success")));
+        verify(webhookEndpointRepository, times(2)).findByMerchantId(merchant.getId());
+    }
+
+    @Test
+    void forEvent_UnknownMerchant_ShouldReturnNothing() {
+        UUID unknown = UUID.randomUUID();
+        when(merchantRepository.findById(unknown)).thenReturn(Optional.empty());
+
+        assertTrue(subscriptions.forEvent(unknown, "payment.success").isEmpty());
+    }
+
+    @Test
+    void publish_ShouldQueueOneSignedDeliveryPerSubscribedDestination() throws Exception {
+        WebhookEndpoint own = endpoint("https://a.example", "payment.*", "endpoint-secret");
+        endpoint("https://b.example", "refund.*", null);
+        WebhookSigner signer = new WebhookSigner();
+        JobService jobService = mock(JobService.class);
+        WebhookService webhookService = new WebhookService();
+        ReflectionTestUtils.setField(webhookService, "webhookSigner", signer);
+        ReflectionTestUtils.setField(webhookService, "webhookSubscriptions", subscriptions);
+        ReflectionTestUtils.setField(webhookService, "jobService", jobService);
+        ReflectionTestUtils.setField(webhookService, "objectMapper", new ObjectMapper());
+
+        webhookService.publish(merchant.getId(), "payment.success", Map.of("payment_id", "pay_1"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DeliverWebhookJob>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jobService).scheduleWebhookDelivery(captor.capture());
+        Map<UUID, DeliverWebhookJob> byEndpoint = new HashMap<>();
+        captor.getValue().forEach(job -> byEndpoint.put(job.getEndpointId(), job));
+        assertEquals(Set.of(own.getId()), byEndpoint.keySet().stream()
+                .filter(Objects::nonNull).collect(Collectors.toSet()));
+        assertEquals(2, byEndpoint.size());
+
+        DeliverWebhookJob toMerchant = byEndpoint.get(null);
+        DeliverWebhookJob toEndpoint = byEndpoint.get(own.getId());
+        assertEquals(signer.sign("merchant-secret", toMerchant.getPayload()), toMerchant.getSignature());
+        assertEquals(signer.sign("endpoint-secret", toEndpoint.getPayload()), toEndpoint.getSignature());
+
+        // Nobody subscribes to this one
+        merchant.setWebhookUrl(null);
+        subscriptions.evict(merchant.getId());
+        webhookService.publish(merchant.getId(), "dispute.created", Map.of());
+        verify(jobService, times(1)).scheduleWebhookDelivery(anyList());
+    }
+
+    private WebhookEndpoint endpoint(String url, String events, String secret) {
+        WebhookEndpoint endpoint = new WebhookEndpoint();
+        endpoint.setId(UUID.randomUUID());
+        endpoint.setMerchantId(merchant.getId());
+        endpoint.setUrl(url);
+        endpoint.setEvents(events);
+        endpoint.setSecret(secret);
+        endpoints.add(endpoint);
+        return endpoint;
+    }
+
+    private static Set<String> urls(List<WebhookSubscriptions.Target> targets) {
+        return targets.stream().map(WebhookSubscriptions.Target::url).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,62 @@
+package com.gateway.workers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveLimiterTest {
+
+    private static final long ONE_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void onSample_FlatLatencyUnderLoad_ShouldGrowUpToMax() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 6, 0.5, 2.0, 60000);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        for (int i = 0; i < 5; i++) {
+            limiter.onSample(ONE_MS, false);
+        }
+
+        assertEquals(6, limiter.getLimit());
+    }
+
+    @Test
+    void onSample_Failure_ShouldCutOncePerLatency() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 10, 0.5, 2.0, 60000);
+
+        limiter.onSample(TimeUnit.SECONDS.toNanos(1), true);
+        limiter.onSample(TimeUnit.SECONDS.toNanos(1), true);
+
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void onSample_LatencyClimb_ShouldCutLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 10, 0.5, 2.0, 60000);
+        limiter.onSample(ONE_MS, false);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onSample(100 * ONE_MS, false);
+        }
+
+        assertTrue(limiter.getLimit() < 10);
+    }
+
+    @Test
+    void tryAcquire_ShouldRespectLimitUntilRelease() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 2, 0.5, 2.0, 60000);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(1);
+        assertTrue(limiter.tryAcquire());
+    }
+}
@@ -0,0 +1,85 @@
+package com.gateway.workers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BankResponseSchedulerTest {
+
+    private final BankResponseScheduler scheduler = new BankResponseScheduler();
+    private final List<String> settled = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "threads", 2);
+        ReflectionTestUtils.setField(scheduler, "batchWindowMs", 250L);
+        scheduler.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.drain();
+    }
+
+    @Test
+    void drain_ShouldSettleEveryPendingDeadlineNow() {
+        CompletableFuture<Void> first = scheduler.schedule(60_000, () -> settled.add("pay_1"));
+        CompletableFuture<Void> second = scheduler.schedule(120_000, () -> settled.add("pay_2"));
+
+        scheduler.drain();
+
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(second.isDone() && !second.isCompletedExceptionally());
+        assertEquals(List.of("pay_1", "pay_2"), settled.stream().sorted().toList());
+    }
+
+    @Test
+    void drain_DeadlineThatAlreadyFired_ShouldNotRunAgain() throws Exception {
+        scheduler.schedule(10, () -> settled.add("pay_1")).get(5, TimeUnit.SECONDS);
+
+        scheduler.drain();
+        scheduler.drain();
+
+        assertEquals(List.of("pay_1"), settled);
+    }
+
+    @Test
+    void schedule_AfterDrain_ShouldRunAtOnce() {
+        scheduler.drain();
+
+        CompletableFuture<Void> late = scheduler.schedule(60_000, () -> settled.add("pay_1"));
+
+        assertTrue(late.isDone());
+        assertEquals(List.of("pay_1"), settled);
+    }
+
+    @Test
+    void drain_FailingResponse_ShouldFailItsFutureAndStillRunTheRest() {
+        CompletableFuture<Void> failing = scheduler.schedule(60_000, () -> {
+            throw new IllegalStateException("database down");
+        });
+        CompletableFuture<Void> other = scheduler.schedule(60_000, () -> settled.add("pay_2"));
+
+        scheduler.drain();
+
+        assertTrue(failing.isCompletedExceptionally());
+        assertTrue(other.isDone() && !other.isCompletedExceptionally());
+        assertEquals(List.of("pay_2"), settled);
+    }
+
+    @Test
+    void alignToWindow_ShouldRoundUpToTheBatchWindow() {
+        assertEquals(250, scheduler.alignToWindow(1));
+        assertEquals(5250, scheduler.alignToWindow(5001));
+        assertEquals(5000, scheduler.alignToWindow(5000));
+    }
+}
@@ -0,0 +1,97 @@
+package com.gateway.workers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KeyedBatcherTest {
+
+    // Window timers fire only when the test runs them
+    private final ScheduledExecutorService timer = mock(ScheduledExecutorService.class);
+    private final List<Runnable> timers = new ArrayList<>();
+    private final List<List<String>> flushed = new ArrayList<>();
+    private volatile boolean failFlush;
+
+    private final KeyedBatcher<String, String> batcher = new KeyedBatcher<>(timer, items -> {
+        if (failFlush) {
+            return CompletableFuture.failedFuture(new IllegalStateException("endpoint down"));
+        }
+        flushed.add(List.copyOf(items));
+        return CompletableFuture.completedFuture(null);
+    });
+
+    KeyedBatcherTest() {
+        when(timer.schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS))).thenAnswer(invocation -> {
+            timers.add(invocation.getArgument(0));
+            return null;
+        });
+    }
+
+    @Test
+    void add_FullGroup_ShouldFlushWithoutWaitingForTheWindow() {
+        CompletableFuture<Void> first = batcher.add("m1", "a", 2, 1000);
+        assertFalse(first.isDone());
+
+        CompletableFuture<Void> second = batcher.add("m1", "b", 2, 1000);
+
+        assertEquals(List.of(List.of("a", "b")), flushed);
+        assertTrue(first.isDone() && second.isDone());
+    }
+
+    @Test
+    void add_WindowEnds_ShouldFlushWhatTheGroupHolds() {
+        CompletableFuture<Void> a = batcher.add("m1", "a", 3, 1000);
+        CompletableFuture<Void> other = batcher.add("m2", "x", 3, 1000);
+
+        timers.get(0).run();
+
+        assertEquals(List.of(List.of("a")), flushed);
+        assertTrue(a.isDone());
+        assertFalse(other.isDone());
+    }
+
+    @Test
+    void add_TimerOfAGroupThatAlreadyFilled_ShouldNotFlushTheNextGroupEarly() {
+        batcher.add("m1", "a", 2, 1000);
+        batcher.add("m1", "b", 2, 1000);
+        CompletableFuture<Void> next = batcher.add("m1", "c", 2, 1000);
+        assertEquals(2, timers.size());
+
+        // The first group's window ends after it went out full
+        timers.get(0).run();
+
+        assertEquals(List.of(List.of("a", "b")), flushed);
+        assertFalse(next.isDone());
+
+        batcher.add("m1", "d", 2, 1000);
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), flushed);
+        assertTrue(next.isDone());
+
+        // Nor does the second group's timer, once that group is gone
+        timers.get(1).run();
+        assertEquals(2, flushed.size());
+    }
+
+    @Test
+    void add_FlushFails_ShouldFailEveryItemOfTheGroup() {
+        failFlush = true;
+        CompletableFuture<Void> a = batcher.add("m1", "a", 2, 1000);
+        CompletableFuture<Void> b = batcher.add("m1", "b", 2, 1000);
+
+        assertTrue(a.isCompletedExceptionally());
+        assertTrue(b.isCompletedExceptionally());
+    }
+}
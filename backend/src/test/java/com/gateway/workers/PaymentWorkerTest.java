@@ -0,0 +1,109 @@
+package com.gateway.workers;
+
+import com.gateway.jobs.ProcessPaymentJob;
+import com.gateway.models.Payment;
+import com.gateway.repositories.PaymentRepository;
+import com.gateway.services.JobService;
+import com.gateway.services.WebhookService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// A polled batch is loaded with one query and its bank responses share one timer per window
+class PaymentWorkerTest {
+
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final BankResponseScheduler bankResponseScheduler = mock(BankResponseScheduler.class);
+    private final PaymentWorker worker = new PaymentWorker();
+    private final List<Runnable> responses = new ArrayList<>();
+
+    PaymentWorkerTest() {
+        ReflectionTestUtils.setField(worker, "paymentRepository", paymentRepository);
+        ReflectionTestUtils.setField(worker, "jobService", mock(JobService.class));
+        ReflectionTestUtils.setField(worker, "webhookService", mock(WebhookService.class));
+        ReflectionTestUtils.setField(worker, "bankResponseScheduler", bankResponseScheduler);
+        ReflectionTestUtils.setField(worker, "testMode", true);
+        ReflectionTestUtils.setField(worker, "testPaymentSuccess", true);
+        ReflectionTestUtils.setField(worker, "testProcessingDelay", 1000L);
+        when(bankResponseScheduler.alignToWindow(anyLong())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(bankResponseScheduler.schedule(anyLong(), any())).thenAnswer(invocation -> {
+            responses.add(invocation.getArgument(1));
+            return new CompletableFuture<Void>();
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void processBatch_ShouldLoadOnceAndShareOneBankResponsePerWindow() {
+        Payment first = payment("pay_1", "pending");
+        Payment second = payment("pay_2", "pending");
+        Payment settled = payment("pay_3", "success");
+        when(paymentRepository.findAllById(Set.of("pay_1", "pay_2", "pay_3", "pay_missing")))
+                .thenReturn(List.of(first, second, settled));
+        when(paymentRepository.batchUpdateStatus(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<CompletableFuture<Void>> results = worker.processBatch(List.of(job("pay_1"), job("pay_2"),
+                job("pay_1"), job("pay_3"), job("pay_missing")));
+
+        verify(paymentRepository, times(1)).findAllById(any());
+        verify(bankResponseScheduler, times(1)).schedule(eq(1000L), any());
+        assertEquals(5, results.size());
+        // Both pending payments, and the duplicate job, wait on the same bank response
+        assertFalse(results.get(0).isDone());
+        assertSame(results.get(0), results.get(1));
+        assertSame(results.get(0), results.get(2));
+        // Nothing to settle for a payment already settled or gone
+        assertTrue(results.get(3).isDone());
+        assertTrue(results.get(4).isDone());
+
+        responses.get(0).run();
+
+        ArgumentCaptor<List<Payment>> written = ArgumentCaptor.forClass(List.class);
+        verify(paymentRepository, times(1)).batchUpdateStatus(written.capture());
+        assertEquals(List.of("pay_1", "pay_2"), written.getValue().stream().map(Payment::getId).toList());
+        written.getValue().forEach(payment -> assertEquals("success", payment.getStatus()));
+    }
+
+    @Test
+    void processBatch_StatusWriteFails_ShouldFailTheBankResponse() {
+        when(paymentRepository.findAllById(any())).thenReturn(List.of(payment("pay_1", "pending")));
+        when(paymentRepository.batchUpdateStatus(any())).thenThrow(new IllegalStateException("database down"));
+
+        worker.processBatch(List.of(job("pay_1")));
+
+        // BankResponseScheduler fails the jobs' future with what the response throws
+        assertThrows(IllegalStateException.class, () -> responses.get(0).run());
+    }
+
+    private static ProcessPaymentJob job(String paymentId) {
+        return new ProcessPaymentJob(paymentId, null);
+    }
+
+    private static Payment payment(String id, String status) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setMerchantId(UUID.randomUUID());
+        payment.setMethod("card");
+        payment.setStatus(status);
+        return payment;
+    }
+}
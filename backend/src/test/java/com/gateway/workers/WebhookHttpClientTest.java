@@ -0,0 +1,162 @@
+package com.gateway.workers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookHttpClientTest {
+
+    private static final long TIMEOUT_MS = 500;
+
+    private final HttpServer server;
+    private final WebhookHttpClient client = new WebhookHttpClient();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    WebhookHttpClientTest() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(client, "timeoutMs", TIMEOUT_MS);
+        ReflectionTestUtils.setField(client, "maxResponseBytes", 16);
+        ReflectionTestUtils.setField(client, "threads", 2);
+        client.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        client.stop();
+        server.stop(0);
+    }
+
+    @Test
+    void post_ShouldSendTheBodySignatureAndHeaders() throws Exception {
+        AtomicReference<String> received = new AtomicReference<>();
+        handle(exchange -> {
+            received.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)
+                    + " " + exchange.getRequestHeaders().getFirst("X-Webhook-Signature")
+                    + " " + exchange.getRequestHeaders().getFirst("X-Webhook-Batch-Size"));
+            respond(exchange, 202, "[200]");
+        });
+
+        HttpResponse<String> response = client.post(url(), "[{\"a\":1}]".getBytes(StandardCharsets.UTF_8), "sig",
+                Map.of("X-Webhook-Batch-Size", "1"), 1024).get(5, TimeUnit.SECONDS);
+
+        assertEquals(202, response.statusCode());
+        assertEquals("[200]", response.body());
+        assertEquals("[{\"a\":1}] sig 1", received.get());
+    }
+
+    @Test
+    void post_LargeResponse_ShouldKeepOnlyTheCap() throws Exception {
+        handle(exchange -> respond(exchange, 500, "x".repeat(1_000_000)));
+
+        HttpResponse<String> response = client.post(url(), new byte[0], "sig").get(5, TimeUnit.SECONDS);
+
+        assertEquals(500, response.statusCode());
+        assertEquals("x".repeat(16), response.body());
+    }
+
+    @Test
+    void post_EndlessResponse_ShouldCompleteOnceTheCapIsRead() throws Exception {
+        handle(exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream body = exchange.getResponseBody();
+            body.write("y".repeat(64).getBytes(StandardCharsets.UTF_8));
+            body.flush();
+            await();
+        });
+
+        // Well inside the request timeout: the endpoint never finishes the body
+        HttpResponse<String> response = client.post(url(), new byte[0], "sig")
+                .get(TIMEOUT_MS / 2, TimeUnit.MILLISECONDS);
+
+        assertEquals("y".repeat(16), response.body());
+    }
+
+    @Test
+    void post_NoResponse_ShouldTimeOut() {
+        handle(exchange -> await());
+
+        assertTimesOut(client.post(url(), new byte[0], "sig"));
+    }
+
+    @Test
+    void post_SlowBodyAfterTheHeaders_ShouldStillTimeOut() {
+        handle(exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().write('o');
+            exchange.getResponseBody().flush();
+            await();
+        });
+
+        assertTimesOut(client.post(url(), new byte[0], "sig"));
+    }
+
+    private void assertTimesOut(CompletableFuture<HttpResponse<String>> delivery) {
+        long started = System.nanoTime();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> delivery.get(5, TimeUnit.SECONDS));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue(e.getCause() instanceof TimeoutException || e.getCause() instanceof HttpTimeoutException,
+                e.getCause().toString());
+        assertTrue(elapsedMs < TIMEOUT_MS * 4, "took " + elapsedMs + " ms");
+    }
+
+    private void handle(Handler handler) {
+        server.createContext("/hook", exchange -> {
+            try {
+                handler.handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void await() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/hook";
+    }
+}
@@ -0,0 +1,123 @@
+package com.gateway.workers;
+
+import com.gateway.models.WebhookLog;
+import com.gateway.repositories.WebhookLogRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The buffer against the real JDBC batch statements, on H2
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WebhookLogBufferDatabaseTest {
+
+    @Autowired
+    private WebhookLogRepository webhookLogRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final WebhookLogBuffer buffer = new WebhookLogBuffer();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(buffer, "webhookLogRepository", webhookLogRepository);
+        ReflectionTestUtils.setField(buffer, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(buffer, "batchSize", 500);
+        ReflectionTestUtils.setField(buffer, "maxPending", 5000);
+        buffer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffer.stop();
+        webhookLogRepository.deleteAll();
+    }
+
+    @Test
+    void flush_SeveralWritesToOneNewLog_ShouldInsertItsLatestState() {
+        WebhookLog log = log("payment.success");
+        buffer.save(log, true);
+        log.setAttempts(2);
+        buffer.save(log, false);
+        log.setStatus("success");
+        log.setAttempts(3);
+        log.setResponseCode(200);
+        buffer.save(log, false);
+        assertEquals(1, buffer.pendingCount());
+        assertEquals(3, buffer.find(log.getId()).orElseThrow().getAttempts());
+
+        buffer.flush();
+
+        WebhookLog stored = webhookLogRepository.findById(log.getId()).orElseThrow();
+        assertEquals("success", stored.getStatus());
+        assertEquals(3, stored.getAttempts());
+        assertEquals(200, stored.getResponseCode());
+        assertFalse(buffer.find(log.getId()).isPresent());
+    }
+
+    @Test
+    void flush_WriteToAStoredLog_ShouldUpdateTheRow() {
+        WebhookLog log = log("payment.success");
+        buffer.save(log, true);
+        buffer.flush();
+
+        log.setStatus("failed");
+        log.setAttempts(5);
+        buffer.save(log, false);
+        buffer.flush();
+
+        WebhookLog stored = webhookLogRepository.findById(log.getId()).orElseThrow();
+        assertEquals("failed", stored.getStatus());
+        assertEquals(5, stored.getAttempts());
+        assertEquals(1, webhookLogRepository.count());
+    }
+
+    @Test
+    void flush_RowTheDatabaseRejects_ShouldBeDroppedAndTheRestWritten() {
+        WebhookLog good = log("payment.success");
+        WebhookLog tooLong = log("payment." + "x".repeat(60));
+        WebhookLog alsoGood = log("refund.processed");
+        buffer.save(good, true);
+        buffer.save(tooLong, true);
+        buffer.save(alsoGood, true);
+
+        buffer.flush();
+
+        assertTrue(webhookLogRepository.existsById(good.getId()));
+        assertFalse(webhookLogRepository.existsById(tooLong.getId()));
+        assertTrue(webhookLogRepository.existsById(alsoGood.getId()));
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    private WebhookLog log(String event) {
+        return WebhookLog.builder()
+                .id(UUID.randomUUID())
+                .merchantId(UUID.randomUUID())
+                .event(event)
+                .payload("{}")
+                .status("pending")
+                .attempts(1)
+                .lastAttemptAt(LocalDateTime.now())
+                // As WebhookWorker creates it: to the microsecond, as stored
+                .createdAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                .build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.gateway.workers;
+
+import com.gateway.models.WebhookLog;
+import com.gateway.repositories.WebhookLogRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class WebhookLogBufferTest {
+
+    private final WebhookLogRepository repository = mock(WebhookLogRepository.class);
+    private final WebhookLogBuffer buffer = new WebhookLogBuffer();
+
+    // What the fake database holds, and the ids it rejects
+    private final List<UUID> inserted = new ArrayList<>();
+    private final Set<UUID> poison = ConcurrentHashMap.newKeySet();
+    private volatile boolean databaseDown;
+
+    WebhookLogBufferTest() {
+        ReflectionTestUtils.setField(buffer, "webhookLogRepository", repository);
+        ReflectionTestUtils.setField(buffer, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(buffer, "batchSize", 500);
+        ReflectionTestUtils.setField(buffer, "maxPending", 5000);
+        doAnswer(invocation -> {
+            List<WebhookLog> logs = invocation.getArgument(0);
+            if (databaseDown) {
+                throw new DataAccessResourceFailureException("connection refused");
+            }
+            if (logs.stream().anyMatch(log -> poison.contains(log.getId()))) {
+                throw new DataIntegrityViolationException("value too long for type character varying(255)");
+            }
+            logs.forEach(log -> inserted.add(log.getId()));
+            return null;
+        }).when(repository).insertAll(anyList());
+        buffer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseDown = false;
+        buffer.stop();
+    }
+
+    @Test
+    void flush_RowRejectedByTheDatabase_ShouldBeDroppedWithoutBlockingTheRest() {
+        List<WebhookLog> logs = List.of(log(), log(), log());
+        poison.add(logs.get(1).getId());
+        logs.forEach(log -> buffer.save(log, true));
+
+        buffer.flush();
+
+        assertEquals(List.of(logs.get(0).getId(), logs.get(2).getId()), inserted);
+        assertEquals(0, buffer.pendingCount());
+
+        // The next flush is not held back by the dropped row
+        WebhookLog later = log();
+        buffer.save(later, true);
+        buffer.flush();
+        assertTrue(inserted.contains(later.getId()));
+    }
+
+    @Test
+    void flush_DatabaseDown_ShouldKeepEveryRowForTheNextFlush() {
+        List<WebhookLog> logs = List.of(log(), log());
+        logs.forEach(log -> buffer.save(log, true));
+        databaseDown = true;
+
+        assertThrows(DataAccessResourceFailureException.class, buffer::flush);
+        assertEquals(2, buffer.pendingCount());
+        assertTrue(buffer.find(logs.get(0).getId()).isPresent());
+
+        databaseDown = false;
+        buffer.flush();
+        assertEquals(List.of(logs.get(0).getId(), logs.get(1).getId()), inserted);
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    void save_AfterStop_ShouldWriteThrough() {
+        buffer.stop();
+
+        WebhookLog late = log();
+        buffer.save(late, true);
+
+        assertEquals(List.of(late.getId()), inserted);
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    private WebhookLog log() {
+        return WebhookLog.builder()
+                .id(UUID.randomUUID())
+                .merchantId(UUID.randomUUID())
+                .event("payment.success")
+                .payload("{}")
+                .status("success")
+                .attempts(1)
+                .build();
+    }
+}
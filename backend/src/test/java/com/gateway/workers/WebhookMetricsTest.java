@@ -0,0 +1,101 @@
+package com.gateway.workers;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WebhookMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final WebhookMetrics metrics = new WebhookMetrics();
+    private final UUID busy = UUID.randomUUID();
+    private final UUID steady = UUID.randomUUID();
+    private final UUID quiet = UUID.randomUUID();
+
+    WebhookMetricsTest() {
+        ReflectionTestUtils.setField(metrics, "meterRegistry", registry);
+        ReflectionTestUtils.setField(metrics, "topMerchants", 2);
+    }
+
+    @Test
+    void recordAttempt_BeforeAnyRefresh_ShouldTagEveryMerchantOther() {
+        metrics.recordAttempt(busy, "success", "2xx");
+        metrics.recordAttempt(null, "pending", WebhookMetrics.TIMEOUT);
+
+        assertEquals(Set.of("other"), merchantTags());
+        assertEquals(1.0, registry.get("webhook.delivery.attempts").tag("outcome", "retry").counter().count());
+    }
+
+    @Test
+    void refreshTopMerchants_ShouldTagOnlyTheBusiestMerchants() {
+        attempts(busy, 5);
+        attempts(steady, 3);
+        attempts(quiet, 1);
+
+        metrics.refreshTopMerchants();
+        metrics.recordAttempt(busy, "success", "2xx");
+        metrics.recordAttempt(steady, "success", "2xx");
+        metrics.recordAttempt(quiet, "success", "2xx");
+        metrics.recordDeferred(quiet, "rate_limit");
+
+        assertEquals(Set.of(busy.toString(), steady.toString(), "other"), merchantTags());
+        assertEquals(1.0, registry.get("webhook.delivery.deferred").tag("merchant", "other").counter().count());
+    }
+
+    @Test
+    void refreshTopMerchants_MerchantDropsOut_ShouldRemoveItsSeries() {
+        attempts(busy, 5);
+        attempts(steady, 3);
+        metrics.refreshTopMerchants();
+        metrics.recordAttempt(steady, "failed", "5xx");
+        metrics.recordDelivery(steady, "single", System.nanoTime(), "5xx");
+        metrics.recordDeferred(steady, "circuit_open");
+
+        // The next period belongs to other merchants
+        attempts(busy, 2);
+        attempts(quiet, 4);
+        metrics.refreshTopMerchants();
+
+        // Its attempts this period were counted under "other"; it gets a series from now on
+        assertEquals(Set.of(busy.toString(), "other"), merchantTags());
+        metrics.recordAttempt(quiet, "success", "2xx");
+        assertEquals(Set.of(busy.toString(), quiet.toString(), "other"), merchantTags());
+        assertNull(registry.find("webhook.delivery.duration").tag("merchant", steady.toString()).timer());
+        assertNull(registry.find("webhook.delivery.deferred").tag("merchant", steady.toString()).counter());
+        // The "other" series and the backlog gauges stay
+        metrics.updateRetryBacklog(7, 1500);
+        metrics.refreshTopMerchants();
+        assertEquals(7.0, registry.get("webhook.retry.backlog").gauge().value());
+        assertEquals(1.5, registry.get("webhook.retry.oldest.pending.age").gauge().value());
+    }
+
+    @Test
+    void responseClass_ShouldGroupStatusCodes() {
+        assertEquals("2xx", WebhookMetrics.responseClass(204));
+        assertEquals("5xx", WebhookMetrics.responseClass(503));
+        assertEquals(WebhookMetrics.ERROR, WebhookMetrics.responseClass(0));
+    }
+
+    private void attempts(UUID merchantId, int count) {
+        for (int i = 0; i < count; i++) {
+            metrics.recordAttempt(merchantId, "success", "2xx");
+        }
+    }
+
+    private Set<String> merchantTags() {
+        return registry.getMeters().stream()
+                .map(Meter::getId)
+                .filter(id -> id.getName().startsWith("webhook."))
+                .map(id -> id.getTag("merchant"))
+                .filter(tag -> tag != null)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,179 @@
+package com.gateway.workers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.jobs.DeliverWebhookJob;
+import com.gateway.models.Merchant;
+import com.gateway.models.WebhookLog;
+import com.gateway.services.JobService;
+import com.gateway.services.MerchantCache;
+import com.gateway.services.WebhookCircuitBreaker;
+import com.gateway.services.WebhookRateLimiter;
+import com.gateway.services.WebhookRetryPolicies;
+import com.gateway.services.WebhookService;
+import com.gateway.services.WebhookSigner;
+import com.gateway.services.WebhookSubscriptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Batched delivery for a merchant with webhook_batch_size 3: the batch goes out when the
+// third event arrives, long before its window ends
+class WebhookWorkerBatchTest {
+
+    private final MerchantCache merchantCache = mock(MerchantCache.class);
+    private final WebhookHttpClient httpClient = mock(WebhookHttpClient.class);
+    private final WebhookLogBuffer logBuffer = mock(WebhookLogBuffer.class);
+    private final WebhookRetryPolicies retryPolicies = mock(WebhookRetryPolicies.class);
+    private final WebhookCircuitBreaker circuitBreaker = mock(WebhookCircuitBreaker.class);
+    private final JobService jobService = mock(JobService.class);
+    private final WebhookSigner signer = new WebhookSigner();
+    private final WebhookWorker worker = new WebhookWorker();
+    private final Merchant merchant = new Merchant();
+
+    private final ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+    private final ArgumentCaptor<String> signature = ArgumentCaptor.forClass(String.class);
+
+    WebhookWorkerBatchTest() {
+        merchant.setId(UUID.randomUUID());
+        merchant.setWebhookUrl("https://merchant.example/hook");
+        merchant.setWebhookSecret("merchant-secret");
+        merchant.setWebhookBatchSize(3);
+        merchant.setWebhookBatchWindowMs(60_000);
+        when(merchantCache.byId(merchant.getId())).thenReturn(Optional.of(merchant));
+        when(logBuffer.find(any())).thenReturn(Optional.empty());
+        WebhookRateLimiter rateLimiter = mock(WebhookRateLimiter.class);
+        when(rateLimiter.acquire(eq(merchant), anyDouble())).thenReturn(new WebhookRateLimiter.Slot(true, 0));
+        when(retryPolicies.nextRetryAt(any(), any(), any())).thenAnswer(invocation -> LocalDateTime.now().plusMinutes(1));
+
+        WebhookService webhookService = new WebhookService();
+        ReflectionTestUtils.setField(webhookService, "webhookSigner", signer);
+
+        ReflectionTestUtils.setField(worker, "merchantCache", merchantCache);
+        ReflectionTestUtils.setField(worker, "webhookService", webhookService);
+        ReflectionTestUtils.setField(worker, "jobService", jobService);
+        ReflectionTestUtils.setField(worker, "webhookHttpClient", httpClient);
+        ReflectionTestUtils.setField(worker, "webhookCircuitBreaker", circuitBreaker);
+        ReflectionTestUtils.setField(worker, "webhookSubscriptions", mock(WebhookSubscriptions.class));
+        ReflectionTestUtils.setField(worker, "webhookRateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(worker, "webhookRetryPolicies", retryPolicies);
+        ReflectionTestUtils.setField(worker, "webhookLogBuffer", logBuffer);
+        ReflectionTestUtils.setField(worker, "webhookMetrics", mock(WebhookMetrics.class));
+        ReflectionTestUtils.setField(worker, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(worker, "batchEnabled", true);
+        ReflectionTestUtils.setField(worker, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(worker, "defaultBatchWindowMs", 1000);
+        ReflectionTestUtils.setField(worker, "batchResponseBytes", 65536);
+        ReflectionTestUtils.setField(worker, "maxResponseBodyChars", 1024);
+        worker.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.stop();
+    }
+
+    @Test
+    void deliverBatch_ShouldPostOneSignedArrayOfTheEventPayloads() {
+        respond(200, "");
+
+        List<WebhookLog> logs = deliverThree();
+
+        assertEquals("[{\"n\":1},{\"n\":2},{\"n\":3}]", new String(body.getValue(), StandardCharsets.UTF_8));
+        assertEquals(signer.sign("merchant-secret", body.getValue()), signature.getValue());
+        logs.forEach(log -> assertEquals("success", log.getStatus()));
+        verify(circuitBreaker).recordSuccess(merchant.getWebhookUrl());
+    }
+
+    @Test
+    void deliverBatch_PerEventStatuses_ShouldSettleEachEventOnItsOwn() {
+        respond(200, "[200, 500, 202]");
+
+        List<WebhookLog> logs = deliverThree();
+
+        assertEquals(List.of("success", "pending", "success"), logs.stream().map(WebhookLog::getStatus).toList());
+        assertEquals(List.of(200, 500, 202), logs.stream().map(WebhookLog::getResponseCode).toList());
+        // Only the failed event goes back to the retry schedule, with the payload bytes it came with
+        ArgumentCaptor<DeliverWebhookJob> retry = ArgumentCaptor.forClass(DeliverWebhookJob.class);
+        verify(jobService, times(1)).scheduleWebhookRetry(retry.capture(), eq(1), any());
+        assertEquals("{\"n\":2}", new String(retry.getValue().getPayload(), StandardCharsets.UTF_8));
+        assertEquals(logs.get(1).getId(), retry.getValue().getWebhookLogId());
+    }
+
+    @Test
+    void deliverBatch_StatusesNotOnePerEvent_ShouldApplyTheResponseStatusToAll() {
+        respond(202, "[200, 500]");
+
+        List<WebhookLog> logs = deliverThree();
+
+        logs.forEach(log -> {
+            assertEquals("success", log.getStatus());
+            assertEquals(202, log.getResponseCode());
+        });
+        verify(jobService, never()).scheduleWebhookRetry(any(), anyInt(), any());
+    }
+
+    @Test
+    void deliverBatch_ErrorResponse_ShouldFailEveryEventDespiteItsStatuses() {
+        respond(503, "[200, 200, 200]");
+
+        List<WebhookLog> logs = deliverThree();
+
+        logs.forEach(log -> {
+            assertEquals("pending", log.getStatus());
+            assertEquals(503, log.getResponseCode());
+        });
+        verify(jobService, times(3)).scheduleWebhookRetry(any(), eq(1), any());
+        verify(circuitBreaker).recordFailure(merchant.getWebhookUrl(), false, "HTTP 503");
+    }
+
+    private List<WebhookLog> deliverThree() {
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            deliveries.add(worker.process(new DeliverWebhookJob(merchant.getId(), "payment.success",
+                    ("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8), null, null, null)));
+        }
+        deliveries.forEach(delivery -> assertTrue(delivery.isDone() && !delivery.isCompletedExceptionally()));
+        verify(httpClient, times(1)).post(eq(merchant.getWebhookUrl()), body.capture(), signature.capture(),
+                eq(Map.of("X-Webhook-Batch-Size", "3")), eq(65536));
+
+        ArgumentCaptor<WebhookLog> saved = ArgumentCaptor.forClass(WebhookLog.class);
+        verify(logBuffer, atLeastOnce()).save(saved.capture(), anyBoolean());
+        return saved.getAllValues();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void respond(int status, String responseBody) {
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        when(response.body()).thenReturn(responseBody);
+        when(httpClient.post(anyString(), any(byte[].class), anyString(), anyMap(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(response));
+    }
+}
@@ -0,0 +1,158 @@
+package com.gateway.workers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.EmbeddedRedis;
+import com.gateway.jobs.JobCodec;
+import com.gateway.jobs.ProcessPaymentJob;
+import com.gateway.queue.DeadLetterQueue;
+import com.gateway.queue.ListJobQueue;
+import com.gateway.queue.OutgoingJob;
+import com.gateway.services.JobService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The adaptive limit decides how many payment jobs the runner pops, not just how many it runs
+class WorkerRunnerTest {
+
+    private final ListJobQueue jobQueue = new ListJobQueue();
+    private final JobCodec jobCodec = new JobCodec();
+    private final PaymentWorker paymentWorker = mock(PaymentWorker.class);
+    private final DeadLetterQueue deadLetterQueue = mock(DeadLetterQueue.class);
+    private final WorkerRunner runner = new WorkerRunner();
+    private final List<CompletableFuture<Void>> held = new CopyOnWriteArrayList<>();
+
+    WorkerRunnerTest() {
+        EmbeddedRedis.flush();
+        ReflectionTestUtils.setField(jobQueue, "jobRedisTemplate", EmbeddedRedis.jobTemplate());
+        ReflectionTestUtils.setField(jobCodec, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(jobCodec, "compressThreshold", 1024);
+
+        ReflectionTestUtils.setField(runner, "jobQueue", jobQueue);
+        ReflectionTestUtils.setField(runner, "jobCodec", jobCodec);
+        ReflectionTestUtils.setField(runner, "deadLetterQueue", deadLetterQueue);
+        ReflectionTestUtils.setField(runner, "paymentWorker", paymentWorker);
+        ReflectionTestUtils.setField(runner, "webhookWorker", mock(WebhookWorker.class));
+        ReflectionTestUtils.setField(runner, "refundWorker", mock(RefundWorker.class));
+        ReflectionTestUtils.setField(runner, "paymentsConcurrency", 50);
+        ReflectionTestUtils.setField(runner, "webhooksConcurrency", 1);
+        ReflectionTestUtils.setField(runner, "refundsConcurrency", 1);
+        ReflectionTestUtils.setField(runner, "pollBatchSize", 10);
+        ReflectionTestUtils.setField(runner, "maxAttempts", 1);
+        ReflectionTestUtils.setField(runner, "retryBackoffMs", 10L);
+        ReflectionTestUtils.setField(runner, "adaptiveEnabled", true);
+        ReflectionTestUtils.setField(runner, "adaptiveInitialLimit", 4);
+        ReflectionTestUtils.setField(runner, "adaptiveMinLimit", 1);
+        ReflectionTestUtils.setField(runner, "adaptiveBackoffRatio", 0.5);
+        ReflectionTestUtils.setField(runner, "adaptiveTolerance", 2.0);
+        ReflectionTestUtils.setField(runner, "adaptiveBaselineWindowMs", 60000L);
+        ReflectionTestUtils.setField(runner, "leaseExtendIntervalMs", 0L);
+    }
+
+    @AfterEach
+    @SuppressWarnings("unchecked")
+    void tearDown() {
+        ReflectionTestUtils.setField(runner, "running", false);
+        List<ExecutorService> executors = (List<ExecutorService>) ReflectionTestUtils.getField(runner, "executors");
+        executors.forEach(ExecutorService::shutdownNow);
+        held.forEach(future -> future.complete(null));
+    }
+
+    @Test
+    void run_SlowJobs_ShouldPopNoMoreThanTheInitialLimit() throws Exception {
+        when(paymentWorker.processBatch(anyList())).thenAnswer(invocation -> hold(invocation.getArgument(0)));
+        enqueuePayments(30);
+
+        runner.run();
+
+        eventually(() -> held.size() == 4);
+        Thread.sleep(300);
+        assertEquals(4, held.size());
+        assertEquals(26, jobQueue.size(JobService.QUEUE_PAYMENTS));
+        assertEquals(4, payments().get("limit"));
+        assertEquals(4, payments().get("inFlight"));
+    }
+
+    @Test
+    void run_FastSteadyJobs_ShouldRaiseTheLimitAndDrainTheQueue() throws Exception {
+        AtomicInteger handled = new AtomicInteger();
+        when(paymentWorker.processBatch(anyList())).thenAnswer(invocation -> {
+            List<ProcessPaymentJob> jobs = invocation.getArgument(0);
+            Thread.sleep(2);
+            handled.addAndGet(jobs.size());
+            return Collections.nCopies(jobs.size(), CompletableFuture.completedFuture(null));
+        });
+        enqueuePayments(300);
+
+        runner.run();
+
+        eventually(() -> handled.get() == 300);
+        assertEquals(0, jobQueue.size(JobService.QUEUE_PAYMENTS));
+        assertTrue((int) payments().get("limit") > 4, payments().toString());
+    }
+
+    @Test
+    void run_FailingJobs_ShouldCutTheLimitToItsMinimum() throws Exception {
+        when(paymentWorker.processBatch(anyList())).thenAnswer(invocation -> {
+            List<ProcessPaymentJob> jobs = invocation.getArgument(0);
+            CompletableFuture<Void> failed = CompletableFuture.failedFuture(new IllegalStateException("bank down"));
+            return Collections.nCopies(jobs.size(), failed);
+        });
+        enqueuePayments(50);
+
+        runner.run();
+
+        eventually(() -> (int) payments().get("limit") == 1);
+        verify(deadLetterQueue, atLeastOnce()).add(eq(JobService.QUEUE_PAYMENTS), anyList(), anyString(), anyInt());
+    }
+
+    private List<CompletableFuture<Void>> hold(List<ProcessPaymentJob> jobs) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        held.addAll(futures);
+        return futures;
+    }
+
+    private void enqueuePayments(int count) {
+        List<OutgoingJob> jobs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            jobs.add(new OutgoingJob(null, jobCodec.encode(new ProcessPaymentJob("pay_" + i, null))));
+        }
+        jobQueue.pushAll(JobService.QUEUE_PAYMENTS, jobs);
+    }
+
+    private Map<String, Object> payments() {
+        return runner.concurrencySnapshot().get(JobService.QUEUE_PAYMENTS);
+    }
+
+    private static void eventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(20);
+        }
+    }
+}
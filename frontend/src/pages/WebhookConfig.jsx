@@ -30,6 +30,7 @@ export default function WebhookConfig() {
     const [webhookUrl, setWebhookUrl] = useState('');
     const [webhookSecret, setWebhookSecret] = useState('');
     const [logs, setLogs] = useState([]);
+    const [endpointHealth, setEndpointHealth] = useState(null);
     const [loading, setLoading] = useState(true);
     const [saving, setSaving] = useState(false);
     const [showSecret, setShowSecret] = useState(false);
@@ -71,6 +72,7 @@ export default function WebhookConfig() {
             if (logsRes.ok) {
                 const logsData = await logsRes.json();
                 setLogs(logsData.data || []);
+                setEndpointHealth(logsData.endpoint || null);
             }
         } catch (err) {
             console.error('Failed to fetch webhook config', err);
@@ -130,6 +132,7 @@ export default function WebhookConfig() {
             if (logsRes.ok) {
                 const logsData = await logsRes.json();
                 setLogs(logsData.data || []);
+                setEndpointHealth(logsData.endpoint || null);
             }
         } catch (err) {
             alert('Failed to retry webhook');
@@ -175,6 +178,28 @@ export default function WebhookConfig() {
                         </div>
                     </div>
 
+                    {webhookUrl && endpointHealth && (
+                        <div>
+                            <label className="form-label">Endpoint Health</label>
+                            <div className="flex items-center gap-2 text-sm">
+                                <span className={`status-badge ${endpointHealth.state === 'closed' ? 'status-active' : 'status-inactive'}`}>
+                                    {endpointHealth.state === 'closed' ? 'Healthy' : endpointHealth.state === 'open' ? 'Circuit Open' : endpointHealth.state === 'half_open' ? 'Recovering' : 'Unknown'}
+                                </span>
+                                {endpointHealth.calls > 0 && (
+                                    <span className="text-gray-500">
+                                        {Math.round(endpointHealth.failure_rate * 100)}% of {endpointHealth.calls} deliveries failed in the last {endpointHealth.window_seconds}s
+                                    </span>
+                                )}
+                            </div>
+                            {endpointHealth.state === 'open' && endpointHealth.open_until && (
+                                <p className="text-sm text-gray-500 mt-1">
+                                    Deliveries paused until {new Date(endpointHealth.open_until).toLocaleTimeString()}
+                                    {endpointHealth.last_error ? ` (last error: ${endpointHealth.last_error})` : ''}
+                                </p>
+                            )}
+                        </div>
+                    )}
+
                     <div>
                         <label className="form-label">Signing Secret</label>
                         <p className="text-sm text-gray-500 mb-2">Used to verify that events originated from us (HMAC-SHA256).</p>